@@ -0,0 +1,311 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that letting resting balls sleep in a {@link World} changes nothing: a world, where
+ * most balls start at rest and fall asleep, is stepped next to copies of the same balls and
+ * obstacles that are all stepped every time, as {@link World#step()} would step them with no
+ * active set. Before each step both get the same random changes: balls are set moving, either
+ * through a {@link WorldCommand} or directly followed by {@link World#wake(Ball)}; moving balls
+ * are stopped so they fall asleep again; obstacles jump onto balls with
+ * {@link World#moveObstacle(int, double, double)}; and every so often gravity is turned on for
+ * a while, which wakes every ball. When it is turned off, the balls that were at rest before
+ * are stopped again, so they fall back asleep. After each step every ball must have the same
+ * center and velocity in both, to the last bit; exits with status 1 at the first difference.
+ *
+ * <p>The check runs once without spatial indexes and once with them, since sleeping balls are
+ * woken through the ball index when there is one. With indexes the copies are bounced off the
+ * obstacles the world's obstacle index finds near them, as an awake ball in the world is.</p>
+ *
+ * <p>Usage: {@code ActiveSetCheck [balls=2000] [obstacles=40] [steps=2000] [resting=0.8]
+ * [changes=0.05] [gravity=400] [cell=64] [seed=1]}</p>
+ */
+public class ActiveSetCheck {
+    private static final double FRAME_WIDTH = 1200;
+    private static final double FRAME_HEIGHT = 900;
+    private static final int MAX_SIZE = 12;
+    private static final double MAX_SPEED = 6;
+    private static final double OBSTACLE_SIDE = 40;
+    private static final double THETA = 0.5;
+    private static final double GRAVITY = 0.0005;
+    private static final double SOFTENING = 3;
+    private static final int GRAVITY_STEPS = 20;
+    private static final int CHANGE_KINDS = 4;
+
+    private final Rectangle frame = new Rectangle(0, 0, FRAME_WIDTH, FRAME_HEIGHT, Color.white);
+    private final World world;
+    private final List<Ball> reference;
+    private final List<Rectangle> referenceObstacles;
+    private final BarnesHut referenceGravity = new BarnesHut(THETA, GRAVITY, SOFTENING, 1);
+    private final SplittableRandom changes;
+    private final IntList restingBeforeGravity = new IntList();
+    private final IntList nearby = new IntList();
+    private boolean gravityOn;
+    private int stepped;
+    private long activeSum;
+    private int fewestActive = Integer.MAX_VALUE;
+
+    /**
+     * Builds the world and its reference copies.
+     *
+     * @param ballCount     the number of balls
+     * @param obstacleCount the number of obstacles
+     * @param resting       the fraction of balls that start at rest
+     * @param cellSize      the side of an index cell, or 0 for no index
+     * @param seed          the random seed
+     */
+    private ActiveSetCheck(int ballCount, int obstacleCount, double resting, double cellSize, long seed) {
+        this.world = new World("active set", frame, 0);
+        if (cellSize > 0) {
+            world.setSpatialIndex(cellSize);
+        }
+        for (Rectangle obstacle : createObstacles(obstacleCount, seed)) {
+            world.addObstacle(obstacle);
+        }
+        for (Ball ball : createBalls(ballCount, resting, seed)) {
+            world.addBall(ball);
+        }
+        this.referenceObstacles = createObstacles(obstacleCount, seed);
+        this.reference = createBalls(ballCount, resting, seed);
+        this.changes = new SplittableRandom(seed + 1);
+    }
+
+    /**
+     * Finds a key=value argument.
+     *
+     * @param args         the command line
+     * @param key          the key to look for
+     * @param defaultValue the value to use if the key is absent
+     * @return the value
+     */
+    private static String option(String[] args, String key, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                return arg.substring(key.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @param count the number of obstacles
+     * @param seed  the random seed
+     * @return square obstacles anywhere in the frame
+     */
+    private static List<Rectangle> createObstacles(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Rectangle> obstacles = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            obstacles.add(new Rectangle(random.nextDouble(FRAME_WIDTH - OBSTACLE_SIDE),
+                    random.nextDouble(FRAME_HEIGHT - OBSTACLE_SIDE), OBSTACLE_SIDE, OBSTACLE_SIDE, Color.gray));
+        }
+        return obstacles;
+    }
+
+    /**
+     * @param count   the number of balls
+     * @param resting the fraction of balls that start at rest
+     * @param seed    the random seed
+     * @return balls anywhere in the frame, some of them on obstacles, which push them out
+     */
+    private static List<Ball> createBalls(int count, double resting, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Ball> balls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int size = 1 + random.nextInt(MAX_SIZE);
+            double x = random.nextDouble(size, FRAME_WIDTH - size);
+            double y = random.nextDouble(size, FRAME_HEIGHT - size);
+            double speed = random.nextDouble() < resting ? 0 : 1 + random.nextDouble(MAX_SPEED - 1);
+            balls.add(new Ball(x, y, size, Color.red, random.nextDouble(360), speed));
+        }
+        return balls;
+    }
+
+    // ---------------- Changes ----------------
+
+    /**
+     * Makes the same random change to the world and to the reference, if any.
+     *
+     * @param chance the chance of a change
+     */
+    private void change(double chance) {
+        if (changes.nextDouble() >= chance) {
+            return;
+        }
+        int kind = changes.nextInt(CHANGE_KINDS);
+        if (kind < 2) {
+            int i = changes.nextInt(reference.size());
+            double dx = changes.nextDouble(-MAX_SPEED, MAX_SPEED);
+            double dy = changes.nextDouble(-MAX_SPEED, MAX_SPEED);
+            reference.get(i).setVelocity(dx, dy);
+            Ball ball = world.getBalls().get(i);
+            if (kind == 0) {
+                world.getCommands().submit(WorldCommand.setVelocity(ball, dx, dy));
+            } else {
+                ball.setVelocity(dx, dy);
+                world.wake(ball);
+            }
+        } else if (kind == 2) {
+            int i = changes.nextInt(reference.size());
+            reference.get(i).setVelocity(0, 0);
+            world.getCommands().submit(WorldCommand.setVelocity(world.getBalls().get(i), 0, 0));
+        } else {
+            int k = changes.nextInt(referenceObstacles.size());
+            double x = changes.nextDouble(FRAME_WIDTH - OBSTACLE_SIDE);
+            double y = changes.nextDouble(FRAME_HEIGHT - OBSTACLE_SIDE);
+            referenceObstacles.get(k).setMin(new Point(x, y));
+            world.moveObstacle(k, x, y);
+        }
+    }
+
+    /**
+     * Turns gravity on or off in both. Turning it off stops again the balls that were at rest
+     * when it was turned on.
+     *
+     * @param on true to turn it on
+     */
+    private void setGravity(boolean on) {
+        gravityOn = on;
+        // the world shuts down the stage it drops, so it gets a new one each time
+        world.setGravity(on ? new BarnesHut(THETA, GRAVITY, SOFTENING, 1) : null);
+        if (on) {
+            restingBeforeGravity.clear();
+            for (int i = 0; i < reference.size(); i++) {
+                Velocity velocity = reference.get(i).getVelocity();
+                if (velocity.getDx() == 0 && velocity.getDy() == 0) {
+                    restingBeforeGravity.add(i);
+                }
+            }
+            return;
+        }
+        for (int k = 0; k < restingBeforeGravity.size(); k++) {
+            int i = restingBeforeGravity.get(k);
+            reference.get(i).setVelocity(0, 0);
+            Ball ball = world.getBalls().get(i);
+            ball.setVelocity(0, 0);
+            world.wake(ball);
+        }
+    }
+
+    // ---------------- Stepping ----------------
+
+    /**
+     * Steps the world, and every reference ball as the world would step it if it were awake:
+     * against every obstacle, or with an index against those the index finds nearby.
+     */
+    private void step() {
+        world.step();
+        stepped++;
+        activeSum += world.getActiveBalls();
+        fewestActive = Math.min(fewestActive, world.getActiveBalls());
+        if (gravityOn) {
+            referenceGravity.accelerate(reference);
+        }
+        UniformGrid index = world.getObstacleIndex();
+        for (Ball ball : reference) {
+            ball.moveStepInBox(frame);
+            if (index == null) {
+                for (Rectangle obstacle : referenceObstacles) {
+                    ball.bounceOff(frame, obstacle);
+                }
+                continue;
+            }
+            // the obstacles are where the world's are, so its index finds them, with the reach
+            // the world looks in
+            double reach = 2.0 * ball.getSize();
+            index.query(ball.getCenterX() - reach, ball.getCenterY() - reach, ball.getCenterX() + reach,
+                    ball.getCenterY() + reach, nearby);
+            nearby.sort();
+            for (int k = 0; k < nearby.size(); k++) {
+                ball.bounceOff(frame, referenceObstacles.get(nearby.get(k)));
+            }
+        }
+    }
+
+    /**
+     * @param step the step just taken, for the report
+     * @return true if every ball has the same center and velocity in the world and the reference
+     */
+    private boolean matches(int step) {
+        for (int i = 0; i < reference.size(); i++) {
+            Ball a = reference.get(i);
+            Ball b = world.getBalls().get(i);
+            if (a.getCenterX() != b.getCenterX() || a.getCenterY() != b.getCenterY()
+                    || a.getVelocity().getDx() != b.getVelocity().getDx()
+                    || a.getVelocity().getDy() != b.getVelocity().getDy()) {
+                System.out.printf("step %d, ball %d: stepped every time at (%s, %s) moving (%s, %s),"
+                                + " in the world at (%s, %s) moving (%s, %s)%n", step, i,
+                        a.getCenterX(), a.getCenterY(), a.getVelocity().getDx(), a.getVelocity().getDy(),
+                        b.getCenterX(), b.getCenterY(), b.getVelocity().getDx(), b.getVelocity().getDy());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param steps        the number of steps
+     * @param chance       the chance of a change before each step
+     * @param gravityEvery how often gravity is turned on, in steps, or 0 for never
+     * @return true if the world matched the reference after every step
+     */
+    private boolean run(int steps, double chance, int gravityEvery) {
+        for (int s = 0; s < steps; s++) {
+            if (gravityEvery > 0 && s % gravityEvery == gravityEvery - 1) {
+                setGravity(true);
+            } else if (gravityOn && s % gravityEvery == GRAVITY_STEPS) {
+                setGravity(false);
+            }
+            change(chance);
+            step();
+            if (!matches(s)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops the gravity threads.
+     */
+    private void shutdown() {
+        world.setGravity(null);
+        referenceGravity.shutdown();
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args key=value options, see the class documentation
+     */
+    public static void main(String[] args) {
+        int count = Integer.parseInt(option(args, "balls", "2000"));
+        int obstacleCount = Integer.parseInt(option(args, "obstacles", "40"));
+        int steps = Integer.parseInt(option(args, "steps", "2000"));
+        double resting = Double.parseDouble(option(args, "resting", "0.8"));
+        double chance = Double.parseDouble(option(args, "changes", "0.05"));
+        int gravityEvery = Integer.parseInt(option(args, "gravity", "400"));
+        double cellSize = Double.parseDouble(option(args, "cell", "64"));
+        long seed = Long.parseLong(option(args, "seed", "1"));
+
+        boolean ok = true;
+        for (double cell : new double[] {0, cellSize}) {
+            ActiveSetCheck check = new ActiveSetCheck(count, obstacleCount, resting, cell, seed);
+            boolean matched = check.run(steps, chance, gravityEvery);
+            check.shutdown();
+            System.out.printf("%s: %d balls, %d steps, %.0f active on average, %d at least; %s%n",
+                    cell > 0 ? "indexed" : "not indexed", count, check.stepped,
+                    (double) check.activeSum / check.stepped, check.fewestActive,
+                    matched ? "same as stepping every ball" : "differs");
+            ok &= matched;
+        }
+        if (!ok) {
+            System.out.println("active set check failed");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Builds ball populations that are as hard as possible for
+ * {@link Ball#moveStepInBoxAndCollide(Rectangle, Rectangle)}, in the frame and gray box of
+ * {@link MultipleFramesBouncingBallsAnimation}. That animation's spawning avoids every one of
+ * these cases; here they are produced on purpose, to measure the slow paths.
+ */
+public final class AdversarialWorkloads {
+    static final double FRAME_WIDTH = 800;
+    static final double FRAME_HEIGHT = 600;
+    static final double GRAY_MIN = 50;
+    static final double GRAY_MAX = 500;
+
+    /**
+     * A kind of pathological population.
+     */
+    public enum Scenario {
+        /**
+         * Balls spawned overlapping an edge of the gray box.
+         */
+        TOUCHING,
+        /**
+         * Balls next to a corner of the gray box, moving straight at it.
+         */
+        CORNERS,
+        /**
+         * Balls in the corridors between the gray box and the frame with a radius close to
+         * half the corridor, some slightly wider than it.
+         */
+        NARROW_GAP,
+        /**
+         * Small balls moving further per step than their radius.
+         */
+        FAST,
+        /**
+         * An equal share of each of the above.
+         */
+        MIXED
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private AdversarialWorkloads() {
+        // prevents creating instances
+    }
+
+    /**
+     * @return the outer frame the balls move in
+     */
+    public static Rectangle createFrame() {
+        return new Rectangle(0, 0, FRAME_WIDTH, FRAME_HEIGHT);
+    }
+
+    /**
+     * @return the gray box the balls bounce off
+     */
+    public static Rectangle createObstacle() {
+        return new Rectangle(GRAY_MIN, GRAY_MIN, GRAY_MAX - GRAY_MIN, GRAY_MAX - GRAY_MIN, Color.gray);
+    }
+
+    /**
+     * Builds a population. The same scenario, count and seed always give the same balls.
+     *
+     * @param scenario the kind of population
+     * @param count    the number of balls
+     * @param seed     the random seed
+     * @return the balls
+     */
+    public static List<Ball> create(Scenario scenario, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Ball> balls = new ArrayList<>(count);
+        Scenario[] kinds = {Scenario.TOUCHING, Scenario.CORNERS, Scenario.NARROW_GAP, Scenario.FAST};
+        for (int i = 0; i < count; i++) {
+            Scenario kind = scenario == Scenario.MIXED ? kinds[i % kinds.length] : scenario;
+            switch (kind) {
+                case TOUCHING:
+                    balls.add(touching(random));
+                    break;
+                case CORNERS:
+                    balls.add(corner(random));
+                    break;
+                case NARROW_GAP:
+                    balls.add(narrowGap(random));
+                    break;
+                default:
+                    balls.add(fast(random));
+                    break;
+            }
+        }
+        return balls;
+    }
+
+    /**
+     * @param random the generator
+     * @return a ball overlapping one edge of the gray box by up to half its radius
+     */
+    private static Ball touching(SplittableRandom random) {
+        int size = 5 + random.nextInt(16);
+        double overlap = random.nextDouble(size / 2.0);
+        double along = random.nextDouble(GRAY_MIN, GRAY_MAX);
+        double x;
+        double y;
+        switch (random.nextInt(4)) {
+            case 0:
+                x = GRAY_MIN - size + overlap;
+                y = along;
+                break;
+            case 1:
+                x = GRAY_MAX + size - overlap;
+                y = along;
+                break;
+            case 2:
+                x = along;
+                y = GRAY_MIN - size + overlap;
+                break;
+            default:
+                x = along;
+                y = GRAY_MAX + size - overlap;
+                break;
+        }
+        return new Ball(x, y, size, Color.red, random.nextDouble(360), 1 + random.nextDouble(12));
+    }
+
+    /**
+     * @param random the generator
+     * @return a ball just outside a corner of the gray box, heading for the corner
+     */
+    private static Ball corner(SplittableRandom random) {
+        int size = 5 + random.nextInt(16);
+        double cornerX = random.nextBoolean() ? GRAY_MIN : GRAY_MAX;
+        double cornerY = random.nextBoolean() ? GRAY_MIN : GRAY_MAX;
+        // a point on the outward diagonal, between touching and one radius away
+        double distance = size * (1 + random.nextDouble());
+        double x = cornerX + (cornerX == GRAY_MIN ? -1 : 1) * distance / Math.sqrt(2);
+        double y = cornerY + (cornerY == GRAY_MIN ? -1 : 1) * distance / Math.sqrt(2);
+        double angle = Math.toDegrees(Math.atan2(cornerX - x, -(cornerY - y)));
+        return new Ball(x, y, size, Color.orange, angle, 2 + random.nextDouble(20));
+    }
+
+    /**
+     * @param random the generator
+     * @return a ball filling most of the left or top corridor, which is {@value #GRAY_MIN} wide
+     */
+    private static Ball narrowGap(SplittableRandom random) {
+        // from a little under half the corridor to a little over it
+        int size = (int) (GRAY_MIN / 2) - 3 + random.nextInt(5);
+        double across = GRAY_MIN / 2 + random.nextDouble(-2, 2);
+        double along = random.nextDouble(GRAY_MIN, GRAY_MAX);
+        boolean left = random.nextBoolean();
+        double x = left ? across : along;
+        double y = left ? along : across;
+        return new Ball(x, y, size, Color.blue, random.nextDouble(360), 1 + random.nextDouble(24));
+    }
+
+    /**
+     * @param random the generator
+     * @return a ball of radius 1 to 3 moving 20 to 80 pixels per step, outside the gray box
+     */
+    private static Ball fast(SplittableRandom random) {
+        int size = 1 + random.nextInt(3);
+        double x;
+        double y;
+        do {
+            x = random.nextDouble(size, FRAME_WIDTH - size);
+            y = random.nextDouble(size, FRAME_HEIGHT - size);
+        } while (x + size >= GRAY_MIN && x - size <= GRAY_MAX && y + size >= GRAY_MIN && y - size <= GRAY_MAX);
+        return new Ball(x, y, size, Color.green, random.nextDouble(360), 20 + random.nextDouble(60));
+    }
+}
@@ -8,6 +8,15 @@ import java.awt.Color;
  * and avoid entering a restricted inner rectangle.
  */
 public class Ball {
+    /**
+     * Most passes of the push-out loop in {@link #bounceOff(Rectangle, Rectangle)}. A ball wider
+     * than the gap between the obstacle and the frame is pushed back and forth between them
+     * forever; the limit ends that, leaving the ball overlapping.
+     */
+    static final int MAX_PUSH_OUT_PASSES = 16;
+    private static final Rectangle DEFAULT_FRAME =
+            new Rectangle(0, 0, World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT, Color.white);
+
     private Point center;
     private int size;
     private Color color;
@@ -101,6 +110,24 @@ public class Ball {
         return (int) center.getY();
     }
 
+    /**
+     * Returns the exact x-coordinate of the center, without copying the center point.
+     *
+     * @return the x-coordinate
+     */
+    public double getCenterX() {
+        return center.getX();
+    }
+
+    /**
+     * Returns the exact y-coordinate of the center, without copying the center point.
+     *
+     * @return the y-coordinate
+     */
+    public double getCenterY() {
+        return center.getY();
+    }
+
     /**
      * Returns the radius (size) of the ball.
      *
@@ -129,12 +156,13 @@ public class Ball {
     }
 
     /**
-     * Sets the center point of the ball.
+     * Sets the center point of the ball. The point is copied, since the ball moves its
+     * center in place.
      *
      * @param center the new center point
      */
     public void setCenter(Point center) {
-        this.center = center;
+        this.center = center.copy();
     }
 
     /**
@@ -200,22 +228,34 @@ public class Ball {
      * @param surface the surface to draw on
      */
     public void drawOn(DrawSurface surface) {
+        drawOn(surface, 0, 0);
+    }
+
+    /**
+     * Draws the ball on the provided DrawSurface, shifted by an offset.
+     * Used to draw a part of a world larger than the surface.
+     *
+     * @param surface the surface to draw on
+     * @param offsetX the world x-coordinate drawn at the left edge of the surface
+     * @param offsetY the world y-coordinate drawn at the top edge of the surface
+     */
+    public void drawOn(DrawSurface surface, double offsetX, double offsetY) {
         if (surface == null) {
             return;
         }
         surface.setColor(this.color);
         Point renderPoint = this.center;
-        surface.fillCircle((int) renderPoint.getX(), (int) renderPoint.getY(), this.size);
+        surface.fillCircle((int) (renderPoint.getX() - offsetX), (int) (renderPoint.getY() - offsetY), this.size);
     }
 
     // ---------------- Movement ----------------
 
     /**
-     * Moves the ball one step within a default 800x600 frame.
+     * Moves the ball one step within the default frame of
+     * {@link World#DEFAULT_WIDTH} x {@link World#DEFAULT_HEIGHT}.
      */
     public void moveOneStep() {
-        Rectangle frame = new Rectangle(0, 0, 800, 600, Color.white);
-        moveStepInBox(frame);
+        moveStepInBox(DEFAULT_FRAME);
     }
 
     /**
@@ -225,7 +265,9 @@ public class Ball {
      * @param frame the rectangular frame within which the ball moves
      */
     public void moveStepInBox(Rectangle frame) {
-        this.center = velocity.applyToPoint(this.center);
+        // moved in place rather than through Velocity.applyToPoint, so a step allocates nothing
+        this.center.setX(this.center.getX() + velocity.getDx());
+        this.center.setY(this.center.getY() + velocity.getDy());
         fixStepInBox(frame);
     }
 
@@ -246,18 +288,22 @@ public class Ball {
         double botDistance = (frame.getMin().getY() + frame.getHeight()) - (this.center.getY() + this.size);
 
         if (rightDistance <= 0) {
+            PhysicsStats.increment(PhysicsStats.Counter.WALL_RIGHT);
             this.center.setX(this.center.getX() + (2 * rightDistance));
             this.velocity.setDx(-this.velocity.getDx());
         }
         if (leftDistance <= 0) {
+            PhysicsStats.increment(PhysicsStats.Counter.WALL_LEFT);
             this.center.setX(this.center.getX() + (-2 * leftDistance));
             this.velocity.setDx(-this.velocity.getDx());
         }
         if (topDistance <= 0) {
+            PhysicsStats.increment(PhysicsStats.Counter.WALL_TOP);
             this.center.setY(this.center.getY() + (-2 * topDistance));
             this.velocity.setDy(-this.velocity.getDy());
         }
         if (botDistance <= 0) {
+            PhysicsStats.increment(PhysicsStats.Counter.WALL_BOTTOM);
             this.center.setY(this.center.getY() + (2 * botDistance));
             this.velocity.setDy(-this.velocity.getDy());
         }
@@ -274,11 +320,29 @@ public class Ball {
      */
     public void moveStepInBoxAndCollide(Rectangle outerFrame, Rectangle insideFrame) {
         moveStepInBox(outerFrame);
+        bounceOff(outerFrame, insideFrame);
+    }
 
+    /**
+     * Pushes the ball out of an inner rectangle (obstacle) it overlaps after a step,
+     * reflecting its velocity as described in {@link #moveStepInBoxAndCollide(Rectangle, Rectangle)}.
+     * Does nothing if the ball does not touch the obstacle. Gives up after
+     * {@value #MAX_PUSH_OUT_PASSES} corrections.
+     *
+     * @param outerFrame  the outer boundary rectangle
+     * @param insideFrame the inner rectangle to bounce off
+     * @return true if the ball touched the obstacle
+     */
+    public boolean bounceOff(Rectangle outerFrame, Rectangle insideFrame) {
         if (!this.isIntersecting(insideFrame)) {
-            return;
+            return false;
         }
+        CollisionEvent event = new CollisionEvent();
+        event.begin();
+        int iterations = 0;
+        boolean gaveUp = false;
         while (this.isIntersecting(insideFrame)) {
+            iterations++;
 
             // Step 1: Calculate overlaps
             double leftOverlap = (insideFrame.getMin().getX() + insideFrame.getWidth()) - (this.center.getX() - this.size);
@@ -290,6 +354,8 @@ public class Ball {
             double overlapY = Math.min(topOverlap, bottomOverlap);
 
             // Step 2: Determine axis of minimal penetration for position correction
+            double beforeX = this.center.getX();
+            double beforeY = this.center.getY();
             boolean fixX = overlapX < overlapY;
             if (fixX) {
                 if (leftOverlap < rightOverlap) {
@@ -304,6 +370,9 @@ public class Ball {
                     this.center.setY(this.center.getY() - bottomOverlap);
                 }
             }
+            // far from the origin a tiny overlap can be smaller than the precision of the
+            // coordinate, so the correction does not move the ball and would repeat forever
+            boolean stuck = this.center.getX() == beforeX && this.center.getY() == beforeY;
 
             // Step 3: Reflect velocity based on actual axis intersection,
             // using a dynamic epsilon based on the ball's speed with a tiny addition to avoid unexpected behavior.
@@ -321,10 +390,27 @@ public class Ball {
 
             fixStepInBox(outerFrame);
 
-            if (Math.min(overlapX, overlapY) <= 0) {
+            if (Math.min(overlapX, overlapY) <= 0 || stuck) {
+                gaveUp = stuck && Math.min(overlapX, overlapY) > 0;
+                break;
+            }
+            if (iterations == MAX_PUSH_OUT_PASSES) {
+                gaveUp = true;
                 break;
             }
         }
+        PhysicsStats.increment(PhysicsStats.Counter.OBSTACLE_HITS);
+        PhysicsStats.add(PhysicsStats.Counter.PUSH_OUT_ITERATIONS, iterations);
+        if (gaveUp) {
+            PhysicsStats.increment(PhysicsStats.Counter.STUCK);
+        }
+        if (event.shouldCommit()) {
+            event.setBall(this.center.getX(), this.center.getY(), this.size);
+            event.setObstacle(insideFrame);
+            event.setIterations(iterations, gaveUp);
+            event.commit();
+        }
+        return true;
     }
 
 
@@ -332,12 +418,39 @@ public class Ball {
      * Ensures the ball spawns inside the visible area of the surface.
      * If out of bounds, resets its position and size.
      *
-     * @param surface the surface to validate against
+     * @param surface the surface to validate against, or null for the default frame
      */
     public void validateSpawn(DrawSurface surface) {
-        this.setCenter(fixPosition(surface));
-        if (this.center.getX() - this.size < 0 || this.center.getX() + this.size > 800
-                || this.center.getY() - this.size < 0 || this.center.getY() + this.size > 600) {
+        if (surface == null) {
+            resetIfOutside(World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
+            return;
+        }
+        validateSpawn(surface.getWidth(), surface.getHeight());
+    }
+
+    /**
+     * Ensures the ball spawns inside a world of the given size whose top-left corner is (0, 0).
+     * A ball past an edge is wrapped around it; if it still does not fit, its position
+     * and size are reset.
+     *
+     * @param width  the width of the world
+     * @param height the height of the world
+     */
+    public void validateSpawn(double width, double height) {
+        this.setCenter(fixPosition(width, height));
+        resetIfOutside(width, height);
+    }
+
+    /**
+     * Resets the position and size of a ball that does not fit the given area,
+     * and the size of a ball too big to be shown.
+     *
+     * @param width  the width of the area
+     * @param height the height of the area
+     */
+    private void resetIfOutside(double width, double height) {
+        if (this.center.getX() - this.size < 0 || this.center.getX() + this.size > width
+                || this.center.getY() - this.size < 0 || this.center.getY() + this.size > height) {
             this.setCenter(new Point(100, 100));
             this.setSize(30);
         }
@@ -349,30 +462,28 @@ public class Ball {
     // ---------------- Internal Utility ----------------
 
     /**
-     * Fixes the position of the ball to stay within the bounds of the given surface.
-     * If the ball is out of bounds, it wraps around the surface dimensions.
+     * Fixes the position of the ball to stay within the given bounds.
+     * If the ball is out of bounds, it wraps around the dimensions.
      * Note: this method does not modify the current center, but returns a new fixed point.
      *
-     * @param surface the drawing surface
-     * @return a new point adjusted to be inside the surface bounds
+     * @param width  the width of the area
+     * @param height the height of the area
+     * @return a new point adjusted to be inside the bounds
      */
-    private Point fixPosition(DrawSurface surface) {
-        if (surface == null) {
-            return this.center.copy();
-        }
+    private Point fixPosition(double width, double height) {
         double newX = this.center.getX();
         double newY = this.center.getY();
-        while (newX - (this.size) > surface.getWidth()) {
-            newX -= surface.getWidth();
+        while (newX - (this.size) > width) {
+            newX -= width;
         }
         while (newX + (this.size) < 0) {
-            newX += surface.getWidth();
+            newX += width;
         }
-        while (newY - (this.size) > surface.getHeight()) {
-            newY -= surface.getHeight();
+        while (newY - (this.size) > height) {
+            newY -= height;
         }
         while (newY + (this.size) < 0) {
-            newY += surface.getHeight();
+            newY += height;
         }
         return new Point(newX, newY);
     }
@@ -0,0 +1,448 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A k-d tree over the centers of a list of balls, for nearest-neighbour and within-radius
+ * queries. Distances are compared squared, so queries never take a square root.
+ *
+ * <p>The tree is stored in flat arrays: ball centers are copied and reordered so that each
+ * node covers a contiguous range, and every node keeps the bounding box of its centers.
+ * {@link #rebuild()} splits at the median of the wider side in O(n log n); {@link #refit()}
+ * keeps the shape and only recomputes the boxes from the current centers in O(n), which
+ * stays correct but slowly gets less selective as balls drift. {@link #update()} refits
+ * and rebuilds when the boxes have grown too much.</p>
+ *
+ * <p>Ids are positions in the ball list. Not thread-safe: queries use internal scratch state.</p>
+ */
+public class BallKdTree {
+    private static final int LEAF_SIZE = 8;
+    // rebuild once the leaves cover this many times their area right after a build
+    private static final double REBUILD_GROWTH = 2;
+
+    private final List<Ball> balls;
+    private int count;
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private int[] ids = new int[0];
+
+    // nodes in pre-order, so children always come after their parent
+    private int nodes;
+    private int[] from = new int[0];
+    private int[] to = new int[0];
+    private int[] left = new int[0];
+    private int[] right = new int[0];
+    private double[] minX = new double[0];
+    private double[] minY = new double[0];
+    private double[] maxX = new double[0];
+    private double[] maxY = new double[0];
+    private double builtLeafArea;
+
+    // kNN scratch: a max-heap on squared distance
+    private double[] heapDistance = new double[0];
+    private int[] heapId = new int[0];
+    private int heapSize;
+    private int[] stack = new int[64];
+
+    /**
+     * Constructs a tree over a list of balls and builds it.
+     *
+     * @param balls the balls, read again on every rebuild or refit
+     */
+    public BallKdTree(List<Ball> balls) {
+        this.balls = balls;
+        rebuild();
+    }
+
+    /**
+     * @return the number of balls in the tree
+     */
+    public int size() {
+        return count;
+    }
+
+    // ---------------- Building ----------------
+
+    /**
+     * Builds the tree from the current ball centers.
+     */
+    public void rebuild() {
+        count = balls.size();
+        if (xs.length < count) {
+            xs = new double[count];
+            ys = new double[count];
+            ids = new int[count];
+            // leaves hold at least half of LEAF_SIZE centers, and a binary tree has fewer than twice
+            // as many nodes as leaves
+            int capacity = 2 * (count / (LEAF_SIZE / 2) + 1);
+            from = new int[capacity];
+            to = new int[capacity];
+            left = new int[capacity];
+            right = new int[capacity];
+            minX = new double[capacity];
+            minY = new double[capacity];
+            maxX = new double[capacity];
+            maxY = new double[capacity];
+        }
+        for (int i = 0; i < count; i++) {
+            Ball ball = balls.get(i);
+            xs[i] = ball.getCenterX();
+            ys[i] = ball.getCenterY();
+            ids[i] = i;
+        }
+        nodes = 0;
+        if (count > 0) {
+            build(0, count);
+        }
+        builtLeafArea = leafArea();
+    }
+
+    /**
+     * Builds the subtree over a range of centers.
+     *
+     * @param lo the first position of the range
+     * @param hi one past the last position of the range
+     * @return the node index of the subtree
+     */
+    private int build(int lo, int hi) {
+        int node = nodes++;
+        from[node] = lo;
+        to[node] = hi;
+        left[node] = -1;
+        right[node] = -1;
+        fitBox(node);
+        if (hi - lo > LEAF_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            boolean alongX = maxX[node] - minX[node] >= maxY[node] - minY[node];
+            select(lo, hi - 1, mid, alongX);
+            left[node] = build(lo, mid);
+            right[node] = build(mid, hi);
+        }
+        return node;
+    }
+
+    /**
+     * Reorders a range so that the center at position k is the one a full sort would put
+     * there, with no larger center before it and no smaller one after it (quickselect).
+     *
+     * @param lo     the first position of the range
+     * @param hi     the last position of the range, inclusive
+     * @param k      the position to settle
+     * @param alongX true to order by x, false to order by y
+     */
+    private void select(int lo, int hi, int k, boolean alongX) {
+        double[] keys = alongX ? xs : ys;
+        while (lo < hi) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param i a position
+     * @param j another position
+     */
+    private void swap(int i, int j) {
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+
+    /**
+     * Sets a node's box to the bounds of its centers.
+     *
+     * @param node the node index
+     */
+    private void fitBox(int node) {
+        double x0 = Double.POSITIVE_INFINITY;
+        double y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY;
+        double y1 = Double.NEGATIVE_INFINITY;
+        for (int i = from[node]; i < to[node]; i++) {
+            x0 = Math.min(x0, xs[i]);
+            y0 = Math.min(y0, ys[i]);
+            x1 = Math.max(x1, xs[i]);
+            y1 = Math.max(y1, ys[i]);
+        }
+        minX[node] = x0;
+        minY[node] = y0;
+        maxX[node] = x1;
+        maxY[node] = y1;
+    }
+
+    /**
+     * Keeps the shape of the tree and recomputes the boxes from the current ball centers.
+     * Rebuilds instead if balls were added or removed.
+     */
+    public void refit() {
+        if (balls.size() != count) {
+            rebuild();
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            Ball ball = balls.get(ids[i]);
+            xs[i] = ball.getCenterX();
+            ys[i] = ball.getCenterY();
+        }
+        for (int node = nodes - 1; node >= 0; node--) {
+            if (left[node] < 0) {
+                fitBox(node);
+            } else {
+                int a = left[node];
+                int b = right[node];
+                minX[node] = Math.min(minX[a], minX[b]);
+                minY[node] = Math.min(minY[a], minY[b]);
+                maxX[node] = Math.max(maxX[a], maxX[b]);
+                maxY[node] = Math.max(maxY[a], maxY[b]);
+            }
+        }
+    }
+
+    /**
+     * Brings the tree up to date with the balls, refitting it and rebuilding it when the
+     * refitted leaves have grown too loose to prune well. Meant to be called once per frame.
+     */
+    public void update() {
+        refit();
+        if (leafArea() > REBUILD_GROWTH * builtLeafArea) {
+            rebuild();
+        }
+    }
+
+    /**
+     * @return the total area of the leaf boxes, a measure of how well the tree prunes
+     */
+    private double leafArea() {
+        double area = 0;
+        for (int node = 0; node < nodes; node++) {
+            if (left[node] < 0) {
+                area += (maxX[node] - minX[node]) * (maxY[node] - minY[node]);
+            }
+        }
+        return area;
+    }
+
+    // ---------------- Queries ----------------
+
+    /**
+     * Finds the balls whose centers are within a radius of a point.
+     *
+     * @param x      the x-coordinate of the point
+     * @param y      the y-coordinate of the point
+     * @param radius the search radius
+     * @param out    cleared, then filled with the ids found, in no particular order
+     */
+    public void within(double x, double y, double radius, IntList out) {
+        out.clear();
+        if (count == 0) {
+            return;
+        }
+        double limit = radius * radius;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (boxDistanceSquared(node, x, y) > limit) {
+                continue;
+            }
+            if (left[node] < 0) {
+                for (int i = from[node]; i < to[node]; i++) {
+                    double dx = xs[i] - x;
+                    double dy = ys[i] - y;
+                    if (dx * dx + dy * dy <= limit) {
+                        out.add(ids[i]);
+                    }
+                }
+            } else {
+                top = push(top, left[node]);
+                top = push(top, right[node]);
+            }
+        }
+    }
+
+    /**
+     * Finds the k balls with centers nearest to a point. Ties are broken by id.
+     *
+     * @param x   the x-coordinate of the point
+     * @param y   the y-coordinate of the point
+     * @param k   the number of balls wanted
+     * @param out cleared, then filled with the ids found, nearest first
+     */
+    public void nearest(double x, double y, int k, IntList out) {
+        out.clear();
+        int wanted = Math.min(k, count);
+        if (wanted <= 0) {
+            return;
+        }
+        if (heapId.length < wanted) {
+            heapDistance = new double[wanted];
+            heapId = new int[wanted];
+        }
+        heapSize = 0;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (heapSize == wanted && boxDistanceSquared(node, x, y) > heapDistance[0]) {
+                continue;
+            }
+            if (left[node] < 0) {
+                for (int i = from[node]; i < to[node]; i++) {
+                    double dx = xs[i] - x;
+                    double dy = ys[i] - y;
+                    offer(dx * dx + dy * dy, ids[i], wanted);
+                }
+            } else {
+                // push the farther child first so the nearer one is searched first
+                int a = left[node];
+                int b = right[node];
+                if (boxDistanceSquared(a, x, y) < boxDistanceSquared(b, x, y)) {
+                    top = push(top, b);
+                    top = push(top, a);
+                } else {
+                    top = push(top, a);
+                    top = push(top, b);
+                }
+            }
+        }
+
+        // popping the max-heap yields the farthest first; fill the output from the back
+        for (int i = 0; i < heapSize; i++) {
+            out.add(0);
+        }
+        for (int i = heapSize - 1; i >= 0; i--) {
+            out.set(i, heapId[0]);
+            popHeap();
+        }
+    }
+
+    /**
+     * Pushes a node on the traversal stack, growing it if needed.
+     *
+     * @param top  the current stack size
+     * @param node the node to push
+     * @return the new stack size
+     */
+    private int push(int top, int node) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+        }
+        stack[top] = node;
+        return top + 1;
+    }
+
+    /**
+     * @param node a node index
+     * @param x    the x-coordinate of a point
+     * @param y    the y-coordinate of a point
+     * @return the squared distance from the point to the node's box, 0 inside it
+     */
+    private double boxDistanceSquared(int node, double x, double y) {
+        double dx = Math.max(0, Math.max(minX[node] - x, x - maxX[node]));
+        double dy = Math.max(0, Math.max(minY[node] - y, y - maxY[node]));
+        return dx * dx + dy * dy;
+    }
+
+    // ---------------- Heap ----------------
+
+    /**
+     * @param a the squared distance of one entry
+     * @param i the id of that entry
+     * @param b the squared distance of another entry
+     * @param j the id of the other entry
+     * @return true if the first entry is farther, ties broken by larger id
+     */
+    private static boolean farther(double a, int i, double b, int j) {
+        return a > b || (a == b && i > j);
+    }
+
+    /**
+     * Offers a candidate to the bounded heap of the k nearest found so far.
+     *
+     * @param distance the squared distance of the candidate
+     * @param id       the id of the candidate
+     * @param k        the heap bound
+     */
+    private void offer(double distance, int id, int k) {
+        if (heapSize < k) {
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!farther(distance, id, heapDistance[parent], heapId[parent])) {
+                    break;
+                }
+                heapDistance[i] = heapDistance[parent];
+                heapId[i] = heapId[parent];
+                i = parent;
+            }
+            heapDistance[i] = distance;
+            heapId[i] = id;
+        } else if (farther(heapDistance[0], heapId[0], distance, id)) {
+            siftDown(distance, id);
+        }
+    }
+
+    /**
+     * Removes the farthest entry from the heap.
+     */
+    private void popHeap() {
+        heapSize--;
+        if (heapSize > 0) {
+            siftDown(heapDistance[heapSize], heapId[heapSize]);
+        }
+    }
+
+    /**
+     * Replaces the root of the heap with an entry and restores the heap order.
+     *
+     * @param distance the squared distance of the entry
+     * @param id       the id of the entry
+     */
+    private void siftDown(double distance, int id) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize
+                    && farther(heapDistance[child + 1], heapId[child + 1], heapDistance[child], heapId[child])) {
+                child++;
+            }
+            if (!farther(heapDistance[child], heapId[child], distance, id)) {
+                break;
+            }
+            heapDistance[i] = heapDistance[child];
+            heapId[i] = heapId[child];
+            i = child;
+        }
+        heapDistance[i] = distance;
+        heapId[i] = id;
+    }
+}
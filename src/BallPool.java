@@ -0,0 +1,200 @@
+import java.awt.Color;
+
+import biuoop.DrawSurface;
+
+/**
+ * A fixed number of reusable balls for short-lived particles. All balls, with their center
+ * points and velocities, are created up front; spawning a particle takes the next slot of a
+ * ring buffer and overwrites its state in place, so a running effect allocates nothing.
+ *
+ * <p>Slots are used in spawn order. Particles that reach the end of their lifetime leave a
+ * hole that is skipped until the oldest live particle is behind it. When every slot is in
+ * use, spawning recycles the oldest particle even if it is still alive.</p>
+ */
+public class BallPool {
+    private final Ball[] slots;
+    private final int[] age;
+    private final int[] lifetime;
+    private final boolean[] alive;
+    // the window of possibly live slots: from the oldest, length used, in ring order
+    private int oldest;
+    private int used;
+    private int live;
+    private double gravityX;
+    private double gravityY;
+    private Color[] fade;
+
+    /**
+     * Constructs a pool.
+     *
+     * @param capacity the largest number of particles alive at once
+     */
+    public BallPool(int capacity) {
+        this.slots = new Ball[capacity];
+        this.age = new int[capacity];
+        this.lifetime = new int[capacity];
+        this.alive = new boolean[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Ball(0, 0, 1, Color.black, new Velocity(0, 0));
+        }
+    }
+
+    // ---------------- Accessors ----------------
+
+    /**
+     * @return the number of slots
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return the number of live particles
+     */
+    public int getLiveCount() {
+        return live;
+    }
+
+    /**
+     * Sets an acceleration added to the velocity of every live particle each step.
+     *
+     * @param ax the horizontal acceleration
+     * @param ay the vertical acceleration, positive pointing down
+     */
+    public void setGravity(double ax, double ay) {
+        this.gravityX = ax;
+        this.gravityY = ay;
+    }
+
+    /**
+     * Makes particles change color as they age, going through the given colors from spawn
+     * to the end of their life. The spawn color is then only used until the first step.
+     *
+     * @param colors the colors, in order, or null to keep the spawn color
+     */
+    public void setFadeColors(Color... colors) {
+        this.fade = colors;
+    }
+
+    // ---------------- Lifecycle ----------------
+
+    /**
+     * Starts a particle in the next free slot, recycling the oldest particle if the pool is full.
+     *
+     * @param x     the x-coordinate of the center
+     * @param y     the y-coordinate of the center
+     * @param dx    the horizontal velocity
+     * @param dy    the vertical velocity
+     * @param size  the radius
+     * @param color the color
+     * @param steps the number of steps the particle lives
+     * @return the slot of the new particle
+     */
+    public int spawn(double x, double y, double dx, double dy, int size, Color color, int steps) {
+        if (used == slots.length) {
+            kill(oldest);
+            oldest = (oldest + 1) % slots.length;
+            used--;
+        }
+        int slot = (oldest + used) % slots.length;
+        used++;
+        Ball ball = slots[slot];
+        ball.setX(x);
+        ball.setY(y);
+        ball.getVelocity().setDx(dx);
+        ball.getVelocity().setDy(dy);
+        ball.setSize(size);
+        ball.setColor(color);
+        age[slot] = 0;
+        lifetime[slot] = Math.max(1, steps);
+        alive[slot] = true;
+        live++;
+        return slot;
+    }
+
+    /**
+     * Ends a particle before its lifetime is over. Does nothing if the slot is not live.
+     *
+     * @param slot the slot of the particle
+     */
+    public void kill(int slot) {
+        if (alive[slot]) {
+            alive[slot] = false;
+            live--;
+        }
+    }
+
+    /**
+     * Ages every live particle by one step, ends those whose lifetime is over and moves the
+     * rest inside a frame.
+     *
+     * @param frame the rectangle the particles bounce inside
+     */
+    public void step(Rectangle frame) {
+        for (int k = 0; k < used; k++) {
+            int slot = (oldest + k) % slots.length;
+            if (!alive[slot]) {
+                continue;
+            }
+            age[slot]++;
+            if (age[slot] >= lifetime[slot]) {
+                kill(slot);
+                continue;
+            }
+            Ball ball = slots[slot];
+            Velocity velocity = ball.getVelocity();
+            velocity.setDx(velocity.getDx() + gravityX);
+            velocity.setDy(velocity.getDy() + gravityY);
+            ball.moveStepInBox(frame);
+            if (fade != null) {
+                ball.setColor(fade[age[slot] * fade.length / lifetime[slot]]);
+            }
+        }
+        while (used > 0 && !alive[oldest]) {
+            oldest = (oldest + 1) % slots.length;
+            used--;
+        }
+    }
+
+    // ---------------- Access to live particles ----------------
+
+    /**
+     * @param slot a slot
+     * @return true if the slot holds a live particle
+     */
+    public boolean isAlive(int slot) {
+        return alive[slot];
+    }
+
+    /**
+     * Returns the ball of a slot. It is reused for later particles and must not be kept.
+     *
+     * @param slot a slot
+     * @return the ball of the slot
+     */
+    public Ball get(int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * @param slot a live slot
+     * @return how far the particle is through its life, from 0 at spawn to 1 at its end
+     */
+    public double getLifeFraction(int slot) {
+        return (double) age[slot] / lifetime[slot];
+    }
+
+    /**
+     * Draws the live particles, oldest first.
+     *
+     * @param surface the surface to draw on
+     */
+    public void drawOn(DrawSurface surface) {
+        for (int k = 0; k < used; k++) {
+            int slot = (oldest + k) % slots.length;
+            if (alive[slot]) {
+                slots[slot].drawOn(surface);
+            }
+        }
+    }
+}
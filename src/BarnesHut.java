@@ -0,0 +1,537 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gravitational attraction between balls, approximated with a Barnes-Hut quadtree.
+ * Every ball has a mass equal to its size. Each call builds a quadtree over the ball
+ * centers, where every node knows the total mass and center of mass of the balls under it;
+ * a group of balls that looks small from a ball (node side / distance below the opening
+ * angle theta) then pulls it as a single body, making a step O(n log n) instead of O(n^2).
+ * Theta 0 is the exact sum; around 0.5 is the usual trade-off.
+ *
+ * <p>Building the tree and evaluating the forces both run on a fork-join pool owned by the
+ * instance. The tree is kept in flat arrays that are reused between steps.</p>
+ */
+public class BarnesHut {
+    private static final int LEAF_SIZE = 16;
+    private static final int MAX_DEPTH = 32;
+    // ranges at least this large build their children in parallel
+    private static final int PARALLEL_BUILD = 4096;
+    // number of leaves a force task handles without splitting further
+    private static final int FORCE_CHUNK = 64;
+
+    private final double theta;
+    private final double gravity;
+    private final double softening;
+    private final ForkJoinPool pool;
+
+    // ball centers and masses in tree order; ids maps a position back to the ball list
+    private double[] px = new double[0];
+    private double[] py = new double[0];
+    private double[] mass = new double[0];
+    private int[] ids = new int[0];
+    private List<Ball> balls;
+
+    private int capacity;
+    private final AtomicInteger nodes = new AtomicInteger();
+    private volatile boolean overflow;
+    private int[] from = new int[0];
+    private int[] to = new int[0];
+    private int[] children = new int[0];
+    private double[] nodeMass = new double[0];
+    private double[] nodeX = new double[0];
+    private double[] nodeY = new double[0];
+    private double[] nodeMinX = new double[0];
+    private double[] nodeMinY = new double[0];
+    private double[] nodeSide = new double[0];
+    private final IntList leaves = new IntList();
+
+    /**
+     * Constructs a force stage using one thread per core.
+     *
+     * @param theta     the opening angle; 0 is exact, larger is faster and coarser
+     * @param gravity   the gravitational constant, in pixels^3 / (mass * step^2)
+     * @param softening a length added to every distance so close passes stay bounded
+     */
+    public BarnesHut(double theta, double gravity, double softening) {
+        this(theta, gravity, softening, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a force stage.
+     *
+     * @param theta     the opening angle; 0 is exact, larger is faster and coarser
+     * @param gravity   the gravitational constant, in pixels^3 / (mass * step^2)
+     * @param softening a length added to every distance so close passes stay bounded
+     * @param threads   the number of worker threads
+     */
+    public BarnesHut(double theta, double gravity, double softening, int threads) {
+        this.theta = theta;
+        this.gravity = gravity;
+        this.softening = softening;
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+    }
+
+    /**
+     * @return the opening angle
+     */
+    public double getTheta() {
+        return theta;
+    }
+
+    /**
+     * @return the number of tree nodes built by the last step
+     */
+    public int getNodeCount() {
+        return Math.min(nodes.get(), capacity);
+    }
+
+    /**
+     * Adds one step of gravitational acceleration to the velocity of every ball.
+     * Positions are not changed; the balls move as usual afterwards.
+     *
+     * @param ballList the balls, which must not be touched by other threads meanwhile
+     */
+    public void accelerate(List<Ball> ballList) {
+        int n = ballList.size();
+        if (n < 2) {
+            return;
+        }
+        this.balls = ballList;
+        if (px.length < n) {
+            px = new double[n];
+            py = new double[n];
+            mass = new double[n];
+            ids = new int[n];
+        }
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            Ball ball = ballList.get(i);
+            px[i] = ball.getCenterX();
+            py[i] = ball.getCenterY();
+            mass[i] = ball.getSize();
+            ids[i] = i;
+            minX = Math.min(minX, px[i]);
+            minY = Math.min(minY, py[i]);
+            maxX = Math.max(maxX, px[i]);
+            maxY = Math.max(maxY, py[i]);
+        }
+        double side = Math.max(maxX - minX, maxY - minY);
+
+        // a tree that ran out of nodes is still correct but coarse; grow and build it again
+        ensureNodeCapacity(n / 2 + 1);
+        while (true) {
+            nodes.set(1);
+            overflow = false;
+            pool.invoke(new BuildTask(0, 0, n, minX, minY, side, 0));
+            if (!overflow) {
+                break;
+            }
+            ensureNodeCapacity(capacity * 2);
+        }
+        collectLeaves();
+        pool.invoke(new ForceTask(0, leaves.size()));
+        this.balls = null;
+    }
+
+    /**
+     * Shuts down the worker threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // ---------------- Tree ----------------
+
+    /**
+     * Grows the node arrays.
+     *
+     * @param wanted the number of nodes they must hold
+     */
+    private void ensureNodeCapacity(int wanted) {
+        if (capacity >= wanted) {
+            return;
+        }
+        capacity = wanted;
+        from = new int[capacity];
+        to = new int[capacity];
+        children = new int[4 * capacity];
+        nodeMass = new double[capacity];
+        nodeX = new double[capacity];
+        nodeY = new double[capacity];
+        nodeMinX = new double[capacity];
+        nodeMinY = new double[capacity];
+        nodeSide = new double[capacity];
+    }
+
+    /**
+     * Builds the subtree of one node: splits its range of balls into the four quadrants of its
+     * square and builds a child for every non-empty quadrant, in parallel for large ranges.
+     */
+    private final class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int node;
+        private final int lo;
+        private final int hi;
+        private final double minX;
+        private final double minY;
+        private final double side;
+        private final int depth;
+
+        /**
+         * @param node  the node index, already allocated
+         * @param lo    the first ball position of the node
+         * @param hi    one past the last ball position of the node
+         * @param minX  the left edge of the node's square
+         * @param minY  the top edge of the node's square
+         * @param side  the side of the node's square
+         * @param depth the depth of the node
+         */
+        BuildTask(int node, int lo, int hi, double minX, double minY, double side, int depth) {
+            this.node = node;
+            this.lo = lo;
+            this.hi = hi;
+            this.minX = minX;
+            this.minY = minY;
+            this.side = side;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            from[node] = lo;
+            to[node] = hi;
+            nodeMinX[node] = minX;
+            nodeMinY[node] = minY;
+            nodeSide[node] = side;
+            for (int q = 0; q < 4; q++) {
+                children[4 * node + q] = -1;
+            }
+            if (hi - lo <= LEAF_SIZE || depth == MAX_DEPTH) {
+                summarizeLeaf(node);
+                return;
+            }
+
+            double half = side / 2;
+            int middle = partition(lo, hi, minY + half, false);
+            int[] bounds = {lo, partition(lo, middle, minX + half, true), middle,
+                    partition(middle, hi, minX + half, true), hi};
+            BuildTask[] tasks = new BuildTask[4];
+            for (int q = 0; q < 4; q++) {
+                if (bounds[q] == bounds[q + 1]) {
+                    continue;
+                }
+                int child = nodes.getAndIncrement();
+                if (child >= capacity) {
+                    overflow = true;
+                    summarizeLeaf(node);
+                    return;
+                }
+                tasks[q] = new BuildTask(child, bounds[q], bounds[q + 1], minX + (q % 2) * half,
+                        minY + (q / 2) * half, half, depth + 1);
+            }
+            if (hi - lo >= PARALLEL_BUILD) {
+                for (BuildTask task : tasks) {
+                    if (task != null) {
+                        task.fork();
+                    }
+                }
+                for (BuildTask task : tasks) {
+                    if (task != null) {
+                        task.join();
+                    }
+                }
+            } else {
+                for (BuildTask task : tasks) {
+                    if (task != null) {
+                        task.compute();
+                    }
+                }
+            }
+
+            double total = 0;
+            double x = 0;
+            double y = 0;
+            for (int q = 0; q < 4; q++) {
+                if (tasks[q] != null) {
+                    int child = tasks[q].node;
+                    children[4 * node + q] = child;
+                    total += nodeMass[child];
+                    x += nodeMass[child] * nodeX[child];
+                    y += nodeMass[child] * nodeY[child];
+                }
+            }
+            setSummary(node, total, x, y);
+        }
+    }
+
+    /**
+     * Reorders a range of balls so that those below a split line come first.
+     *
+     * @param lo     the first position of the range
+     * @param hi     one past the last position of the range
+     * @param split  the split coordinate
+     * @param alongX true to compare x-coordinates, false to compare y-coordinates
+     * @return the first position at or past the split line
+     */
+    private int partition(int lo, int hi, double split, boolean alongX) {
+        double[] keys = alongX ? px : py;
+        int i = lo;
+        int j = hi - 1;
+        while (i <= j) {
+            if (keys[i] < split) {
+                i++;
+            } else {
+                swap(i, j);
+                j--;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * @param i a ball position
+     * @param j another ball position
+     */
+    private void swap(int i, int j) {
+        double x = px[i];
+        px[i] = px[j];
+        px[j] = x;
+        double y = py[i];
+        py[i] = py[j];
+        py[j] = y;
+        double m = mass[i];
+        mass[i] = mass[j];
+        mass[j] = m;
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+
+    /**
+     * Sums the mass and center of mass of the balls of a leaf.
+     *
+     * @param node the leaf index
+     */
+    private void summarizeLeaf(int node) {
+        double total = 0;
+        double x = 0;
+        double y = 0;
+        for (int i = from[node]; i < to[node]; i++) {
+            total += mass[i];
+            x += mass[i] * px[i];
+            y += mass[i] * py[i];
+        }
+        setSummary(node, total, x, y);
+    }
+
+    /**
+     * @param node  the node index
+     * @param total the total mass under the node
+     * @param x     the mass-weighted sum of x-coordinates
+     * @param y     the mass-weighted sum of y-coordinates
+     */
+    private void setSummary(int node, double total, double x, double y) {
+        nodeMass[node] = total;
+        if (total > 0) {
+            nodeX[node] = x / total;
+            nodeY[node] = y / total;
+        } else {
+            nodeX[node] = nodeMinX[node] + nodeSide[node] / 2;
+            nodeY[node] = nodeMinY[node] + nodeSide[node] / 2;
+        }
+    }
+
+    // ---------------- Forces ----------------
+
+    /**
+     * @param node a node index
+     * @return true if the node has no children
+     */
+    private boolean isLeaf(int node) {
+        int base = 4 * node;
+        return children[base] < 0 && children[base + 1] < 0 && children[base + 2] < 0 && children[base + 3] < 0;
+    }
+
+    /**
+     * Collects the leaves of the tree, in ball order.
+     */
+    private void collectLeaves() {
+        leaves.clear();
+        int[] stack = new int[3 * MAX_DEPTH + 4];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (isLeaf(node)) {
+                leaves.add(node);
+                continue;
+            }
+            for (int q = 3; q >= 0; q--) {
+                int child = children[4 * node + q];
+                if (child >= 0) {
+                    stack[top++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates the forces on the balls of a range of leaves, splitting the range in halves
+     * until it is small.
+     */
+    private final class ForceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int lo;
+        private final int hi;
+
+        /**
+         * @param lo the first leaf, as a position in the leaf list
+         * @param hi one past the last leaf
+         */
+        ForceTask(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > FORCE_CHUNK) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ForceTask(lo, mid), new ForceTask(mid, hi));
+                return;
+            }
+            int[] stack = new int[3 * MAX_DEPTH + 4];
+            Interactions interactions = new Interactions();
+            for (int k = lo; k < hi; k++) {
+                accelerateLeaf(leaves.get(k), stack, interactions);
+            }
+        }
+    }
+
+    /**
+     * The bodies pulling on the balls of one leaf: single balls and whole far-away nodes.
+     */
+    private static final class Interactions {
+        private double[] mass = new double[64];
+        private double[] x = new double[64];
+        private double[] y = new double[64];
+        private int size;
+
+        /**
+         * @param m  the mass of the body
+         * @param bx the x-coordinate of the body
+         * @param by the y-coordinate of the body
+         */
+        void add(double m, double bx, double by) {
+            if (size == mass.length) {
+                mass = Arrays.copyOf(mass, size * 2);
+                x = Arrays.copyOf(x, size * 2);
+                y = Arrays.copyOf(y, size * 2);
+            }
+            mass[size] = m;
+            x[size] = bx;
+            y[size] = by;
+            size++;
+        }
+    }
+
+    /**
+     * Walks the tree once for a whole leaf, listing what pulls on its balls, then adds the
+     * resulting acceleration to each of them. A node is taken as a single body when it looks
+     * small from every point of the leaf's bounding box, which is at least as accurate as
+     * deciding ball by ball and walks the tree once per leaf instead of once per ball.
+     *
+     * @param leaf         the leaf index
+     * @param stack        scratch space for the walk
+     * @param interactions scratch list of bodies
+     */
+    private void accelerateLeaf(int leaf, int[] stack, Interactions interactions) {
+        int lo = from[leaf];
+        int hi = to[leaf];
+        double boxMinX = Double.POSITIVE_INFINITY;
+        double boxMinY = Double.POSITIVE_INFINITY;
+        double boxMaxX = Double.NEGATIVE_INFINITY;
+        double boxMaxY = Double.NEGATIVE_INFINITY;
+        for (int i = lo; i < hi; i++) {
+            boxMinX = Math.min(boxMinX, px[i]);
+            boxMinY = Math.min(boxMinY, py[i]);
+            boxMaxX = Math.max(boxMaxX, px[i]);
+            boxMaxY = Math.max(boxMaxY, py[i]);
+        }
+
+        double theta2 = theta * theta;
+        interactions.size = 0;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (node == leaf) {
+                continue;
+            }
+            boolean ancestor = from[node] <= lo && to[node] >= hi;
+            if (!ancestor) {
+                double dx = Math.max(0, Math.max(boxMinX - nodeX[node], nodeX[node] - boxMaxX));
+                double dy = Math.max(0, Math.max(boxMinY - nodeY[node], nodeY[node] - boxMaxY));
+                double side = nodeSide[node];
+                if (side * side < theta2 * (dx * dx + dy * dy)) {
+                    interactions.add(nodeMass[node], nodeX[node], nodeY[node]);
+                    continue;
+                }
+                if (isLeaf(node)) {
+                    for (int j = from[node]; j < to[node]; j++) {
+                        interactions.add(mass[j], px[j], py[j]);
+                    }
+                    continue;
+                }
+            }
+            for (int q = 0; q < 4; q++) {
+                int child = children[4 * node + q];
+                if (child >= 0) {
+                    stack[top++] = child;
+                }
+            }
+        }
+
+        double eps2 = softening * softening;
+        double[] bodyMass = interactions.mass;
+        double[] bodyX = interactions.x;
+        double[] bodyY = interactions.y;
+        int bodies = interactions.size;
+        for (int i = lo; i < hi; i++) {
+            double x = px[i];
+            double y = py[i];
+            double ax = 0;
+            double ay = 0;
+            for (int j = 0; j < bodies; j++) {
+                double dx = bodyX[j] - x;
+                double dy = bodyY[j] - y;
+                double inverse = 1 / Math.sqrt(dx * dx + dy * dy + eps2);
+                double pull = bodyMass[j] * inverse * inverse * inverse;
+                ax += pull * dx;
+                ay += pull * dy;
+            }
+            // the other balls of the same leaf
+            for (int j = lo; j < hi; j++) {
+                if (j == i) {
+                    continue;
+                }
+                double dx = px[j] - x;
+                double dy = py[j] - y;
+                double inverse = 1 / Math.sqrt(dx * dx + dy * dy + eps2);
+                double pull = mass[j] * inverse * inverse * inverse;
+                ax += pull * dx;
+                ay += pull * dy;
+            }
+            Velocity velocity = balls.get(ids[i]).getVelocity();
+            velocity.setDx(velocity.getDx() + gravity * ax);
+            velocity.setDy(velocity.getDy() + gravity * ay);
+        }
+    }
+}
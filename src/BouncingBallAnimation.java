@@ -1,6 +1,6 @@
-import biuoop.DrawSurface;
+import java.util.List;
+
 import biuoop.GUI;
-import biuoop.Sleeper;
 
 /**
  * This class runs a simple animation of a single ball bouncing around the screen.
@@ -11,26 +11,20 @@ public class BouncingBallAnimation {
     /**
      * Starts the bouncing ball animation.
      * The ball is created at a given starting point with a specified velocity.
-     * The animation runs in a loop, moving and drawing the ball on each frame.
+     * The ball moves every 50 milliseconds and is drawn at display rate in between,
+     * see {@link PipelinedRenderer}.
      *
      * @param start the starting point of the ball
      * @param dx the horizontal velocity of the ball
      * @param dy the vertical velocity of the ball
      */
     private static void drawAnimation0(Point start, double dx, double dy) {
-        GUI gui = new GUI("DVD WannaBe", 800, 600);
-        Sleeper sleeper = new Sleeper();
+        GUI gui = new GUI("DVD WannaBe", World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
         Ball ball = new Ball(start.getX(), start.getY(), 30, java.awt.Color.BLACK);
         ball.setVelocity(dx, dy);
         ball.validateSpawn(gui.getDrawSurface());
 
-        while (true) {
-            ball.moveOneStep();
-            DrawSurface d = gui.getDrawSurface();
-            ball.drawOn(d);
-            gui.show(d);
-            sleeper.sleepFor(50);
-        }
+        new PipelinedRenderer(gui, List.of(ball), ball::moveOneStep, 50).run();
     }
 
     /**
@@ -0,0 +1,192 @@
+import biuoop.DrawSurface;
+import biuoop.KeyboardSensor;
+
+/**
+ * A window-sized view into a {@link World} that may be much larger than the window.
+ * Drawing only visits the balls and obstacles the world's spatial index reports inside the
+ * view, so its cost follows what is visible rather than the size of the world.
+ */
+public class Camera {
+    private final Rectangle worldBounds;
+    private final int width;
+    private final int height;
+    private double x;
+    private double y;
+    private final IntList visible = new IntList();
+
+    /**
+     * Constructs a camera looking at the top-left corner of the world.
+     *
+     * @param worldBounds the area the camera may move in
+     * @param width       the width of the view, usually the window width
+     * @param height      the height of the view, usually the window height
+     */
+    public Camera(Rectangle worldBounds, int width, int height) {
+        this.worldBounds = worldBounds;
+        this.width = width;
+        this.height = height;
+        moveTo(worldBounds.getMin().getX(), worldBounds.getMin().getY());
+    }
+
+    /**
+     * @return the world x-coordinate of the left edge of the view
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * @return the world y-coordinate of the top edge of the view
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * @return the width of the view
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the view
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Moves the top-left corner of the view, keeping the view inside the world.
+     *
+     * @param newX the new left edge, in world coordinates
+     * @param newY the new top edge, in world coordinates
+     */
+    public void moveTo(double newX, double newY) {
+        double minX = worldBounds.getMin().getX();
+        double minY = worldBounds.getMin().getY();
+        this.x = Math.max(minX, Math.min(newX, minX + worldBounds.getWidth() - width));
+        this.y = Math.max(minY, Math.min(newY, minY + worldBounds.getHeight() - height));
+    }
+
+    /**
+     * Moves the view by an offset.
+     *
+     * @param dx the horizontal offset
+     * @param dy the vertical offset
+     */
+    public void moveBy(double dx, double dy) {
+        moveTo(x + dx, y + dy);
+    }
+
+    /**
+     * Centers the view on a point.
+     *
+     * @param point the point to look at
+     */
+    public void centerOn(Point point) {
+        moveTo(point.getX() - width / 2.0, point.getY() - height / 2.0);
+    }
+
+    /**
+     * Moves the view with the arrow keys.
+     *
+     * @param keyboard the keyboard to read
+     * @param speed    the distance moved per call while a key is held
+     */
+    public void follow(KeyboardSensor keyboard, double speed) {
+        double dx = 0;
+        double dy = 0;
+        if (keyboard.isPressed(KeyboardSensor.LEFT_KEY)) {
+            dx -= speed;
+        }
+        if (keyboard.isPressed(KeyboardSensor.RIGHT_KEY)) {
+            dx += speed;
+        }
+        if (keyboard.isPressed(KeyboardSensor.UP_KEY)) {
+            dy -= speed;
+        }
+        if (keyboard.isPressed(KeyboardSensor.DOWN_KEY)) {
+            dy += speed;
+        }
+        moveBy(dx, dy);
+    }
+
+    /**
+     * Draws the visible obstacles, then the visible walls, then the visible balls, each in list order.
+     * Uses the world's spatial index when it has one, and a full scan otherwise.
+     *
+     * @param world   the world to draw
+     * @param surface the surface to draw on
+     * @return the number of balls drawn
+     */
+    public int drawOn(World world, DrawSurface surface) {
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        UniformGrid obstacleIndex = world.getObstacleIndex();
+        if (obstacleIndex != null) {
+            obstacleIndex.query(x, y, x + width, y + height, visible);
+            visible.sort();
+            for (int k = 0; k < visible.size(); k++) {
+                drawIfVisible(world.getObstacles().get(visible.get(k)), surface);
+            }
+        } else {
+            for (Rectangle obstacle : world.getObstacles()) {
+                drawIfVisible(obstacle, surface);
+            }
+        }
+
+        if (world.getWalls() != null) {
+            world.getWalls().drawOn(surface, x, y);
+        }
+
+        int drawn = 0;
+        UniformGrid ballIndex = world.getBallIndex();
+        if (ballIndex != null) {
+            int pad = world.getMaxBallSize();
+            ballIndex.query(x - pad, y - pad, x + width + pad, y + height + pad, visible);
+            visible.sort();
+            for (int k = 0; k < visible.size(); k++) {
+                drawn += drawIfVisible(world.getBalls().get(visible.get(k)), surface);
+            }
+        } else {
+            for (Ball ball : world.getBalls()) {
+                drawn += drawIfVisible(ball, surface);
+            }
+        }
+        if (event.shouldCommit()) {
+            event.set("Camera", world.getBalls().size(), drawn);
+            event.commit();
+        }
+        return drawn;
+    }
+
+    /**
+     * @param ball    the ball to draw
+     * @param surface the surface to draw on
+     * @return 1 if the ball overlaps the view and was drawn, 0 otherwise
+     */
+    private int drawIfVisible(Ball ball, DrawSurface surface) {
+        int r = ball.getSize();
+        if (ball.getCenterX() + r < x || ball.getCenterX() - r > x + width
+                || ball.getCenterY() + r < y || ball.getCenterY() - r > y + height) {
+            return 0;
+        }
+        ball.drawOn(surface, x, y);
+        return 1;
+    }
+
+    /**
+     * @param rectangle the rectangle to draw
+     * @param surface   the surface to draw on
+     */
+    private void drawIfVisible(Rectangle rectangle, DrawSurface surface) {
+        double minX = rectangle.getMin().getX();
+        double minY = rectangle.getMin().getY();
+        if (minX + rectangle.getWidth() < x || minX > x + width
+                || minY + rectangle.getHeight() < y || minY > y + height) {
+            return;
+        }
+        rectangle.drawOn(surface, x, y);
+    }
+}
@@ -0,0 +1,86 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for one ball pushed out of one obstacle by
+ * {@link Ball#bounceOff(Rectangle, Rectangle)}, with the number of push-out iterations it took.
+ * There can be thousands per step, so it is off unless a recording enables it, e.g. with
+ * {@code physics.jfc}.
+ */
+@Name("balls.Collision")
+@Label("Obstacle Collision")
+@Category({"Bouncing Balls"})
+@Description("A ball pushed out of an obstacle")
+@Enabled(false)
+@StackTrace(false)
+public class CollisionEvent extends Event {
+    @Label("Ball X")
+    private double ballX;
+
+    @Label("Ball Y")
+    private double ballY;
+
+    @Label("Ball Size")
+    private int ballSize;
+
+    @Label("Obstacle X")
+    private double obstacleX;
+
+    @Label("Obstacle Y")
+    private double obstacleY;
+
+    @Label("Obstacle Width")
+    private double obstacleWidth;
+
+    @Label("Obstacle Height")
+    private double obstacleHeight;
+
+    @Label("Iterations")
+    @Description("Passes of the push-out loop")
+    private int iterations;
+
+    @Label("Stuck")
+    @Description("The loop stopped with the ball still inside the obstacle")
+    private boolean stuck;
+
+    /**
+     * Fills in the ball, after it was pushed out.
+     *
+     * @param x    the x-coordinate of the ball's center
+     * @param y    the y-coordinate of the ball's center
+     * @param size the ball's radius
+     */
+    public void setBall(double x, double y, int size) {
+        this.ballX = x;
+        this.ballY = y;
+        this.ballSize = size;
+    }
+
+    /**
+     * Fills in the obstacle.
+     *
+     * @param obstacle the obstacle the ball hit
+     */
+    public void setObstacle(Rectangle obstacle) {
+        this.obstacleX = obstacle.getMin().getX();
+        this.obstacleY = obstacle.getMin().getY();
+        this.obstacleWidth = obstacle.getWidth();
+        this.obstacleHeight = obstacle.getHeight();
+    }
+
+    /**
+     * Fills in how the push-out loop ended.
+     *
+     * @param count  the number of passes
+     * @param gaveUp true if it stopped with the ball still inside the obstacle
+     */
+    public void setIterations(int count, boolean gaveUp) {
+        this.iterations = count;
+        this.stuck = gaveUp;
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A lock-free queue of {@link WorldCommand}s. Any number of threads may submit commands;
+ * the thread that steps the world drains them at the start of each step. Commands from one
+ * thread are applied in the order they were submitted.
+ */
+public class CommandQueue {
+    /**
+     * Default number of commands applied per step.
+     */
+    public static final int DEFAULT_BATCH = 10_000;
+
+    private final Queue<WorldCommand> pending = new ConcurrentLinkedQueue<>();
+    private final int batch;
+
+    /**
+     * Constructs a queue applying at most {@link #DEFAULT_BATCH} commands per step.
+     */
+    public CommandQueue() {
+        this(DEFAULT_BATCH);
+    }
+
+    /**
+     * Constructs a queue.
+     *
+     * @param batch the largest number of commands applied in one step; the rest wait for the
+     *              next step, so a flood of commands cannot stall the simulation
+     */
+    public CommandQueue(int batch) {
+        this.batch = batch;
+    }
+
+    /**
+     * Queues a command. Safe to call from any thread; never blocks.
+     *
+     * @param command the command
+     */
+    public void submit(WorldCommand command) {
+        pending.add(command);
+    }
+
+    /**
+     * @return true if no command is waiting
+     */
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Applies waiting commands, oldest first, up to the batch size. Must only be called by the
+     * thread that steps the world.
+     *
+     * @param world the world to change
+     * @return the number of commands applied
+     */
+    public int drain(World world) {
+        int applied = 0;
+        while (applied < batch) {
+            WorldCommand command = pending.poll();
+            if (command == null) {
+                break;
+            }
+            command.apply(world);
+            applied++;
+        }
+        return applied;
+    }
+}
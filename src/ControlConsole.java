@@ -0,0 +1,107 @@
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads text commands, one per line, and forwards them to a running {@link World} through its
+ * {@link CommandQueue}. Meant to run on its own thread, reading the standard input.
+ *
+ * <p>Commands: {@code spawn x y size angle speed} (answers with a ball number),
+ * {@code remove ball}, {@code velocity ball dx dy} and {@code move obstacle x y}.
+ * Ball numbers refer to balls spawned by this console.</p>
+ */
+public class ControlConsole implements Runnable {
+    private final World world;
+    private final InputStream in;
+    private final PrintStream out;
+    // balls spawned from this console; only touched by the console thread
+    private final List<Ball> spawned = new ArrayList<>();
+
+    /**
+     * Constructs a console.
+     *
+     * @param world the world to control
+     * @param in    where commands are read from
+     * @param out   where answers and errors are written
+     */
+    public ControlConsole(World world, InputStream in, PrintStream out) {
+        this.world = world;
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Starts a console on the standard input, on a daemon thread.
+     *
+     * @param world the world to control
+     */
+    public static void startOnStandardInput(World world) {
+        Thread thread = new Thread(new ControlConsole(world, System.in, System.out), "control-console");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                String answer = execute(line.trim().split("\\s+"));
+                if (answer != null) {
+                    out.println(answer);
+                }
+                line = reader.readLine();
+            }
+        } catch (IOException e) {
+            out.println("console closed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses one command and submits it.
+     *
+     * @param words the words of the command
+     * @return an answer to print, or null
+     */
+    private String execute(String[] words) {
+        try {
+            switch (words[0]) {
+                case "spawn":
+                    Ball ball = new Ball(Double.parseDouble(words[1]), Double.parseDouble(words[2]),
+                            Integer.parseInt(words[3]), Color.magenta, Double.parseDouble(words[4]),
+                            Double.parseDouble(words[5]));
+                    spawned.add(ball);
+                    world.getCommands().submit(WorldCommand.spawn(ball));
+                    return "ball " + (spawned.size() - 1);
+                case "remove":
+                    world.getCommands().submit(WorldCommand.remove(spawned.get(Integer.parseInt(words[1]))));
+                    return null;
+                case "velocity":
+                    world.getCommands().submit(WorldCommand.setVelocity(spawned.get(Integer.parseInt(words[1])),
+                            Double.parseDouble(words[2]), Double.parseDouble(words[3])));
+                    return null;
+                case "move":
+                    int obstacle = Integer.parseInt(words[1]);
+                    if (obstacle < 0 || obstacle >= world.getObstacles().size()) {
+                        return "no obstacle " + obstacle;
+                    }
+                    world.getCommands().submit(WorldCommand.moveObstacle(obstacle, Double.parseDouble(words[2]),
+                            Double.parseDouble(words[3])));
+                    return null;
+                case "":
+                    return null;
+                default:
+                    return "unknown command: " + words[0];
+            }
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return "bad command: " + String.join(" ", words);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Draws very many balls at a bounded cost. The screen is cut into small square blocks. One
+ * pass over the balls adds every ball's area and area-weighted color to the block holding
+ * its center. Where the balls of a block would cover it more than a threshold number of
+ * times, the block is filled with one color; only the balls of the other blocks are drawn
+ * one by one, with a {@link TileRasterizer}. Below the threshold everywhere, the picture is
+ * exactly the rasterizer's.
+ *
+ * <p>Filled blocks come first, then the obstacles, then the balls drawn one by one, so a
+ * single ball near a dense region stays visible over it.</p>
+ */
+public class DensityRenderer {
+    /**
+     * Default side of a block, in pixels.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 4;
+    /**
+     * Default coverage above which a block is filled instead of drawn ball by ball.
+     */
+    public static final double DEFAULT_THRESHOLD = 1.5;
+
+    /**
+     * How a dense block is colored.
+     */
+    public enum Shading {
+        /**
+         * The average color of the block's balls, weighted by their area.
+         */
+        COLOR,
+        /**
+         * A black-red-yellow-white ramp over the logarithm of the coverage.
+         */
+        HEAT
+    }
+
+    private final TileRasterizer rasterizer;
+    private final int blockSize;
+    private final int columns;
+    private final int rows;
+    private double threshold = DEFAULT_THRESHOLD;
+    private Shading shading = Shading.COLOR;
+
+    // per block: covered area and area-weighted color sums
+    private final double[] area;
+    private final double[] red;
+    private final double[] green;
+    private final double[] blue;
+    // the block of each ball in the last draw, so the second pass does not recompute it
+    private int[] ballBlock = new int[0];
+    private final List<Ball> sparse = new ArrayList<>();
+    private int denseBlocks;
+
+    /**
+     * Constructs a renderer.
+     *
+     * @param rasterizer draws the balls of sparse blocks; sets the size of the framebuffers
+     * @param blockSize  the side of a block, in pixels
+     */
+    public DensityRenderer(TileRasterizer rasterizer, int blockSize) {
+        this.rasterizer = rasterizer;
+        this.blockSize = blockSize;
+        this.columns = (rasterizer.getWidth() + blockSize - 1) / blockSize;
+        this.rows = (rasterizer.getHeight() + blockSize - 1) / blockSize;
+        this.area = new double[columns * rows];
+        this.red = new double[columns * rows];
+        this.green = new double[columns * rows];
+        this.blue = new double[columns * rows];
+    }
+
+    /**
+     * Sets the coverage above which a block is filled: 1 means the balls centered in the block
+     * have, together, the area of the block.
+     *
+     * @param coverage the threshold
+     */
+    public void setThreshold(double coverage) {
+        this.threshold = coverage;
+    }
+
+    /**
+     * Sets how dense blocks are colored. Defaults to {@link Shading#COLOR}.
+     *
+     * @param mode the shading
+     */
+    public void setShading(Shading mode) {
+        this.shading = mode;
+    }
+
+    /**
+     * @return the number of blocks filled by the last draw
+     */
+    public int getDenseBlocks() {
+        return denseBlocks;
+    }
+
+    /**
+     * Draws dense blocks, obstacles and then the balls of sparse blocks, over what the
+     * framebuffer already holds.
+     *
+     * @param target    the framebuffer
+     * @param obstacles the obstacles
+     * @param balls     the balls
+     * @param viewX     the world x-coordinate of the left edge of the framebuffer
+     * @param viewY     the world y-coordinate of the top edge of the framebuffer
+     * @return the number of balls drawn one by one
+     */
+    public int draw(Framebuffer target, List<Rectangle> obstacles, List<Ball> balls, double viewX, double viewY) {
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        Arrays.fill(area, 0);
+        Arrays.fill(red, 0);
+        Arrays.fill(green, 0);
+        Arrays.fill(blue, 0);
+        if (ballBlock.length < balls.size()) {
+            ballBlock = new int[balls.size()];
+        }
+        for (int i = 0; i < balls.size(); i++) {
+            Ball ball = balls.get(i);
+            int block = blockOf(ball, viewX, viewY);
+            ballBlock[i] = block;
+            if (block < 0) {
+                continue;
+            }
+            double a = Math.PI * ball.getSize() * ball.getSize();
+            int rgb = ball.getColor().getRGB();
+            area[block] += a;
+            red[block] += a * ((rgb >> 16) & 0xFF);
+            green[block] += a * ((rgb >> 8) & 0xFF);
+            blue[block] += a * (rgb & 0xFF);
+        }
+
+        double limit = threshold * blockSize * blockSize;
+        double maxArea = 0;
+        for (double a : area) {
+            maxArea = Math.max(maxArea, a);
+        }
+        denseBlocks = 0;
+        for (int block = 0; block < area.length; block++) {
+            if (area[block] > limit) {
+                fillBlock(target, block, color(block, maxArea));
+                denseBlocks++;
+            }
+        }
+
+        sparse.clear();
+        for (int i = 0; i < balls.size(); i++) {
+            int block = ballBlock[i];
+            // balls centered off screen may still reach into it
+            if (block < 0 || area[block] <= limit) {
+                sparse.add(balls.get(i));
+            }
+        }
+        rasterizer.draw(target, obstacles, sparse, viewX, viewY);
+        if (event.shouldCommit()) {
+            event.set("DensityRenderer", balls.size(), sparse.size());
+            event.commit();
+        }
+        return sparse.size();
+    }
+
+    /**
+     * @param ball  a ball
+     * @param viewX the world x-coordinate of the left edge of the screen
+     * @param viewY the world y-coordinate of the top edge of the screen
+     * @return the block holding the ball's center, or -1 if the center is off screen
+     */
+    private int blockOf(Ball ball, double viewX, double viewY) {
+        int x = (int) (ball.getCenterX() - viewX);
+        int y = (int) (ball.getCenterY() - viewY);
+        if (x < 0 || y < 0 || x >= rasterizer.getWidth() || y >= rasterizer.getHeight()) {
+            return -1;
+        }
+        return (y / blockSize) * columns + x / blockSize;
+    }
+
+    /**
+     * @param block   a dense block
+     * @param maxArea the largest covered area of any block
+     * @return the block's color as 0xRRGGBB
+     */
+    private int color(int block, double maxArea) {
+        if (shading == Shading.COLOR) {
+            return ((int) (red[block] / area[block]) << 16) | ((int) (green[block] / area[block]) << 8)
+                    | (int) (blue[block] / area[block]);
+        }
+        double t = Math.log1p(area[block]) / Math.log1p(maxArea);
+        int r = (int) (255 * Math.min(1, t * 3));
+        int g = (int) (255 * Math.max(0, Math.min(1, t * 3 - 1)));
+        int b = (int) (255 * Math.max(0, Math.min(1, t * 3 - 2)));
+        return (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Fills one block of the framebuffer.
+     *
+     * @param target the framebuffer
+     * @param block  the block
+     * @param rgb    the color
+     */
+    private void fillBlock(Framebuffer target, int block, int rgb) {
+        int width = target.getWidth();
+        int minX = (block % columns) * blockSize;
+        int minY = (block / columns) * blockSize;
+        int maxX = Math.min(width, minX + blockSize);
+        int maxY = Math.min(target.getHeight(), minY + blockSize);
+        int[] pixels = target.getPixels();
+        for (int y = minY; y < maxY; y++) {
+            Arrays.fill(pixels, y * width + minX, y * width + maxX, rgb);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+import java.awt.Color;
+import java.util.List;
+
+import biuoop.DrawSurface;
+
+/**
+ * Packed balls with 64-bit coordinates. Produces the same trajectories as stepping
+ * the original {@link Ball} objects and serves as the reference for {@link FloatPackedBalls}.
+ */
+public class DoublePackedBalls implements PackedBalls {
+    private double[] x;
+    private double[] y;
+    private double[] dx;
+    private double[] dy;
+    private int[] size;
+    private Color[] color;
+    private int[] ids;
+    private final int[] indexes;
+    private final IntList nearby = new IntList();
+
+    /**
+     * Packs a copy of the given balls.
+     *
+     * @param balls the balls to copy
+     */
+    public DoublePackedBalls(List<Ball> balls) {
+        int n = balls.size();
+        this.x = new double[n];
+        this.y = new double[n];
+        this.dx = new double[n];
+        this.dy = new double[n];
+        this.size = new int[n];
+        this.color = new Color[n];
+        this.ids = new int[n];
+        this.indexes = new int[n];
+        for (int i = 0; i < n; i++) {
+            Ball ball = balls.get(i);
+            Point center = ball.getCenter();
+            this.x[i] = center.getX();
+            this.y[i] = center.getY();
+            this.dx[i] = ball.getVelocity().getDx();
+            this.dy[i] = ball.getVelocity().getDy();
+            this.size[i] = ball.getSize();
+            this.color[i] = ball.getColor();
+            this.ids[i] = i;
+            this.indexes[i] = i;
+        }
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return Precision.DOUBLE;
+    }
+
+    @Override
+    public int size() {
+        return x.length;
+    }
+
+    @Override
+    public double getX(int i) {
+        return x[i];
+    }
+
+    @Override
+    public double getY(int i) {
+        return y[i];
+    }
+
+    @Override
+    public double getDx(int i) {
+        return dx[i];
+    }
+
+    @Override
+    public double getDy(int i) {
+        return dy[i];
+    }
+
+    @Override
+    public int getSize(int i) {
+        return size[i];
+    }
+
+    @Override
+    public void stepInBox(Rectangle frame) {
+        double minX = frame.getMin().getX();
+        double minY = frame.getMin().getY();
+        double maxX = minX + frame.getWidth();
+        double maxY = minY + frame.getHeight();
+        for (int i = 0; i < x.length; i++) {
+            // same rules as fixStepInBox, on locals so each field is loaded and stored once
+            double r = size[i];
+            double cx = x[i] + dx[i];
+            double cy = y[i] + dy[i];
+            double vx = dx[i];
+            double vy = dy[i];
+            double rightDistance = maxX - (cx + r);
+            double leftDistance = cx - r - minX;
+            double topDistance = cy - r - minY;
+            double botDistance = maxY - (cy + r);
+            if (rightDistance <= 0) {
+                cx += 2 * rightDistance;
+                vx = -vx;
+            }
+            if (leftDistance <= 0) {
+                cx += -2 * leftDistance;
+                vx = -vx;
+            }
+            if (topDistance <= 0) {
+                cy += -2 * topDistance;
+                vy = -vy;
+            }
+            if (botDistance <= 0) {
+                cy += 2 * botDistance;
+                vy = -vy;
+            }
+            x[i] = cx;
+            y[i] = cy;
+            dx[i] = vx;
+            dy[i] = vy;
+        }
+    }
+
+    @Override
+    public void stepInBoxAndCollide(Rectangle outerFrame, Rectangle insideFrame) {
+        double minX = outerFrame.getMin().getX();
+        double minY = outerFrame.getMin().getY();
+        double maxX = minX + outerFrame.getWidth();
+        double maxY = minY + outerFrame.getHeight();
+
+        for (int i = 0; i < x.length; i++) {
+            x[i] += dx[i];
+            y[i] += dy[i];
+            fixStepInBox(i, minX, minY, maxX, maxY);
+            bounceOff(i, outerFrame, insideFrame);
+        }
+    }
+
+    @Override
+    public int stepAndBounce(Rectangle frame, List<Rectangle> obstacles, UniformGrid obstacleIndex) {
+        double minX = frame.getMin().getX();
+        double minY = frame.getMin().getY();
+        double maxX = minX + frame.getWidth();
+        double maxY = minY + frame.getHeight();
+        int hits = 0;
+        for (int i = 0; i < x.length; i++) {
+            x[i] += dx[i];
+            y[i] += dy[i];
+            fixStepInBox(i, minX, minY, maxX, maxY);
+            // the search box of World.step(): pushing out of one obstacle moves a ball about its radius
+            double reach = 2.0 * size[i];
+            obstacleIndex.query(x[i] - reach, y[i] - reach, x[i] + reach, y[i] + reach, nearby);
+            nearby.sort();
+            for (int k = 0; k < nearby.size(); k++) {
+                if (bounceOff(i, frame, obstacles.get(nearby.get(k)))) {
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    @Override
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    @Override
+    public int indexOf(int id) {
+        return indexes[id];
+    }
+
+    @Override
+    public void reorder(int[] order) {
+        int n = x.length;
+        double[] newX = new double[n];
+        double[] newY = new double[n];
+        double[] newDx = new double[n];
+        double[] newDy = new double[n];
+        int[] newSize = new int[n];
+        Color[] newColor = new Color[n];
+        int[] newIds = new int[n];
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            newX[k] = x[i];
+            newY[k] = y[i];
+            newDx[k] = dx[i];
+            newDy[k] = dy[i];
+            newSize[k] = size[i];
+            newColor[k] = color[i];
+            newIds[k] = ids[i];
+            indexes[ids[i]] = k;
+        }
+        x = newX;
+        y = newY;
+        dx = newDx;
+        dy = newDy;
+        size = newSize;
+        color = newColor;
+        ids = newIds;
+    }
+
+    @Override
+    public void drawOn(DrawSurface surface) {
+        for (int i = 0; i < x.length; i++) {
+            surface.setColor(color[i]);
+            surface.fillCircle((int) x[i], (int) y[i], size[i]);
+        }
+    }
+
+    /**
+     * Pushes ball i out of an obstacle it overlaps, see {@link Ball#bounceOff(Rectangle, Rectangle)}.
+     *
+     * @param i        the ball index
+     * @param frame    the frame the ball is kept inside
+     * @param obstacle the obstacle
+     * @return true if the ball touched the obstacle
+     */
+    private boolean bounceOff(int i, Rectangle frame, Rectangle obstacle) {
+        double minX = frame.getMin().getX();
+        double minY = frame.getMin().getY();
+        double maxX = minX + frame.getWidth();
+        double maxY = minY + frame.getHeight();
+        double rectMinX = obstacle.getMin().getX();
+        double rectMinY = obstacle.getMin().getY();
+        double rectMaxX = rectMinX + obstacle.getWidth();
+        double rectMaxY = rectMinY + obstacle.getHeight();
+        if (!isIntersecting(i, rectMinX, rectMinY, rectMaxX, rectMaxY)) {
+            return false;
+        }
+        int passes = 0;
+        do {
+            passes++;
+            double r = size[i];
+            double leftOverlap = rectMaxX - (x[i] - r);
+            double rightOverlap = (x[i] + r) - rectMinX;
+            double topOverlap = rectMaxY - (y[i] - r);
+            double bottomOverlap = (y[i] + r) - rectMinY;
+
+            double overlapX = Math.min(leftOverlap, rightOverlap);
+            double overlapY = Math.min(topOverlap, bottomOverlap);
+
+            double beforeX = x[i];
+            double beforeY = y[i];
+            if (overlapX < overlapY) {
+                x[i] += leftOverlap < rightOverlap ? leftOverlap : -rightOverlap;
+            } else {
+                y[i] += topOverlap < bottomOverlap ? topOverlap : -bottomOverlap;
+            }
+            boolean stuck = x[i] == beforeX && y[i] == beforeY;
+
+            double epsilon = Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i]) + 0.1;
+            if (leftOverlap > 0 && rightOverlap > 0 && overlapX <= epsilon) {
+                dx[i] = -dx[i];
+            }
+            if (topOverlap > 0 && bottomOverlap > 0 && overlapY <= epsilon) {
+                dy[i] = -dy[i];
+            }
+
+            fixStepInBox(i, minX, minY, maxX, maxY);
+
+            if (Math.min(overlapX, overlapY) <= 0 || stuck || passes == Ball.MAX_PUSH_OUT_PASSES) {
+                break;
+            }
+        } while (isIntersecting(i, rectMinX, rectMinY, rectMaxX, rectMaxY));
+        return true;
+    }
+
+    /**
+     * Reflects ball i back into the frame, see {@link Ball#fixStepInBox(Rectangle)}.
+     *
+     * @param i    the ball index
+     * @param minX the left edge of the frame
+     * @param minY the top edge of the frame
+     * @param maxX the right edge of the frame
+     * @param maxY the bottom edge of the frame
+     */
+    private void fixStepInBox(int i, double minX, double minY, double maxX, double maxY) {
+        double r = size[i];
+        double rightDistance = maxX - (x[i] + r);
+        double leftDistance = x[i] - r - minX;
+        double topDistance = y[i] - r - minY;
+        double botDistance = maxY - (y[i] + r);
+
+        if (rightDistance <= 0) {
+            x[i] += 2 * rightDistance;
+            dx[i] = -dx[i];
+        }
+        if (leftDistance <= 0) {
+            x[i] += -2 * leftDistance;
+            dx[i] = -dx[i];
+        }
+        if (topDistance <= 0) {
+            y[i] += -2 * topDistance;
+            dy[i] = -dy[i];
+        }
+        if (botDistance <= 0) {
+            y[i] += 2 * botDistance;
+            dy[i] = -dy[i];
+        }
+    }
+
+    /**
+     * Circle-versus-rectangle test, see {@link Ball#isIntersecting(Rectangle)}.
+     *
+     * @param i        the ball index
+     * @param rectMinX the left edge of the rectangle
+     * @param rectMinY the top edge of the rectangle
+     * @param rectMaxX the right edge of the rectangle
+     * @param rectMaxY the bottom edge of the rectangle
+     * @return true if the ball touches or overlaps the rectangle
+     */
+    private boolean isIntersecting(int i, double rectMinX, double rectMinY, double rectMaxX, double rectMaxY) {
+        double closestX = Math.max(rectMinX, Math.min(x[i], rectMaxX));
+        double closestY = Math.max(rectMinY, Math.min(y[i], rectMaxY));
+        double distX = x[i] - closestX;
+        double distY = y[i] - closestY;
+        double r = size[i];
+        return (distX * distX + distY * distY) <= (r * r);
+    }
+}
@@ -0,0 +1,326 @@
+import java.awt.Color;
+import java.util.List;
+
+import biuoop.DrawSurface;
+
+/**
+ * Packed balls with 32-bit coordinates. Positions, velocities, the intersection test and
+ * the reflections are all computed in float math, so the state a step reads and writes,
+ * position, velocity and size, takes 20 bytes per ball instead of the 36 bytes of
+ * {@link DoublePackedBalls}. With the id, the index and the color reference (compressed
+ * references assumed) a ball takes 32 bytes instead of 48.
+ * Trajectories stay within the bound documented in {@link PrecisionCheck} of the double ones.
+ */
+public class FloatPackedBalls implements PackedBalls {
+    private float[] x;
+    private float[] y;
+    private float[] dx;
+    private float[] dy;
+    private float[] size;
+    private Color[] color;
+    private int[] ids;
+    private final int[] indexes;
+    private final IntList nearby = new IntList();
+
+    /**
+     * Packs a copy of the given balls.
+     *
+     * @param balls the balls to copy
+     */
+    public FloatPackedBalls(List<Ball> balls) {
+        int n = balls.size();
+        this.x = new float[n];
+        this.y = new float[n];
+        this.dx = new float[n];
+        this.dy = new float[n];
+        this.size = new float[n];
+        this.color = new Color[n];
+        this.ids = new int[n];
+        this.indexes = new int[n];
+        for (int i = 0; i < n; i++) {
+            Ball ball = balls.get(i);
+            Point center = ball.getCenter();
+            this.x[i] = (float) center.getX();
+            this.y[i] = (float) center.getY();
+            this.dx[i] = (float) ball.getVelocity().getDx();
+            this.dy[i] = (float) ball.getVelocity().getDy();
+            this.size[i] = ball.getSize();
+            this.color[i] = ball.getColor();
+            this.ids[i] = i;
+            this.indexes[i] = i;
+        }
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return Precision.FLOAT;
+    }
+
+    @Override
+    public int size() {
+        return x.length;
+    }
+
+    @Override
+    public double getX(int i) {
+        return x[i];
+    }
+
+    @Override
+    public double getY(int i) {
+        return y[i];
+    }
+
+    @Override
+    public double getDx(int i) {
+        return dx[i];
+    }
+
+    @Override
+    public double getDy(int i) {
+        return dy[i];
+    }
+
+    @Override
+    public int getSize(int i) {
+        return (int) size[i];
+    }
+
+    @Override
+    public void stepInBox(Rectangle frame) {
+        float minX = (float) frame.getMin().getX();
+        float minY = (float) frame.getMin().getY();
+        float maxX = minX + (float) frame.getWidth();
+        float maxY = minY + (float) frame.getHeight();
+        for (int i = 0; i < x.length; i++) {
+            // same rules as fixStepInBox, on locals so each field is loaded and stored once
+            float r = size[i];
+            float cx = x[i] + dx[i];
+            float cy = y[i] + dy[i];
+            float vx = dx[i];
+            float vy = dy[i];
+            float rightDistance = maxX - (cx + r);
+            float leftDistance = cx - r - minX;
+            float topDistance = cy - r - minY;
+            float botDistance = maxY - (cy + r);
+            if (rightDistance <= 0) {
+                cx += 2 * rightDistance;
+                vx = -vx;
+            }
+            if (leftDistance <= 0) {
+                cx += -2 * leftDistance;
+                vx = -vx;
+            }
+            if (topDistance <= 0) {
+                cy += -2 * topDistance;
+                vy = -vy;
+            }
+            if (botDistance <= 0) {
+                cy += 2 * botDistance;
+                vy = -vy;
+            }
+            x[i] = cx;
+            y[i] = cy;
+            dx[i] = vx;
+            dy[i] = vy;
+        }
+    }
+
+    @Override
+    public void stepInBoxAndCollide(Rectangle outerFrame, Rectangle insideFrame) {
+        float minX = (float) outerFrame.getMin().getX();
+        float minY = (float) outerFrame.getMin().getY();
+        float maxX = minX + (float) outerFrame.getWidth();
+        float maxY = minY + (float) outerFrame.getHeight();
+
+        for (int i = 0; i < x.length; i++) {
+            x[i] += dx[i];
+            y[i] += dy[i];
+            fixStepInBox(i, minX, minY, maxX, maxY);
+            bounceOff(i, outerFrame, insideFrame);
+        }
+    }
+
+    @Override
+    public int stepAndBounce(Rectangle frame, List<Rectangle> obstacles, UniformGrid obstacleIndex) {
+        float minX = (float) frame.getMin().getX();
+        float minY = (float) frame.getMin().getY();
+        float maxX = minX + (float) frame.getWidth();
+        float maxY = minY + (float) frame.getHeight();
+        int hits = 0;
+        for (int i = 0; i < x.length; i++) {
+            x[i] += dx[i];
+            y[i] += dy[i];
+            fixStepInBox(i, minX, minY, maxX, maxY);
+            // the search box of World.step(): pushing out of one obstacle moves a ball about its radius
+            double reach = 2.0 * size[i];
+            obstacleIndex.query(x[i] - reach, y[i] - reach, x[i] + reach, y[i] + reach, nearby);
+            nearby.sort();
+            for (int k = 0; k < nearby.size(); k++) {
+                if (bounceOff(i, frame, obstacles.get(nearby.get(k)))) {
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    @Override
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    @Override
+    public int indexOf(int id) {
+        return indexes[id];
+    }
+
+    @Override
+    public void reorder(int[] order) {
+        int n = x.length;
+        float[] newX = new float[n];
+        float[] newY = new float[n];
+        float[] newDx = new float[n];
+        float[] newDy = new float[n];
+        float[] newSize = new float[n];
+        Color[] newColor = new Color[n];
+        int[] newIds = new int[n];
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            newX[k] = x[i];
+            newY[k] = y[i];
+            newDx[k] = dx[i];
+            newDy[k] = dy[i];
+            newSize[k] = size[i];
+            newColor[k] = color[i];
+            newIds[k] = ids[i];
+            indexes[ids[i]] = k;
+        }
+        x = newX;
+        y = newY;
+        dx = newDx;
+        dy = newDy;
+        size = newSize;
+        color = newColor;
+        ids = newIds;
+    }
+
+    @Override
+    public void drawOn(DrawSurface surface) {
+        for (int i = 0; i < x.length; i++) {
+            surface.setColor(color[i]);
+            surface.fillCircle((int) x[i], (int) y[i], (int) size[i]);
+        }
+    }
+
+    /**
+     * Pushes ball i out of an obstacle it overlaps, see {@link Ball#bounceOff(Rectangle, Rectangle)}.
+     *
+     * @param i        the ball index
+     * @param frame    the frame the ball is kept inside
+     * @param obstacle the obstacle
+     * @return true if the ball touched the obstacle
+     */
+    private boolean bounceOff(int i, Rectangle frame, Rectangle obstacle) {
+        float minX = (float) frame.getMin().getX();
+        float minY = (float) frame.getMin().getY();
+        float maxX = minX + (float) frame.getWidth();
+        float maxY = minY + (float) frame.getHeight();
+        float rectMinX = (float) obstacle.getMin().getX();
+        float rectMinY = (float) obstacle.getMin().getY();
+        float rectMaxX = rectMinX + (float) obstacle.getWidth();
+        float rectMaxY = rectMinY + (float) obstacle.getHeight();
+        if (!isIntersecting(i, rectMinX, rectMinY, rectMaxX, rectMaxY)) {
+            return false;
+        }
+        int passes = 0;
+        do {
+            passes++;
+            float r = size[i];
+            float leftOverlap = rectMaxX - (x[i] - r);
+            float rightOverlap = (x[i] + r) - rectMinX;
+            float topOverlap = rectMaxY - (y[i] - r);
+            float bottomOverlap = (y[i] + r) - rectMinY;
+
+            float overlapX = Math.min(leftOverlap, rightOverlap);
+            float overlapY = Math.min(topOverlap, bottomOverlap);
+
+            float beforeX = x[i];
+            float beforeY = y[i];
+            if (overlapX < overlapY) {
+                x[i] += leftOverlap < rightOverlap ? leftOverlap : -rightOverlap;
+            } else {
+                y[i] += topOverlap < bottomOverlap ? topOverlap : -bottomOverlap;
+            }
+            boolean stuck = x[i] == beforeX && y[i] == beforeY;
+
+            float epsilon = (float) Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i]) + 0.1f;
+            if (leftOverlap > 0 && rightOverlap > 0 && overlapX <= epsilon) {
+                dx[i] = -dx[i];
+            }
+            if (topOverlap > 0 && bottomOverlap > 0 && overlapY <= epsilon) {
+                dy[i] = -dy[i];
+            }
+
+            fixStepInBox(i, minX, minY, maxX, maxY);
+
+            if (Math.min(overlapX, overlapY) <= 0 || stuck || passes == Ball.MAX_PUSH_OUT_PASSES) {
+                break;
+            }
+        } while (isIntersecting(i, rectMinX, rectMinY, rectMaxX, rectMaxY));
+        return true;
+    }
+
+    /**
+     * Reflects ball i back into the frame, see {@link Ball#fixStepInBox(Rectangle)}.
+     *
+     * @param i    the ball index
+     * @param minX the left edge of the frame
+     * @param minY the top edge of the frame
+     * @param maxX the right edge of the frame
+     * @param maxY the bottom edge of the frame
+     */
+    private void fixStepInBox(int i, float minX, float minY, float maxX, float maxY) {
+        float r = size[i];
+        float rightDistance = maxX - (x[i] + r);
+        float leftDistance = x[i] - r - minX;
+        float topDistance = y[i] - r - minY;
+        float botDistance = maxY - (y[i] + r);
+
+        if (rightDistance <= 0) {
+            x[i] += 2 * rightDistance;
+            dx[i] = -dx[i];
+        }
+        if (leftDistance <= 0) {
+            x[i] += -2 * leftDistance;
+            dx[i] = -dx[i];
+        }
+        if (topDistance <= 0) {
+            y[i] += -2 * topDistance;
+            dy[i] = -dy[i];
+        }
+        if (botDistance <= 0) {
+            y[i] += 2 * botDistance;
+            dy[i] = -dy[i];
+        }
+    }
+
+    /**
+     * Circle-versus-rectangle test, see {@link Ball#isIntersecting(Rectangle)}.
+     *
+     * @param i        the ball index
+     * @param rectMinX the left edge of the rectangle
+     * @param rectMinY the top edge of the rectangle
+     * @param rectMaxX the right edge of the rectangle
+     * @param rectMaxY the bottom edge of the rectangle
+     * @return true if the ball touches or overlaps the rectangle
+     */
+    private boolean isIntersecting(int i, float rectMinX, float rectMinY, float rectMaxX, float rectMaxY) {
+        float closestX = Math.max(rectMinX, Math.min(x[i], rectMaxX));
+        float closestY = Math.max(rectMinY, Math.min(y[i], rectMaxY));
+        float distX = x[i] - closestX;
+        float distY = y[i] - closestY;
+        float r = size[i];
+        return (distX * distX + distY * distY) <= (r * r);
+    }
+}
@@ -0,0 +1,53 @@
+import java.awt.Color;
+
+import biuoop.DrawSurface;
+import biuoop.GUI;
+import biuoop.Sleeper;
+
+/**
+ * A swinging fountain of short-lived sparks, spawned every frame from a {@link BallPool}.
+ */
+public class FountainAnimation {
+    private static final int DEFAULT_RATE = 500;
+    private static final int CAPACITY = 100_000;
+    private static final long TICK_MILLIS = 20;
+    private static final double GRAVITY = 0.15;
+    private static final double SWING_DEGREES = 25;
+    private static final double SWING_PERIOD = 200;
+
+    /**
+     * Main method.
+     *
+     * @param args optional: number of sparks spawned per frame
+     */
+    public static void main(String[] args) {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RATE;
+        Rectangle frame = new Rectangle(0, 0, World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
+        BallPool pool = new BallPool(CAPACITY);
+        pool.setGravity(0, GRAVITY);
+        pool.setFadeColors(Color.white, Color.yellow, Color.orange, Color.red, Color.darkGray);
+
+        ParticleEmitter fountain = new ParticleEmitter(pool, World.DEFAULT_WIDTH / 2.0, World.DEFAULT_HEIGHT - 20, 1);
+        fountain.setRate(rate);
+        fountain.setSpeed(8, 13);
+        fountain.setSize(1, 3);
+        fountain.setLifetime(40, 90);
+        fountain.setPalette(Color.white);
+
+        GUI gui = new GUI("Fountain", World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
+        Sleeper sleeper = new Sleeper();
+        long frameNumber = 0;
+        while (true) {
+            fountain.setDirection(SWING_DEGREES * Math.sin(2 * Math.PI * frameNumber / SWING_PERIOD), 20);
+            fountain.emit();
+            pool.step(frame);
+            DrawSurface surface = gui.getDrawSurface();
+            surface.setColor(Color.black);
+            surface.fillRectangle(0, 0, World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
+            pool.drawOn(surface);
+            gui.show(surface);
+            frameNumber++;
+            sleeper.sleepFor(TICK_MILLIS);
+        }
+    }
+}
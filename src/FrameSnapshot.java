@@ -0,0 +1,127 @@
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.List;
+
+import biuoop.DrawSurface;
+
+/**
+ * A copy of everything needed to draw the balls of one simulation step: where each ball
+ * was before the step, where it is after it, and when the step ended.
+ * The simulation thread fills a snapshot while the render thread draws another one,
+ * so drawing never reads a ball that is being moved. The arrays are reused between
+ * steps and only grow when the number of balls does.
+ */
+public class FrameSnapshot {
+    private int count;
+    private double[] fromX = new double[0];
+    private double[] fromY = new double[0];
+    private double[] toX = new double[0];
+    private double[] toY = new double[0];
+    private int[] size = new int[0];
+    private Color[] color = new Color[0];
+    private long tickNanos;
+
+    /**
+     * Records the positions of the balls before a step.
+     *
+     * @param balls the balls about to be stepped
+     */
+    public void captureFrom(List<Ball> balls) {
+        count = balls.size();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            Ball ball = balls.get(i);
+            fromX[i] = ball.getCenterX();
+            fromY[i] = ball.getCenterY();
+        }
+    }
+
+    /**
+     * Records the positions, sizes and colors of the balls after a step.
+     * Balls added during the step have no earlier position and are drawn where they are.
+     *
+     * @param balls     the balls that were stepped
+     * @param tickNanos the nano time at which the step ended
+     */
+    public void captureTo(List<Ball> balls, long tickNanos) {
+        int before = count;
+        count = balls.size();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            Ball ball = balls.get(i);
+            toX[i] = ball.getCenterX();
+            toY[i] = ball.getCenterY();
+            size[i] = ball.getSize();
+            color[i] = ball.getColor();
+            if (i >= before) {
+                fromX[i] = toX[i];
+                fromY[i] = toY[i];
+            }
+        }
+        this.tickNanos = tickNanos;
+    }
+
+    /**
+     * @return the number of balls in the snapshot
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the nano time at which the captured step ended
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Draws the captured balls, in list order, at the state after the step.
+     *
+     * @param surface the surface to draw on
+     */
+    public void drawOn(DrawSurface surface) {
+        drawOn(surface, 1);
+    }
+
+    /**
+     * Draws the captured balls, in list order, a fraction of the way through the step.
+     * Both ends of a step are inside the frame (fixStepInBox folds any overshoot back), and
+     * the frame is convex, so no point between them is outside the walls: a ball that
+     * reflected during the step cuts the corner instead of crossing the wall.
+     *
+     * @param surface the surface to draw on
+     * @param alpha   0 for the position before the step, 1 for the position after it
+     */
+    public void drawOn(DrawSurface surface, double alpha) {
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        for (int i = 0; i < count; i++) {
+            surface.setColor(color[i]);
+            surface.fillCircle((int) (fromX[i] + (toX[i] - fromX[i]) * alpha),
+                    (int) (fromY[i] + (toY[i] - fromY[i]) * alpha), size[i]);
+        }
+        if (event.shouldCommit()) {
+            event.set("FrameSnapshot", count, count);
+            event.commit();
+        }
+    }
+
+    /**
+     * Grows the arrays, keeping their content, so they hold at least the given number of balls.
+     *
+     * @param capacity the number of balls to hold
+     */
+    private void ensureCapacity(int capacity) {
+        if (toX.length >= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, toX.length * 2);
+        fromX = Arrays.copyOf(fromX, newCapacity);
+        fromY = Arrays.copyOf(fromY, newCapacity);
+        toX = Arrays.copyOf(toX, newCapacity);
+        toY = Arrays.copyOf(toY, newCapacity);
+        size = Arrays.copyOf(size, newCapacity);
+        color = Arrays.copyOf(color, newCapacity);
+    }
+}
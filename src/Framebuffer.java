@@ -0,0 +1,78 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import biuoop.DrawSurface;
+
+/**
+ * An RGB image whose pixels can be written directly as an {@code int[]}, one int per pixel,
+ * row by row. It is shown on a {@link DrawSurface} with a single image draw.
+ */
+public class Framebuffer {
+    private final int width;
+    private final int height;
+    private final BufferedImage image;
+    private final int[] pixels;
+
+    /**
+     * Constructs a black framebuffer.
+     *
+     * @param width  the width, in pixels
+     * @param height the height, in pixels
+     */
+    public Framebuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * @return the width, in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height, in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the pixels, row by row, as 0xRRGGBB; writes show up in the image
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * @return the image backed by the pixels
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Fills every pixel with a color.
+     *
+     * @param color the color
+     */
+    public void clear(Color color) {
+        Arrays.fill(pixels, color.getRGB() & 0xFFFFFF);
+    }
+
+    /**
+     * Draws the framebuffer at the top-left corner of a surface. A window may only paint the
+     * image after {@link biuoop.GUI#show} returns, so the pixels should not be written again
+     * until the next frame is shown; alternate between two framebuffers.
+     *
+     * @param surface the surface to draw on
+     */
+    public void drawOn(DrawSurface surface) {
+        surface.drawImage(0, 0, image);
+    }
+}
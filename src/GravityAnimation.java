@@ -0,0 +1,63 @@
+import java.awt.Color;
+import java.util.Random;
+
+import biuoop.GUI;
+
+/**
+ * A rotating disk of balls held together by their own gravity, with forces from a
+ * {@link BarnesHut} tree.
+ */
+public class GravityAnimation {
+    private static final int DEFAULT_BALLS = 20_000;
+    private static final double DEFAULT_THETA = 0.8;
+    private static final double GRAVITY = 0.002;
+    private static final double SOFTENING = 3;
+    private static final double DISK_RADIUS = 250;
+    private static final long TICK_MILLIS = 20;
+
+    /**
+     * Fills a disk in the middle of the default world with small balls, each moving around
+     * the center at the speed that balances the pull of the balls inside its orbit.
+     *
+     * @param count the number of balls
+     * @param theta the opening angle of the force stage
+     * @return the new world
+     */
+    static World createWorld(int count, double theta) {
+        Random random = new Random();
+        World world = new World("gravity", new Rectangle(0, 0, World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT),
+                TICK_MILLIS);
+        world.setGravity(new BarnesHut(theta, GRAVITY, SOFTENING));
+        double centerX = World.DEFAULT_WIDTH / 2.0;
+        double centerY = World.DEFAULT_HEIGHT / 2.0;
+        int[] sizes = new int[count];
+        double totalMass = 0;
+        for (int i = 0; i < count; i++) {
+            sizes[i] = 1 + random.nextInt(3);
+            totalMass += sizes[i];
+        }
+        for (int i = 0; i < count; i++) {
+            double angle = random.nextDouble(2 * Math.PI);
+            // uniform over the disk area, so the mass inside radius r grows as r^2
+            double r = DISK_RADIUS * Math.sqrt(random.nextDouble());
+            double speed = Math.sqrt(GRAVITY * totalMass * r) / DISK_RADIUS;
+            Color color = sizes[i] == 1 ? Color.lightGray : sizes[i] == 2 ? Color.orange : Color.red;
+            world.addBall(new Ball(centerX + r * Math.cos(angle), centerY + r * Math.sin(angle), sizes[i], color,
+                    new Velocity(-speed * Math.sin(angle), speed * Math.cos(angle))));
+        }
+        return world;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args optional: number of balls, opening angle
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BALLS;
+        double theta = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_THETA;
+        World world = createWorld(count, theta);
+        GUI gui = new GUI("Gravity", World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
+        new PipelinedRenderer(gui, world.getBalls(), world::step, world.getTickMillis()).run();
+    }
+}
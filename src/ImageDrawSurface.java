@@ -0,0 +1,131 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Polygon;
+import java.awt.image.BufferedImage;
+
+import biuoop.AlphaChannelNotSupportedException;
+import biuoop.DrawSurface;
+
+/**
+ * A {@link DrawSurface} that draws straight into a {@link BufferedImage}, with no window.
+ * Shapes are drawn the way the biuoop window draws them, so anything that can draw itself
+ * on a {@link biuoop.GUI} can be rendered to an image unchanged. The surface holds a
+ * graphics context of the image until it is closed; the image stays usable afterwards.
+ */
+public class ImageDrawSurface implements DrawSurface, AutoCloseable {
+    private final BufferedImage image;
+    private final Graphics2D graphics;
+
+    /**
+     * Constructs a surface drawing into an image.
+     *
+     * @param image the image to draw into
+     */
+    public ImageDrawSurface(BufferedImage image) {
+        this.image = image;
+        this.graphics = image.createGraphics();
+    }
+
+    /**
+     * @return the image drawn into
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Fills the whole image with a color and makes it the current color.
+     *
+     * @param color the background color
+     */
+    public void clear(Color color) {
+        setColor(color);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Releases the graphics context. The surface must not be drawn on afterwards.
+     */
+    @Override
+    public void close() {
+        graphics.dispose();
+    }
+
+    @Override
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    @Override
+    public void setColor(Color color) {
+        if (color.getAlpha() != 255) {
+            throw new AlphaChannelNotSupportedException(
+                    "Alpha may not be used, the color provided had an alpha value of " + color.getAlpha());
+        }
+        graphics.setColor(color);
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        graphics.drawLine(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void drawOval(int x, int y, int width, int height) {
+        graphics.drawOval(x, y, width, height);
+    }
+
+    @Override
+    public void fillOval(int x, int y, int width, int height) {
+        graphics.fillOval(x, y, width, height);
+    }
+
+    @Override
+    public void drawRectangle(int x, int y, int width, int height) {
+        graphics.drawRect(x, y, width, height);
+    }
+
+    @Override
+    public void fillRectangle(int x, int y, int width, int height) {
+        graphics.fillRect(x, y, width, height);
+    }
+
+    @Override
+    public void drawImage(int x, int y, Image img) {
+        graphics.drawImage(img, x, y, null);
+    }
+
+    @Override
+    public void drawCircle(int x, int y, int r) {
+        graphics.drawOval(x - r, y - r, r * 2, r * 2);
+    }
+
+    @Override
+    public void fillCircle(int x, int y, int r) {
+        graphics.fillOval(x - r, y - r, r * 2, r * 2);
+    }
+
+    @Override
+    public void drawText(int x, int y, String text, int fontSize) {
+        Font font = graphics.getFont();
+        graphics.setFont(new Font(font.getFontName(), font.getStyle(), fontSize));
+        graphics.drawString(text, x, y);
+    }
+
+    @Override
+    public void drawPolygon(Polygon polygon) {
+        graphics.drawPolygon(polygon);
+    }
+
+    @Override
+    public void fillPolygon(Polygon polygon) {
+        graphics.fillPolygon(polygon);
+    }
+}
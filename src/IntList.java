@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints, used for query results and index buckets
+ * so the hot paths do not box every index into an Integer.
+ */
+public class IntList {
+    private int[] items;
+    private int size;
+
+    /**
+     * Constructs an empty list with a small initial capacity.
+     */
+    public IntList() {
+        this(8);
+    }
+
+    /**
+     * Constructs an empty list.
+     *
+     * @param capacity the initial capacity
+     */
+    public IntList(int capacity) {
+        this.items = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Appends a value.
+     *
+     * @param value the value to append
+     */
+    public void add(int value) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        items[size++] = value;
+    }
+
+    /**
+     * @param index the position to read
+     * @return the value at the position
+     */
+    public int get(int index) {
+        return items[index];
+    }
+
+    /**
+     * Replaces the value at a position.
+     *
+     * @param index the position to write
+     * @param value the new value
+     */
+    public void set(int index, int value) {
+        items[index] = value;
+    }
+
+    /**
+     * Removes the value at a position by moving the last value into it (order is not kept).
+     *
+     * @param index the position to remove
+     */
+    public void swapRemove(int index) {
+        items[index] = items[--size];
+    }
+
+    /**
+     * @param value the value to look for
+     * @return the first position of the value, or -1
+     */
+    public int indexOf(int value) {
+        for (int i = 0; i < size; i++) {
+            if (items[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all values, keeping the capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Sorts the values in ascending order.
+     */
+    public void sort() {
+        Arrays.sort(items, 0, size);
+    }
+}
@@ -0,0 +1,109 @@
+import java.awt.Color;
+import java.util.Random;
+
+import biuoop.DrawSurface;
+import biuoop.GUI;
+import biuoop.Sleeper;
+
+/**
+ * Balls bouncing among paddles that slide and circle around the screen, see
+ * {@link KinematicScene}. With {@code steps=} it runs that many steps without a window and
+ * prints the cost of a step and the work of the broadphase instead.
+ *
+ * <p>Usage: {@code KinematicAnimation [balls=2000] [obstacles=100] [steps=0] [seed=1]}</p>
+ */
+public class KinematicAnimation {
+    private static final int MIN_SIDE = 10;
+    private static final int MAX_SIDE = 40;
+    private static final int MIN_PERIOD = 60;
+    private static final int MAX_PERIOD = 600;
+    private static final int MAX_REACH = 100;
+    private static final int TICK_MILLIS = 20;
+
+    /**
+     * Finds a key=value argument.
+     *
+     * @param args         the command line
+     * @param key          the key to look for
+     * @param defaultValue the value to use if the key is absent
+     * @return the value
+     */
+    private static String option(String[] args, String key, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                return arg.substring(key.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Builds a screen-sized scene with random paddles and balls.
+     *
+     * @param ballCount     the number of balls
+     * @param obstacleCount the number of obstacles
+     * @param seed          the random seed
+     * @return the scene
+     */
+    static KinematicScene createScene(int ballCount, int obstacleCount, long seed) {
+        Random random = new Random(seed);
+        KinematicScene scene = new KinematicScene(new Rectangle(0, 0, World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT));
+        for (int j = 0; j < obstacleCount; j++) {
+            double width = MIN_SIDE + random.nextInt(MAX_SIDE - MIN_SIDE);
+            double height = MIN_SIDE + random.nextInt(MAX_SIDE - MIN_SIDE);
+            Rectangle rectangle = new Rectangle(random.nextDouble(World.DEFAULT_WIDTH - width),
+                    random.nextDouble(World.DEFAULT_HEIGHT - height), width, height,
+                    new Color(random.nextInt(255), random.nextInt(255), random.nextInt(255)));
+            KinematicObstacle.Motion motion = random.nextBoolean()
+                    ? KinematicObstacle.Motion.LINE : KinematicObstacle.Motion.ORBIT;
+            scene.addObstacle(new KinematicObstacle(rectangle, motion, random.nextDouble(-MAX_REACH, MAX_REACH),
+                    random.nextDouble(-MAX_REACH, MAX_REACH), random.nextInt(MIN_PERIOD, MAX_PERIOD),
+                    random.nextInt(MAX_PERIOD)));
+        }
+        for (int i = 0; i < ballCount; i++) {
+            int size = 2 + random.nextInt(8);
+            scene.addBall(new Ball(random.nextDouble(size, World.DEFAULT_WIDTH - size),
+                    random.nextDouble(size, World.DEFAULT_HEIGHT - size), size,
+                    new Color(random.nextInt(255), random.nextInt(255), random.nextInt(255)),
+                    random.nextDouble(360), 1 + random.nextDouble(8)));
+        }
+        return scene;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args key=value options, see the class documentation
+     */
+    public static void main(String[] args) {
+        int balls = Integer.parseInt(option(args, "balls", "2000"));
+        int obstacles = Integer.parseInt(option(args, "obstacles", "100"));
+        int steps = Integer.parseInt(option(args, "steps", "0"));
+        long seed = Long.parseLong(option(args, "seed", "1"));
+        KinematicScene scene = createScene(balls, obstacles, seed);
+
+        if (steps > 0) {
+            long hits = 0;
+            long start = System.nanoTime();
+            for (int step = 0; step < steps; step++) {
+                hits += scene.step();
+            }
+            double millis = (System.nanoTime() - start) / 1e6;
+            System.out.printf("%d balls, %d obstacles: %.3f ms/step, %.1f pairs/step, %.1f hits/step,"
+                            + " %.1f sort moves/step, %d full sorts%n", balls, obstacles, millis / steps,
+                    scene.getPairs() / (double) steps, hits / (double) steps,
+                    scene.getSweep().getSwaps() / (double) steps, scene.getSweep().getFullSorts());
+            return;
+        }
+
+        GUI gui = new GUI("Moving obstacles", World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
+        Sleeper sleeper = new Sleeper();
+        while (true) {
+            scene.step();
+            DrawSurface surface = gui.getDrawSurface();
+            scene.drawOn(surface);
+            gui.show(surface);
+            sleeper.sleepFor(TICK_MILLIS);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * A rectangle moved along a scripted path, one step at a time, that balls bounce off. Unlike
+ * the still obstacles of {@link Ball#bounceOff(Rectangle, Rectangle)}, the response takes the
+ * obstacle's own velocity into account, and a hit is found from where the ball and the
+ * obstacle were at the start of the step, so neither passes through the other when the
+ * obstacle moves further in one step than the ball is wide.
+ */
+public class KinematicObstacle {
+
+    /**
+     * The shape of a scripted path.
+     */
+    public enum Motion {
+        /**
+         * Back and forth along a line through the anchor, easing at both ends.
+         */
+        LINE,
+        /**
+         * Around an ellipse centered on the anchor.
+         */
+        ORBIT
+    }
+
+    private final Rectangle rectangle;
+    private final Motion motion;
+    private final double anchorX;
+    private final double anchorY;
+    private final double amplitudeX;
+    private final double amplitudeY;
+    private final double period;
+    private final double phase;
+    private long tick;
+    private double previousX;
+    private double previousY;
+    private double velocityX;
+    private double velocityY;
+
+    /**
+     * Constructs an obstacle at the start of its path. The rectangle is moved in place, so it
+     * can also be drawn or indexed by others.
+     *
+     * @param rectangle  the shape; its position now is the anchor of the path
+     * @param motion     the shape of the path
+     * @param amplitudeX the horizontal reach of the path from the anchor
+     * @param amplitudeY the vertical reach of the path from the anchor
+     * @param period     the number of steps the path takes to repeat
+     * @param phase      where on the path it starts, in steps
+     */
+    public KinematicObstacle(Rectangle rectangle, Motion motion, double amplitudeX, double amplitudeY,
+                             double period, double phase) {
+        this.rectangle = rectangle;
+        this.motion = motion;
+        this.anchorX = rectangle.getMin().getX();
+        this.anchorY = rectangle.getMin().getY();
+        this.amplitudeX = amplitudeX;
+        this.amplitudeY = amplitudeY;
+        this.period = period;
+        this.phase = phase;
+        moveTo(0);
+        this.previousX = rectangle.getMin().getX();
+        this.previousY = rectangle.getMin().getY();
+    }
+
+    /**
+     * @return the rectangle, at its current position
+     */
+    public Rectangle getRectangle() {
+        return rectangle;
+    }
+
+    /**
+     * @return the left edge before the last {@link #advance()}
+     */
+    public double getPreviousX() {
+        return previousX;
+    }
+
+    /**
+     * @return the top edge before the last {@link #advance()}
+     */
+    public double getPreviousY() {
+        return previousY;
+    }
+
+    /**
+     * @return the horizontal distance moved by the last {@link #advance()}
+     */
+    public double getVelocityX() {
+        return velocityX;
+    }
+
+    /**
+     * @return the vertical distance moved by the last {@link #advance()}
+     */
+    public double getVelocityY() {
+        return velocityY;
+    }
+
+    /**
+     * Moves the rectangle to the next position on its path and remembers the one it left.
+     */
+    public void advance() {
+        previousX = rectangle.getMin().getX();
+        previousY = rectangle.getMin().getY();
+        tick++;
+        moveTo(tick);
+        velocityX = rectangle.getMin().getX() - previousX;
+        velocityY = rectangle.getMin().getY() - previousY;
+    }
+
+    /**
+     * @param step the step number
+     */
+    private void moveTo(long step) {
+        double angle = 2 * Math.PI * (step + phase) / period;
+        double x;
+        double y;
+        if (motion == Motion.LINE) {
+            x = anchorX + amplitudeX * Math.sin(angle);
+            y = anchorY + amplitudeY * Math.sin(angle);
+        } else {
+            x = anchorX + amplitudeX * Math.cos(angle);
+            y = anchorY + amplitudeY * Math.sin(angle);
+        }
+        rectangle.getMin().setX(x);
+        rectangle.getMin().setY(y);
+    }
+
+    /**
+     * Bounces a ball that has just made its step off this obstacle, which has just made its
+     * own. The path of the ball's center relative to the obstacle is tested against the
+     * obstacle grown by the radius, treating the ball as its bounding square. On a hit the ball
+     * is put against the face it crossed first and its velocity relative to the obstacle is
+     * reflected across that face, so a moving obstacle carries the ball along. A ball that
+     * already overlapped the obstacle at the start of the step is pushed out the shortest way.
+     *
+     * @param ball      the ball, after its step
+     * @param ballPrevX the x-coordinate of the ball's center before its step
+     * @param ballPrevY the y-coordinate of the ball's center before its step
+     * @param frame     the frame the ball is kept inside afterwards
+     * @return true if the ball hit the obstacle
+     */
+    public boolean collide(Ball ball, double ballPrevX, double ballPrevY, Rectangle frame) {
+        double r = ball.getSize();
+        double width = rectangle.getWidth();
+        double height = rectangle.getHeight();
+        double minX = rectangle.getMin().getX();
+        double minY = rectangle.getMin().getY();
+        // the ball's center relative to the obstacle's corner, before and after the step
+        double startX = ballPrevX - previousX;
+        double startY = ballPrevY - previousY;
+        double endX = ball.getCenterX() - minX;
+        double endY = ball.getCenterY() - minY;
+        double lowX = -r;
+        double lowY = -r;
+        double highX = width + r;
+        double highY = height + r;
+
+        double enter = 0;
+        double leave = 1;
+        // the face crossed last on the way in: 0 left, 1 right, 2 top, 3 bottom, -1 none
+        int face = -1;
+        double moveX = endX - startX;
+        if (moveX == 0) {
+            if (startX < lowX || startX > highX) {
+                return false;
+            }
+        } else {
+            double t1 = (lowX - startX) / moveX;
+            double t2 = (highX - startX) / moveX;
+            if (t1 > t2) {
+                double swap = t1;
+                t1 = t2;
+                t2 = swap;
+            }
+            if (t1 > enter) {
+                enter = t1;
+                face = moveX > 0 ? 0 : 1;
+            }
+            leave = Math.min(leave, t2);
+        }
+        double moveY = endY - startY;
+        if (moveY == 0) {
+            if (startY < lowY || startY > highY) {
+                return false;
+            }
+        } else {
+            double t1 = (lowY - startY) / moveY;
+            double t2 = (highY - startY) / moveY;
+            if (t1 > t2) {
+                double swap = t1;
+                t1 = t2;
+                t2 = swap;
+            }
+            if (t1 > enter) {
+                enter = t1;
+                face = moveY > 0 ? 2 : 3;
+            }
+            leave = Math.min(leave, t2);
+        }
+        if (face < 0) {
+            // overlapping at the start of the step: only a ball still inside at the end is hit,
+            // one that is leaving or resting against a face is left alone
+            if (endX <= lowX || endX >= highX || endY <= lowY || endY >= highY) {
+                return false;
+            }
+            face = shortestWayOut(endX - lowX, highX - endX, endY - lowY, highY - endY);
+        } else if (enter >= leave) {
+            return false;
+        }
+        push(ball, face, minX, minY, width, height);
+        ball.fixStepInBox(frame);
+        PhysicsStats.increment(PhysicsStats.Counter.OBSTACLE_HITS);
+        return true;
+    }
+
+    /**
+     * @param left   how far the center is past the grown left face
+     * @param right  how far the center is short of the grown right face
+     * @param top    how far the center is past the grown top face
+     * @param bottom how far the center is short of the grown bottom face
+     * @return the face nearest to the center: 0 left, 1 right, 2 top, 3 bottom
+     */
+    private static int shortestWayOut(double left, double right, double top, double bottom) {
+        if (Math.min(left, right) < Math.min(top, bottom)) {
+            return left < right ? 0 : 1;
+        }
+        return top < bottom ? 2 : 3;
+    }
+
+    /**
+     * Puts the ball against a face and reflects its velocity relative to the obstacle if it
+     * is moving into the face.
+     *
+     * @param ball   the ball
+     * @param face   0 left, 1 right, 2 top, 3 bottom
+     * @param minX   the left edge of the obstacle
+     * @param minY   the top edge of the obstacle
+     * @param width  the width of the obstacle
+     * @param height the height of the obstacle
+     */
+    private void push(Ball ball, int face, double minX, double minY, double width, double height) {
+        int r = ball.getSize();
+        Velocity velocity = ball.getVelocity();
+        if (face < 2) {
+            ball.setX(face == 0 ? minX - r : minX + width + r);
+            double relative = velocity.getDx() - velocityX;
+            if (face == 0 ? relative > 0 : relative < 0) {
+                velocity.setDx(velocityX - relative);
+            }
+        } else {
+            ball.setY(face == 2 ? minY - r : minY + height + r);
+            double relative = velocity.getDy() - velocityY;
+            if (face == 2 ? relative > 0 : relative < 0) {
+                velocity.setDy(velocityY - relative);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import biuoop.DrawSurface;
+
+/**
+ * Balls in a frame with {@link KinematicObstacle}s moving through it. Each step moves the
+ * obstacles, then the balls, and then bounces every ball off the obstacles that
+ * {@link SweepAndPrune} reports near it. The bounds given to the sweep cover where each ball
+ * and obstacle was and where it is, so a pair that crossed during the step is not missed.
+ */
+public class KinematicScene {
+    private final Rectangle frame;
+    private final List<Ball> balls = new ArrayList<>();
+    private final List<KinematicObstacle> obstacles = new ArrayList<>();
+    private final SweepAndPrune sweep = new SweepAndPrune();
+    private double[] previousX = new double[0];
+    private double[] previousY = new double[0];
+    private long pairs;
+    private long ticks;
+
+    /**
+     * Constructs an empty scene.
+     *
+     * @param frame the frame the balls move in
+     */
+    public KinematicScene(Rectangle frame) {
+        this.frame = frame;
+    }
+
+    /**
+     * @return the frame the balls move in
+     */
+    public Rectangle getFrame() {
+        return frame;
+    }
+
+    /**
+     * @param ball a ball to add
+     */
+    public void addBall(Ball ball) {
+        balls.add(ball);
+    }
+
+    /**
+     * @param obstacle an obstacle to add
+     */
+    public void addObstacle(KinematicObstacle obstacle) {
+        obstacles.add(obstacle);
+    }
+
+    /**
+     * @return the balls, in the order they were added
+     */
+    public List<Ball> getBalls() {
+        return Collections.unmodifiableList(balls);
+    }
+
+    /**
+     * @return the obstacles, in the order they were added
+     */
+    public List<KinematicObstacle> getObstacles() {
+        return Collections.unmodifiableList(obstacles);
+    }
+
+    /**
+     * @return the broadphase, for its statistics
+     */
+    public SweepAndPrune getSweep() {
+        return sweep;
+    }
+
+    /**
+     * @return the number of candidate pairs reported by the broadphase so far
+     */
+    public long getPairs() {
+        return pairs;
+    }
+
+    /**
+     * @return the number of steps taken so far
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Moves the obstacles along their paths, moves the balls and bounces them off the
+     * obstacles near them, each ball off its obstacles in list order.
+     *
+     * @return the number of ball-obstacle hits during this step
+     */
+    public int step() {
+        int n = balls.size();
+        if (previousX.length < n) {
+            previousX = new double[n];
+            previousY = new double[n];
+        }
+        sweep.resize(n, obstacles.size());
+        for (int j = 0; j < obstacles.size(); j++) {
+            KinematicObstacle obstacle = obstacles.get(j);
+            obstacle.advance();
+            Rectangle rectangle = obstacle.getRectangle();
+            double x = rectangle.getMin().getX();
+            double y = rectangle.getMin().getY();
+            sweep.setBox(j, Math.min(x, obstacle.getPreviousX()), Math.min(y, obstacle.getPreviousY()),
+                    Math.max(x, obstacle.getPreviousX()) + rectangle.getWidth(),
+                    Math.max(y, obstacle.getPreviousY()) + rectangle.getHeight());
+        }
+        for (int i = 0; i < n; i++) {
+            Ball ball = balls.get(i);
+            previousX[i] = ball.getCenterX();
+            previousY[i] = ball.getCenterY();
+            ball.moveStepInBox(frame);
+            int r = ball.getSize();
+            sweep.setBall(i, Math.min(previousX[i], ball.getCenterX()) - r,
+                    Math.min(previousY[i], ball.getCenterY()) - r,
+                    Math.max(previousX[i], ball.getCenterX()) + r,
+                    Math.max(previousY[i], ball.getCenterY()) + r);
+        }
+
+        int count = sweep.sweep();
+        int hits = 0;
+        for (int k = 0; k < count; k++) {
+            int i = sweep.getPairBall(k);
+            if (obstacles.get(sweep.getPairBox(k)).collide(balls.get(i), previousX[i], previousY[i], frame)) {
+                hits++;
+            }
+        }
+        pairs += count;
+        ticks++;
+        PhysicsStats.increment(PhysicsStats.Counter.STEPS);
+        return hits;
+    }
+
+    /**
+     * Draws the obstacles, then the balls.
+     *
+     * @param surface the surface to draw on
+     */
+    public void drawOn(DrawSurface surface) {
+        for (KinematicObstacle obstacle : obstacles) {
+            obstacle.getRectangle().drawOn(surface);
+        }
+        for (Ball ball : balls) {
+            ball.drawOn(surface);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import biuoop.DrawSurface;
+import biuoop.GUI;
+import biuoop.Sleeper;
+
+/**
+ * Bouncing balls in a world far larger than the window, explored with the arrow keys.
+ * Only the part of the world under the camera is drawn. The balls nearest to the middle
+ * of the view are found with a {@link BallKdTree} and circled. Balls can be added, removed
+ * and steered while it runs by typing commands, see {@link ControlConsole}.
+ */
+public class LargeWorldAnimation {
+    private static final double DEFAULT_WORLD_SIZE = 100_000;
+    private static final int DEFAULT_BALLS = 200_000;
+    private static final int DEFAULT_OBSTACLES = 5_000;
+    private static final double CELL_SIZE = 256;
+    private static final double CAMERA_SPEED = 40;
+    private static final int HIGHLIGHTED = 25;
+
+    /**
+     * Fills a square world with random gray obstacles and small balls around them.
+     *
+     * @param worldSize the side of the world
+     * @param balls     the number of balls
+     * @param obstacles the number of obstacles
+     * @return the new world
+     */
+    private static World createWorld(double worldSize, int balls, int obstacles) {
+        Random random = new Random();
+        World world = new World("large", new Rectangle(0, 0, worldSize, worldSize), 25);
+        world.setSpatialIndex(CELL_SIZE);
+        for (int i = 0; i < obstacles; i++) {
+            double side = 50 + random.nextInt(250);
+            world.addObstacle(new Rectangle(random.nextDouble(worldSize - side), random.nextDouble(worldSize - side),
+                    side, side, Color.gray));
+        }
+        for (int i = 0; i < balls; i++) {
+            int size = 3 + random.nextInt(12);
+            Ball ball = new Ball(random.nextDouble(size, worldSize - size), random.nextDouble(size, worldSize - size),
+                    size, new Color(random.nextInt(255), random.nextInt(255), random.nextInt(255)),
+                    random.nextDouble(360), 25 - (size / 2.0));
+            if (isFree(world, ball)) {
+                world.addBall(ball);
+            }
+        }
+        return world;
+    }
+
+    /**
+     * @param world an indexed world
+     * @param ball  a ball that is not in the world yet
+     * @return true if the ball touches no obstacle of the world
+     */
+    private static boolean isFree(World world, Ball ball) {
+        IntList nearby = new IntList();
+        int r = ball.getSize();
+        world.getObstacleIndex().query(ball.getCenterX() - r, ball.getCenterY() - r,
+                ball.getCenterX() + r, ball.getCenterY() + r, nearby);
+        for (int k = 0; k < nearby.size(); k++) {
+            if (ball.isIntersecting(world.getObstacles().get(nearby.get(k)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args optional: world side, number of balls, number of obstacles, a file to export the world
+     *             to for {@link WorldViewer}
+     * @throws IOException if the export file cannot be created
+     */
+    public static void main(String[] args) throws IOException {
+        double worldSize = args.length > 0 ? Double.parseDouble(args[0]) : DEFAULT_WORLD_SIZE;
+        int balls = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BALLS;
+        int obstacles = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_OBSTACLES;
+
+        World world = createWorld(worldSize, balls, obstacles);
+        ControlConsole.startOnStandardInput(world);
+        WorldExporter exporter = args.length > 3
+                ? new WorldExporter(world, Path.of(args[3]), world.getBalls().size() * 2, obstacles) : null;
+        GUI gui = new GUI("Large World - arrows to move", World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
+        Camera camera = new Camera(world.getFrame(), World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
+        camera.centerOn(new Point(worldSize / 2, worldSize / 2));
+        BallKdTree tree = new BallKdTree(world.getBalls());
+        IntList nearest = new IntList();
+        Sleeper sleeper = new Sleeper();
+
+        while (true) {
+            camera.follow(gui.getKeyboardSensor(), CAMERA_SPEED);
+            world.step();
+            if (exporter != null) {
+                exporter.publish();
+            }
+            tree.update();
+            DrawSurface surface = gui.getDrawSurface();
+            camera.drawOn(world, surface);
+            tree.nearest(camera.getX() + World.DEFAULT_WIDTH / 2.0, camera.getY() + World.DEFAULT_HEIGHT / 2.0,
+                    HIGHLIGHTED, nearest);
+            surface.setColor(Color.red);
+            for (int k = 0; k < nearest.size(); k++) {
+                Ball ball = world.getBalls().get(nearest.get(k));
+                surface.drawCircle((int) (ball.getCenterX() - camera.getX()), (int) (ball.getCenterY() - camera.getY()),
+                        ball.getSize() + 3);
+            }
+            gui.show(surface);
+            sleeper.sleepFor(world.getTickMillis());
+        }
+    }
+}
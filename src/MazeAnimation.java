@@ -0,0 +1,176 @@
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.Random;
+
+import biuoop.DrawSurface;
+import biuoop.GUI;
+import biuoop.Sleeper;
+
+/**
+ * Balls bouncing through a large random maze made of thin walls, explored with the arrow keys.
+ * A fan of sight lines is cast from the middle of the view every frame.
+ */
+public class MazeAnimation {
+    private static final int DEFAULT_COLUMNS = 150;
+    private static final int DEFAULT_ROWS = 150;
+    private static final int DEFAULT_BALLS = 20_000;
+    private static final double CORRIDOR = 40;
+    private static final double CELL_SIZE = 80;
+    private static final double CAMERA_SPEED = 20;
+    private static final int RAYS = 720;
+    private static final double RAY_LENGTH = 300;
+
+    /**
+     * Carves a perfect maze with a randomized depth-first search and returns its walls.
+     * Every maze cell starts with a wall on its right and bottom sides; walls between cells
+     * the search passes through are removed.
+     *
+     * @param columns the number of maze columns
+     * @param rows    the number of maze rows
+     * @param random  the source of randomness
+     * @return the walls, in a map covering the maze
+     */
+    static WallMap createMaze(int columns, int rows, Random random) {
+        boolean[] right = new boolean[columns * rows];
+        boolean[] bottom = new boolean[columns * rows];
+        boolean[] visited = new boolean[columns * rows];
+        Arrays.fill(right, true);
+        Arrays.fill(bottom, true);
+
+        int[] stack = new int[columns * rows];
+        int top = 0;
+        stack[top++] = 0;
+        visited[0] = true;
+        int[] options = new int[4];
+        while (top > 0) {
+            int cell = stack[top - 1];
+            int column = cell % columns;
+            int row = cell / columns;
+            int count = 0;
+            if (column > 0 && !visited[cell - 1]) {
+                options[count++] = cell - 1;
+            }
+            if (column < columns - 1 && !visited[cell + 1]) {
+                options[count++] = cell + 1;
+            }
+            if (row > 0 && !visited[cell - columns]) {
+                options[count++] = cell - columns;
+            }
+            if (row < rows - 1 && !visited[cell + columns]) {
+                options[count++] = cell + columns;
+            }
+            if (count == 0) {
+                top--;
+                continue;
+            }
+            int next = options[random.nextInt(count)];
+            if (next == cell + 1) {
+                right[cell] = false;
+            } else if (next == cell - 1) {
+                right[next] = false;
+            } else if (next == cell + columns) {
+                bottom[cell] = false;
+            } else {
+                bottom[next] = false;
+            }
+            visited[next] = true;
+            stack[top++] = next;
+        }
+
+        WallMap walls = new WallMap(new Rectangle(0, 0, columns * CORRIDOR, rows * CORRIDOR), CELL_SIZE);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int cell = row * columns + column;
+                double x = column * CORRIDOR;
+                double y = row * CORRIDOR;
+                // the walls on the outer edge are the frame of the world
+                if (right[cell] && column < columns - 1) {
+                    walls.addWall(new Line(x + CORRIDOR, y, x + CORRIDOR, y + CORRIDOR));
+                }
+                if (bottom[cell] && row < rows - 1) {
+                    walls.addWall(new Line(x, y + CORRIDOR, x + CORRIDOR, y + CORRIDOR));
+                }
+            }
+        }
+        return walls;
+    }
+
+    /**
+     * Builds a maze world with small balls starting at the centers of random maze cells.
+     *
+     * @param columns the number of maze columns
+     * @param rows    the number of maze rows
+     * @param balls   the number of balls
+     * @return the new world
+     */
+    static World createWorld(int columns, int rows, int balls) {
+        Random random = new Random();
+        World world = new World("maze", new Rectangle(0, 0, columns * CORRIDOR, rows * CORRIDOR), 25);
+        world.setSpatialIndex(CELL_SIZE);
+        world.setWalls(createMaze(columns, rows, random));
+        for (int i = 0; i < balls; i++) {
+            int size = 3 + random.nextInt(8);
+            double x = (random.nextInt(columns) + 0.5) * CORRIDOR;
+            double y = (random.nextInt(rows) + 0.5) * CORRIDOR;
+            world.addBall(new Ball(x, y, size, new Color(random.nextInt(255), random.nextInt(255),
+                    random.nextInt(255)), random.nextDouble(360), 2 + random.nextInt(10)));
+        }
+        return world;
+    }
+
+    /**
+     * Casts a fan of rays from a point and draws each up to the first wall it hits.
+     *
+     * @param caster  the caster of the world
+     * @param hit     reused for every ray
+     * @param x       the world x-coordinate of the eye
+     * @param y       the world y-coordinate of the eye
+     * @param camera  the camera the surface shows
+     * @param surface the surface to draw on
+     */
+    private static void drawSightLines(RayCaster caster, RayHit hit, double x, double y, Camera camera,
+                                       DrawSurface surface) {
+        surface.setColor(Color.orange);
+        int eyeX = (int) (x - camera.getX());
+        int eyeY = (int) (y - camera.getY());
+        for (int i = 0; i < RAYS; i++) {
+            double angle = 2 * Math.PI * i / RAYS;
+            double endX = x + RAY_LENGTH * Math.cos(angle);
+            double endY = y + RAY_LENGTH * Math.sin(angle);
+            if (caster.cast(x, y, endX, endY, hit)) {
+                endX = hit.getX();
+                endY = hit.getY();
+            }
+            surface.drawLine(eyeX, eyeY, (int) (endX - camera.getX()), (int) (endY - camera.getY()));
+        }
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args optional: maze columns, maze rows, number of balls
+     */
+    public static void main(String[] args) {
+        int columns = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_COLUMNS;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROWS;
+        int balls = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BALLS;
+
+        World world = createWorld(columns, rows, balls);
+        GUI gui = new GUI("Maze - arrows to move", World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
+        Camera camera = new Camera(world.getFrame(), World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
+        RayCaster caster = new RayCaster(world);
+        RayHit hit = new RayHit();
+        Sleeper sleeper = new Sleeper();
+
+        while (true) {
+            camera.follow(gui.getKeyboardSensor(), CAMERA_SPEED);
+            world.step();
+            DrawSurface surface = gui.getDrawSurface();
+            camera.drawOn(world, surface);
+            drawSightLines(caster, hit, camera.getX() + World.DEFAULT_WIDTH / 2.0,
+                    camera.getY() + World.DEFAULT_HEIGHT / 2.0, camera, surface);
+            gui.show(surface);
+            sleeper.sleepFor(world.getTickMillis());
+        }
+    }
+}
@@ -0,0 +1,218 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Measures what sorting the balls along the Z-order curve buys: two packed copies of a large
+ * world with indexed obstacles, like the one of {@link LargeWorldAnimation}, are stepped in
+ * turns with {@link PackedBalls#stepAndBounce(Rectangle, List, UniformGrid)}. One keeps the
+ * order the balls were made in, the other is put in {@link MortonOrder} every few steps.
+ * Prints the time per step and ball throughput of both, what one sort costs with one thread
+ * and with several, and checks that both copies, and an indexed {@link World} stepping the
+ * ball objects, end with every ball in the same place.
+ *
+ * <p>Usage: {@code MortonBenchmark [balls=200000] [size=20000] [obstacles=2000] [steps=200]
+ * [interval=50] [threads=4] [precision=double] [check=true] [seed=1]}</p>
+ */
+public class MortonBenchmark {
+    private static final double CELL_SIZE = 256;
+    private static final int BLOCK = 10;
+    private static final int SORT_REPEATS = 10;
+
+    /**
+     * Finds a key=value argument.
+     *
+     * @param args         the command line
+     * @param key          the key to look for
+     * @param defaultValue the value to use if the key is absent
+     * @return the value
+     */
+    private static String option(String[] args, String key, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                return arg.substring(key.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Builds gray square obstacles anywhere in the frame.
+     *
+     * @param frame the frame
+     * @param count the number of obstacles
+     * @param seed  the random seed
+     * @return the obstacles
+     */
+    private static List<Rectangle> createObstacles(Rectangle frame, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Rectangle> obstacles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double side = 50 + random.nextInt(250);
+            obstacles.add(new Rectangle(random.nextDouble(frame.getWidth() - side),
+                    random.nextDouble(frame.getHeight() - side), side, side, Color.gray));
+        }
+        return obstacles;
+    }
+
+    /**
+     * Builds small balls in random places, outside the obstacles, so the order they are made in
+     * has nothing to do with where they are.
+     *
+     * @param frame     the frame
+     * @param obstacles the obstacles
+     * @param index     the obstacle index
+     * @param count     the number of balls tried; those touching an obstacle are left out
+     * @param seed      the random seed
+     * @return the balls
+     */
+    private static List<Ball> createBalls(Rectangle frame, List<Rectangle> obstacles, UniformGrid index, int count,
+                                          long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Ball> balls = new ArrayList<>(count);
+        IntList nearby = new IntList();
+        for (int i = 0; i < count; i++) {
+            int r = 3 + random.nextInt(12);
+            double x = random.nextDouble(r, frame.getWidth() - r);
+            double y = random.nextDouble(r, frame.getHeight() - r);
+            Ball ball = new Ball(x, y, r, Color.red, random.nextDouble(360), 25 - (r / 2.0));
+            index.query(ball.getCenterX() - r, ball.getCenterY() - r, ball.getCenterX() + r, ball.getCenterY() + r,
+                    nearby);
+            boolean free = true;
+            for (int k = 0; k < nearby.size(); k++) {
+                free &= !ball.isIntersecting(obstacles.get(nearby.get(k)));
+            }
+            if (free) {
+                balls.add(ball);
+            }
+        }
+        return balls;
+    }
+
+    /**
+     * @param a packed balls
+     * @param b packed copies of the same balls, maybe in another order
+     * @return the largest distance between a ball in one and the ball with the same id in the other
+     */
+    private static double maxDistance(PackedBalls a, PackedBalls b) {
+        double worst = 0;
+        for (int i = 0; i < a.size(); i++) {
+            int j = b.indexOf(a.getId(i));
+            worst = Math.max(worst, Math.hypot(a.getX(i) - b.getX(j), a.getY(i) - b.getY(j)));
+        }
+        return worst;
+    }
+
+    /**
+     * @param sorter the sorter
+     * @param balls  the balls, which are not changed
+     * @param frame  the frame
+     * @return the average time of a sort, in milliseconds
+     */
+    private static double timeSort(MortonOrder sorter, PackedBalls balls, Rectangle frame) {
+        sorter.sort(balls, frame);
+        long start = System.nanoTime();
+        for (int k = 0; k < SORT_REPEATS; k++) {
+            sorter.sort(balls, frame);
+        }
+        return (System.nanoTime() - start) / 1e6 / SORT_REPEATS;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args key=value options, see the class documentation
+     */
+    public static void main(String[] args) {
+        int count = Integer.parseInt(option(args, "balls", "200000"));
+        double size = Double.parseDouble(option(args, "size", "20000"));
+        int obstacleCount = Integer.parseInt(option(args, "obstacles", "2000"));
+        int steps = Integer.parseInt(option(args, "steps", "200"));
+        int interval = Integer.parseInt(option(args, "interval", "50"));
+        int threads = Integer.parseInt(option(args, "threads", "4"));
+        Precision precision = Precision.parse(option(args, "precision", "double"));
+        boolean check = Boolean.parseBoolean(option(args, "check", "true"));
+        long seed = Long.parseLong(option(args, "seed", "1"));
+
+        Rectangle frame = new Rectangle(0, 0, size, size, Color.white);
+        List<Rectangle> obstacles = createObstacles(frame, obstacleCount, seed);
+        UniformGrid index = new UniformGrid(frame, CELL_SIZE);
+        for (int i = 0; i < obstacles.size(); i++) {
+            Rectangle obstacle = obstacles.get(i);
+            double minX = obstacle.getMin().getX();
+            double minY = obstacle.getMin().getY();
+            index.insert(i, minX, minY, minX + obstacle.getWidth(), minY + obstacle.getHeight());
+        }
+        List<Ball> balls = createBalls(frame, obstacles, index, count, seed);
+        PackedBalls plain = PackedBalls.of(precision, balls);
+        PackedBalls sorted = PackedBalls.of(precision, balls);
+        MortonOrder sorter = new MortonOrder(threads);
+
+        long plainNanos = 0;
+        long sortedNanos = 0;
+        long sortNanos = 0;
+        long plainHits = 0;
+        long sortedHits = 0;
+        int sorts = 0;
+        for (int done = 0; done < steps; done += BLOCK) {
+            int block = Math.min(BLOCK, steps - done);
+            long start = System.nanoTime();
+            for (int s = 0; s < block; s++) {
+                plainHits += plain.stepAndBounce(frame, obstacles, index);
+            }
+            long middle = System.nanoTime();
+            for (int s = done; s < done + block; s++) {
+                if (interval > 0 && s % interval == 0) {
+                    long sortStart = System.nanoTime();
+                    sorted.reorder(sorter.sort(sorted, frame));
+                    sortNanos += System.nanoTime() - sortStart;
+                    sorts++;
+                }
+                sortedHits += sorted.stepAndBounce(frame, obstacles, index);
+            }
+            sortedNanos += System.nanoTime() - middle;
+            plainNanos += middle - start;
+        }
+        int n = plain.size();
+        System.out.printf("%d %s balls, %d obstacles, %d steps, sorted every %d steps%n",
+                n, precision.name().toLowerCase(), obstacles.size(), steps, interval);
+        System.out.printf("made order:   %.2f ms per step, %.1f M balls per second, %d hits%n",
+                plainNanos / 1e6 / steps, (double) n * steps / plainNanos * 1e3, plainHits);
+        System.out.printf("Morton order: %.2f ms per step, %.1f M balls per second, %d hits;"
+                        + " %d sorts took %.1f ms of it%n", sortedNanos / 1e6 / steps,
+                (double) n * steps / sortedNanos * 1e3, sortedHits, sorts, sortNanos / 1e6);
+
+        MortonOrder serial = new MortonOrder(1);
+        int[] expected = serial.sort(plain, frame).clone();
+        int[] actual = sorter.sort(plain, frame);
+        int mismatched = 0;
+        for (int i = 0; i < n; i++) {
+            if (expected[i] != actual[i]) {
+                mismatched++;
+            }
+        }
+        System.out.printf("one sort: %.2f ms on 1 thread, %.2f ms on %d threads, %d places differ;"
+                        + " %d of %d radix passes skipped%n", timeSort(serial, plain, frame),
+                timeSort(sorter, plain, frame), threads, mismatched, serial.getSkippedPasses(),
+                serial.getSkippedPasses() + serial.getPasses());
+        sorter.shutdown();
+        System.out.printf("largest distance between the packed copies %.3g px%n", maxDistance(plain, sorted));
+
+        if (check) {
+            World world = new World("morton", frame, 0);
+            world.setSpatialIndex(CELL_SIZE);
+            for (Rectangle obstacle : obstacles) {
+                world.addObstacle(obstacle);
+            }
+            for (Ball ball : balls) {
+                world.addBall(ball);
+            }
+            for (int s = 0; s < steps; s++) {
+                world.step();
+            }
+            System.out.printf("largest distance to the ball objects stepped by a world %.3g px%n",
+                    maxDistance(sorted, PackedBalls.of(precision, world.getBalls())));
+        }
+    }
+}
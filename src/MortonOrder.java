@@ -0,0 +1,309 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sorts balls along the Z-order (Morton) curve of their centers: the frame is split into a
+ * 65536 x 65536 grid and the bits of a cell's column and row are interleaved into one key, so
+ * balls whose keys are close are close in the frame. Stepping balls in that order visits the
+ * obstacles and index cells of one neighborhood before moving on to the next. Sorting only
+ * pays where the balls' data moves with the order, as in {@link PackedBalls#reorder(int[])}:
+ * sorting a list of {@link Ball} objects leaves the objects where they are in memory.
+ *
+ * <p>The keys are sorted with a least significant digit radix sort, one byte per pass. Passes
+ * in which every key has the same byte are skipped, so a frame that only fills part of the
+ * grid costs fewer passes. With more than one thread each pass is split into chunks: every
+ * chunk counts its bytes, the counts are added up in chunk order, and every chunk then moves
+ * its keys to their places. The sort is stable, so balls with equal keys keep their order and
+ * the result does not depend on the number of threads.</p>
+ */
+public class MortonOrder {
+    private static final int GRID_BITS = 16;
+    private static final int GRID_MAX = (1 << GRID_BITS) - 1;
+    private static final int DIGIT_BITS = 8;
+    private static final int RADIX = 1 << DIGIT_BITS;
+    private static final int KEY_BITS = 2 * GRID_BITS;
+    private static final int MIN_CHUNK = 1 << 14;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final int threads;
+    // key in the high half, position before sorting in the low half
+    private long[] entries = new long[0];
+    private long[] scratch = new long[0];
+    private int[][] counts = new int[0][];
+    private int[] order = new int[0];
+    private int size;
+    private int chunks;
+    private int chunkSize;
+    private long passes;
+    private long skippedPasses;
+
+    /**
+     * Constructs a sorter.
+     *
+     * @param threads the number of threads sorting; 1 sorts on the calling thread
+     */
+    public MortonOrder(int threads) {
+        this.threads = Math.max(1, threads);
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    // ---------------- Keys ----------------
+
+    /**
+     * @param x      an x-coordinate
+     * @param y      a y-coordinate
+     * @param bounds the area the grid covers; points outside it get the key of the nearest border cell
+     * @return the Morton key of the grid cell of the point, as an unsigned 32-bit value
+     */
+    public static int encode(double x, double y, Rectangle bounds) {
+        int column = toGrid(x, bounds.getMin().getX(), bounds.getWidth());
+        int row = toGrid(y, bounds.getMin().getY(), bounds.getHeight());
+        return spread(column) | (spread(row) << 1);
+    }
+
+    /**
+     * @param value  a coordinate
+     * @param origin the start of the covered range
+     * @param extent the length of the covered range
+     * @return the grid line the coordinate falls on, from 0 to 65535
+     */
+    private static int toGrid(double value, double origin, double extent) {
+        double scaled = (value - origin) / extent * GRID_MAX;
+        return (int) Math.max(0, Math.min(GRID_MAX, scaled));
+    }
+
+    /**
+     * @param value a 16-bit value
+     * @return the value with a zero bit inserted above each of its bits
+     */
+    private static int spread(int value) {
+        int spread = 0;
+        for (int bit = 0; bit < GRID_BITS; bit++) {
+            spread |= ((value >>> bit) & 1) << (2 * bit);
+        }
+        return spread;
+    }
+
+    // ---------------- Sorting ----------------
+
+    /**
+     * Finds the Morton order of a list of balls. The list is not changed.
+     *
+     * @param balls  the balls
+     * @param bounds the area the keys are computed over, usually the frame
+     * @return for each place in the sorted order, the position in the list of the ball that goes
+     *         there; only the first {@code balls.size()} entries are used, and the array is reused
+     *         by the next call
+     */
+    public int[] sort(List<Ball> balls, Rectangle bounds) {
+        prepare(balls.size());
+        for (int i = 0; i < size; i++) {
+            Ball ball = balls.get(i);
+            setKey(i, encode(ball.getCenterX(), ball.getCenterY(), bounds));
+        }
+        return radixSort();
+    }
+
+    /**
+     * Finds the Morton order of packed balls, ready for {@link PackedBalls#reorder(int[])}.
+     * The balls are not changed.
+     *
+     * @param balls  the balls
+     * @param bounds the area the keys are computed over, usually the frame
+     * @return for each place in the sorted order, the index of the ball that goes there; only the
+     *         first {@code balls.size()} entries are used, and the array is reused by the next call
+     */
+    public int[] sort(PackedBalls balls, Rectangle bounds) {
+        prepare(balls.size());
+        for (int i = 0; i < size; i++) {
+            setKey(i, encode(balls.getX(i), balls.getY(i), bounds));
+        }
+        return radixSort();
+    }
+
+    /**
+     * @param n the number of entries to sort
+     */
+    private void prepare(int n) {
+        size = n;
+        if (entries.length < size) {
+            entries = new long[size];
+            scratch = new long[size];
+            order = new int[size];
+        }
+        chunks = pool == null ? 1 : Math.max(1, Math.min(threads * CHUNKS_PER_THREAD, size / MIN_CHUNK));
+        chunkSize = (size + chunks - 1) / chunks;
+        if (counts.length < chunks) {
+            counts = new int[chunks][RADIX];
+        }
+    }
+
+    /**
+     * @param i   the position of an entry
+     * @param key its Morton key
+     */
+    private void setKey(int i, int key) {
+        entries[i] = ((key & 0xFFFFFFFFL) << Integer.SIZE) | i;
+    }
+
+    /**
+     * Sorts the entries by key, one byte at a time from the lowest.
+     *
+     * @return the positions the entries had, in sorted order
+     */
+    private int[] radixSort() {
+        for (int shift = Integer.SIZE; shift < Integer.SIZE + KEY_BITS; shift += DIGIT_BITS) {
+            run(false, shift);
+            if (isSingleDigit()) {
+                skippedPasses++;
+                continue;
+            }
+            toOffsets();
+            run(true, shift);
+            long[] swap = entries;
+            entries = scratch;
+            scratch = swap;
+            passes++;
+        }
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) entries[i];
+        }
+        return order;
+    }
+
+    /**
+     * Counts or moves the entries of every chunk for one byte of the key.
+     *
+     * @param scatter false to count, true to move
+     * @param shift   the position of the byte in the entries
+     */
+    private void run(boolean scatter, int shift) {
+        if (pool == null || chunks == 1) {
+            for (int c = 0; c < chunks; c++) {
+                runChunk(c, scatter, shift);
+            }
+        } else {
+            pool.invoke(new ChunkTask(this, scatter, shift, 0, chunks));
+        }
+    }
+
+    /**
+     * @param c       the chunk
+     * @param scatter false to count the chunk's bytes, true to move its entries to their places
+     * @param shift   the position of the byte in the entries
+     */
+    private void runChunk(int c, boolean scatter, int shift) {
+        int lo = c * chunkSize;
+        int hi = Math.min(size, lo + chunkSize);
+        int[] count = counts[c];
+        if (!scatter) {
+            Arrays.fill(count, 0);
+            for (int i = lo; i < hi; i++) {
+                count[(int) (entries[i] >>> shift) & (RADIX - 1)]++;
+            }
+            return;
+        }
+        for (int i = lo; i < hi; i++) {
+            long entry = entries[i];
+            scratch[count[(int) (entry >>> shift) & (RADIX - 1)]++] = entry;
+        }
+    }
+
+    /**
+     * @return true if every entry has the same byte in the pass just counted, so the pass would
+     *         not change the order
+     */
+    private boolean isSingleDigit() {
+        for (int d = 0; d < RADIX; d++) {
+            int total = 0;
+            for (int c = 0; c < chunks; c++) {
+                total += counts[c][d];
+            }
+            if (total != 0) {
+                return total == size;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Turns the counts into the place each chunk writes its first entry of each byte: all
+     * smaller bytes come first, then the same byte from earlier chunks.
+     */
+    private void toOffsets() {
+        int next = 0;
+        for (int d = 0; d < RADIX; d++) {
+            for (int c = 0; c < chunks; c++) {
+                int count = counts[c][d];
+                counts[c][d] = next;
+                next += count;
+            }
+        }
+    }
+
+    // ---------------- Statistics ----------------
+
+    /**
+     * @return the number of radix passes run so far
+     */
+    public long getPasses() {
+        return passes;
+    }
+
+    /**
+     * @return the number of radix passes skipped so far because all keys shared the byte
+     */
+    public long getSkippedPasses() {
+        return skippedPasses;
+    }
+
+    /**
+     * Stops the sorting threads, if there are any.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Counts or moves a range of chunks, splitting it until each task has one chunk.
+     */
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient MortonOrder sorter;
+        private final boolean scatter;
+        private final int shift;
+        private final int lo;
+        private final int hi;
+
+        /**
+         * @param sorter  the sort in progress
+         * @param scatter false to count, true to move
+         * @param shift   the position of the byte in the entries
+         * @param lo      the first chunk
+         * @param hi      one past the last chunk
+         */
+        private ChunkTask(MortonOrder sorter, boolean scatter, int shift, int lo, int hi) {
+            this.sorter = sorter;
+            this.scatter = scatter;
+            this.shift = shift;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ChunkTask(sorter, scatter, shift, lo, mid),
+                        new ChunkTask(sorter, scatter, shift, mid, hi));
+            } else if (hi > lo) {
+                sorter.runChunk(lo, scatter, shift);
+            }
+        }
+    }
+}
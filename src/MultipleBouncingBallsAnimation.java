@@ -3,9 +3,8 @@ import java.util.ArrayList;
 import java.util.Random;
 import java.awt.Color;
 
-import biuoop.GUI;
 import biuoop.DrawSurface;
-import biuoop.Sleeper;
+import biuoop.GUI;
 
 /**
  * A program that creates an animation of multiple bouncing balls based on input sizes.
@@ -23,6 +22,20 @@ public class MultipleBouncingBallsAnimation {
      * @return a list of initialized Ball objects
      */
     public static List<Ball> inputToBalls(String[] args, GUI gui) {
+        DrawSurface surface = gui.getDrawSurface();
+        return inputToBalls(args, surface.getWidth(), surface.getHeight());
+    }
+
+    /**
+     * Converts the input string array into a list of Ball objects spread over a world of the
+     * given size, which may be larger than the window.
+     *
+     * @param args   the string array representing ball sizes (as numbers)
+     * @param width  the width of the world
+     * @param height the height of the world
+     * @return a list of initialized Ball objects
+     */
+    public static List<Ball> inputToBalls(String[] args, double width, double height) {
         List<Ball> balls = new ArrayList<>();
         Random random = new Random();
 
@@ -41,14 +54,14 @@ public class MultipleBouncingBallsAnimation {
             }
 
             Ball newBall = new Ball(
-                    random.nextDouble(size, 800 - size),
-                    random.nextDouble(size, 600 - size),
+                    random.nextDouble(size, width - size),
+                    random.nextDouble(size, height - size),
                     (int) size,
                     new Color(random.nextInt(255), random.nextInt(255), random.nextInt(255)),
                     ballVelocity
             );
 
-            newBall.validateSpawn(gui.getDrawSurface());
+            newBall.validateSpawn(width, height);
             balls.add(newBall);
         }
 
@@ -57,23 +70,18 @@ public class MultipleBouncingBallsAnimation {
 
     /**
      * Runs the animation: repeatedly moves and draws each ball on the GUI surface.
+     * Moving runs on its own thread, one step ahead of drawing, see {@link PipelinedRenderer}.
      *
      * @param balls the list of balls to animate
      * @param gui   the GUI object used for display
      */
     private static void drawAnimation1(List<Ball> balls, GUI gui) {
-        while (true) {
-            Sleeper sleeper = new Sleeper();
-            DrawSurface drawSurface = gui.getDrawSurface();
-
+        Runnable step = () -> {
             for (Ball ball : balls) {
                 ball.moveOneStep();
-                ball.drawOn(drawSurface);
             }
-
-            gui.show(drawSurface);
-            sleeper.sleepFor(25);
-        }
+        };
+        new PipelinedRenderer(gui, balls, step, 25).run();
     }
 
     /**
@@ -83,7 +91,7 @@ public class MultipleBouncingBallsAnimation {
      * @param args array of string representations of ball sizes
      */
     public static void main(String[] args) {
-        GUI gui = new GUI("Balls Bonanza", 800, 600);
+        GUI gui = new GUI("Balls Bonanza", World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
         List<Ball> balls = inputToBalls(args, gui);
         drawAnimation1(balls, gui);
     }
@@ -4,8 +4,6 @@ import java.util.Random;
 import java.awt.Color;
 
 import biuoop.GUI;
-import biuoop.DrawSurface;
-import biuoop.Sleeper;
 
 /**
  * This program creates an animation with multiple bouncing balls,
@@ -106,35 +104,31 @@ public class MultipleFramesBouncingBallsAnimation {
      * moves each ball, and displays them on the GUI.
      * Balls inside the gray box bounce inside it.
      * Balls outside it bounce off the edges of the screen and the box.
+     * The two groups are the zones of a {@link ZonedWorld}, each stepped by its own loop.
+     * Moving runs on its own thread, one step ahead of drawing, see {@link PipelinedRenderer}.
      *
      * @param balls list of balls to animate
      * @param gui   the GUI window used for drawing
      */
     private static void drawAnimation2(List<Ball> balls, GUI gui) {
-        Sleeper sleeper = new Sleeper();
         Rectangle frame = new Rectangle(0, 0, 800, 600);
         Rectangle grayRec = new Rectangle(50, 50, 450, 450, Color.gray);
         Rectangle yellowRec = new Rectangle(450, 450, 150, 150, Color.yellow);
         int mid = balls.size() / 2;
 
-        while (true) {
-            DrawSurface window = gui.getDrawSurface();
-            grayRec.drawOn(window);
-
-            for (int i = 0; i < balls.size(); i++) {
-                Ball thisBall = balls.get(i);
-                if (i < mid) {
-                    thisBall.moveStepInBox(grayRec); // inside gray box
-                } else {
-                    thisBall.moveStepInBoxAndCollide(frame, grayRec); // outside box, avoid gray
-                }
-                thisBall.drawOn(window);
-            }
-
-            yellowRec.drawOn(window);
-            gui.show(window);
-            sleeper.sleepFor(40);
+        // each half is registered once with the zone whose rules it follows
+        ZonedWorld world = new ZonedWorld();
+        Zone inside = world.addZone("inside", grayRec, List.of());
+        Zone outside = world.addZone("outside", frame, List.of(grayRec));
+        for (int i = 0; i < balls.size(); i++) {
+            (i < mid ? inside : outside).add(balls.get(i));
         }
+        Runnable step = world::step;
+
+        PipelinedRenderer renderer = new PipelinedRenderer(gui, balls, step, 40);
+        renderer.addBackground(grayRec);
+        renderer.addForeground(yellowRec);
+        renderer.run();
     }
 
     /**
@@ -150,7 +144,7 @@ public class MultipleFramesBouncingBallsAnimation {
             args = new String[]{"20", "12", "23", "14", "29"};
         }
 
-        GUI gui = new GUI("Balls Bonanza - fancy edition", 800, 600);
+        GUI gui = new GUI("Balls Bonanza - fancy edition", World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
         List<Ball> balls = inputToBalls(args);
         drawAnimation2(balls, gui);
     }
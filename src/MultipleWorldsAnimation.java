@@ -0,0 +1,84 @@
+import java.awt.Color;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import biuoop.GUI;
+import biuoop.Sleeper;
+
+/**
+ * Runs many independent bouncing-ball worlds on one {@link WorldHost}.
+ * The first world is shown in a window, the rest run headless, each with its own
+ * tick rate between 20 and 50 milliseconds.
+ */
+public class MultipleWorldsAnimation {
+    private static final int DEFAULT_WORLDS = 1000;
+    private static final int DEFAULT_BALLS = 10;
+    private static final long REPORT_MILLIS = 5000;
+
+    /**
+     * Creates a world laid out like MultipleFramesBouncingBallsAnimation:
+     * a gray obstacle and small balls spawned around it.
+     *
+     * @param index the index of the world, used for its name and seed
+     * @param balls the number of balls
+     * @return the new world
+     */
+    private static World createWorld(int index, int balls) {
+        Random random = new Random(index);
+        World world = new World("world-" + index, new Rectangle(0, 0, World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT),
+                20 + random.nextInt(31));
+        world.addObstacle(new Rectangle(50, 50, 450, 450, Color.gray));
+
+        for (int i = 0; i < balls; i++) {
+            int size = 5 + random.nextInt(20);
+            Velocity velocity = Velocity.fromAngleAndSpeed(random.nextDouble(360), 25 - (size / 2.0));
+            double x;
+            double y;
+            do {
+                x = random.nextDouble(size, World.DEFAULT_WIDTH - size);
+                y = random.nextDouble(size, World.DEFAULT_HEIGHT - size);
+            } while (x + size >= 50 && x - size <= 500 && y + size >= 50 && y - size <= 500);
+            world.addBall(new Ball(x, y, size,
+                    new Color(random.nextInt(255), random.nextInt(255), random.nextInt(255)), velocity));
+        }
+        return world;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args optional: number of worlds, balls per world
+     */
+    public static void main(String[] args) {
+        int worlds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_WORLDS;
+        int balls = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BALLS;
+
+        WorldHost host = new WorldHost();
+        for (int i = 0; i < worlds; i++) {
+            World world = createWorld(i, balls);
+            if (i == 0) {
+                world.setGui(new GUI("Many Worlds - world 0 of " + worlds, World.DEFAULT_WIDTH,
+                        World.DEFAULT_HEIGHT));
+            }
+            host.add(world);
+        }
+        host.start();
+
+        Sleeper sleeper = new Sleeper();
+        long lastTicks = 0;
+        Set<World> reported = new HashSet<>();
+        while (true) {
+            sleeper.sleepFor(REPORT_MILLIS);
+            long ticks = host.getTotalTicks();
+            System.out.println(worlds + " worlds: " + (ticks - lastTicks) * 1000 / REPORT_MILLIS + " ticks/s");
+            for (Map.Entry<World, Throwable> failure : host.getFailed().entrySet()) {
+                if (reported.add(failure.getKey())) {
+                    System.out.println("world " + failure.getKey().getName() + " stopped: " + failure.getValue());
+                }
+            }
+            lastTicks = ticks;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Compares {@link MultirateScheduler} with stepping every ball every tick, on the mixed
+ * population of {@link MultipleFramesBouncingBallsAnimation}: large slow balls and small fast
+ * ones around the gray box, optionally with small extra obstacles scattered outside it. Both
+ * copies are brought to the same tick at regular checkpoints; prints the largest distance
+ * between them, the work each did and the time it took. Both take the same number of steps,
+ * since the scheduler adds up missed steps one by one; it saves the obstacle tests of the
+ * steps it combines, which on the default population is small next to the noise of the
+ * timing.
+ *
+ * <p>Usage: {@code MultirateCheck [balls=20000] [ticks=2000] [obstacles=0] [check=100] [levels=5]
+ * [lag=4] [seed=1]}</p>
+ */
+public class MultirateCheck {
+
+    /**
+     * Finds a key=value argument.
+     *
+     * @param args         the command line
+     * @param key          the key to look for
+     * @param defaultValue the value to use if the key is absent
+     * @return the value
+     */
+    private static String option(String[] args, String key, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                return arg.substring(key.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Builds balls outside the gray box, with the speed rule of the animation: radius 1 to 74,
+     * speed 25 - r / 2 below radius 50 and 1 from there.
+     *
+     * @param count the number of balls
+     * @param seed  the random seed
+     * @return the balls
+     */
+    private static List<Ball> createBalls(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Ball> balls = new ArrayList<>(count);
+        double grayMin = AdversarialWorkloads.GRAY_MIN;
+        double grayMax = AdversarialWorkloads.GRAY_MAX;
+        for (int i = 0; i < count; i++) {
+            int size = 1 + random.nextInt(74);
+            double speed = size < 50 ? 25 - size / 2.0 : 1;
+            double x;
+            double y;
+            do {
+                x = random.nextDouble(size, AdversarialWorkloads.FRAME_WIDTH - size);
+                y = random.nextDouble(size, AdversarialWorkloads.FRAME_HEIGHT - size);
+            } while (x + size >= grayMin && x - size <= grayMax && y + size >= grayMin && y - size <= grayMax);
+            balls.add(new Ball(x, y, size, Color.red, random.nextDouble(360), speed));
+        }
+        return balls;
+    }
+
+    /**
+     * Builds the gray box and small square obstacles outside it.
+     *
+     * @param extra the number of small obstacles
+     * @param seed  the random seed
+     * @return the obstacles, the gray box first
+     */
+    private static List<Rectangle> createObstacles(int extra, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Rectangle> obstacles = new ArrayList<>();
+        obstacles.add(AdversarialWorkloads.createObstacle());
+        double side = 10;
+        while (obstacles.size() <= extra) {
+            double x = random.nextDouble(AdversarialWorkloads.FRAME_WIDTH - side);
+            double y = random.nextDouble(AdversarialWorkloads.FRAME_HEIGHT - side);
+            if (x + side < AdversarialWorkloads.GRAY_MIN || x > AdversarialWorkloads.GRAY_MAX
+                    || y + side < AdversarialWorkloads.GRAY_MIN || y > AdversarialWorkloads.GRAY_MAX) {
+                obstacles.add(new Rectangle(x, y, side, side, Color.black));
+            }
+        }
+        return obstacles;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args key=value options, see the class documentation
+     */
+    public static void main(String[] args) {
+        int count = Integer.parseInt(option(args, "balls", "20000"));
+        int ticks = Integer.parseInt(option(args, "ticks", "2000"));
+        int extra = Integer.parseInt(option(args, "obstacles", "0"));
+        int check = Integer.parseInt(option(args, "check", "100"));
+        int levels = Integer.parseInt(option(args, "levels", String.valueOf(MultirateScheduler.DEFAULT_MAX_LEVEL)));
+        double lag = Double.parseDouble(option(args, "lag", String.valueOf(MultirateScheduler.DEFAULT_MAX_LAG)));
+        long seed = Long.parseLong(option(args, "seed", "1"));
+
+        Rectangle frame = AdversarialWorkloads.createFrame();
+        List<Rectangle> obstacles = createObstacles(extra, seed);
+        List<Ball> reference = createBalls(count, seed);
+        MultirateScheduler scheduler = new MultirateScheduler(frame, obstacles, levels, lag);
+        for (Ball ball : createBalls(count, seed)) {
+            scheduler.add(ball);
+        }
+
+        long plainNanos = 0;
+        long multirateNanos = 0;
+        double worst = 0;
+        int diverged = 0;
+        for (int done = 0; done < ticks; done += check) {
+            int span = Math.min(check, ticks - done);
+            long start = System.nanoTime();
+            for (int t = 0; t < span; t++) {
+                for (int i = 0; i < reference.size(); i++) {
+                    Ball ball = reference.get(i);
+                    ball.moveStepInBox(frame);
+                    for (int k = 0; k < obstacles.size(); k++) {
+                        ball.bounceOff(frame, obstacles.get(k));
+                    }
+                }
+            }
+            long middle = System.nanoTime();
+            for (int t = 0; t < span; t++) {
+                scheduler.step();
+            }
+            multirateNanos += System.nanoTime() - middle;
+            plainNanos += middle - start;
+
+            scheduler.synchronize();
+            diverged = 0;
+            for (int i = 0; i < count; i++) {
+                Ball a = reference.get(i);
+                Ball b = scheduler.getBalls().get(i);
+                double distance = Math.hypot(a.getCenterX() - b.getCenterX(), a.getCenterY() - b.getCenterY());
+                worst = Math.max(worst, distance);
+                if (distance > 1e-6) {
+                    diverged++;
+                }
+            }
+        }
+
+        StringBuilder sizes = new StringBuilder();
+        for (int l = 0; l <= levels; l++) {
+            sizes.append(l == 0 ? "" : " ").append(scheduler.getLevelSize(l));
+        }
+        System.out.printf("%d balls, %d ticks, %d obstacles: every tick %.1f ms, %d steps, %d obstacle tests%n",
+                count, ticks, obstacles.size(), plainNanos / 1e6, (long) count * ticks,
+                (long) count * ticks * obstacles.size());
+        System.out.printf("multirate: %.1f ms, %d steps, %d combined moves, %d obstacle tests;"
+                        + " balls per level now %s%n", multirateNanos / 1e6, scheduler.getSteps(),
+                scheduler.getCatchUps(), scheduler.getChecks(), sizes);
+        System.out.printf("largest distance at a checkpoint %.3g px, %d balls further than 1e-6 px at the end%n",
+                worst, diverged);
+    }
+}
@@ -0,0 +1,314 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Steps balls at different rates, in a frame with obstacles: a ball far from everything it
+ * could hit is moved several steps at once, less often, and only balls close to a wall or an
+ * obstacle are stepped every tick with the full collision checks.
+ *
+ * <p>Each ball is in a level L and is moved on the ticks that are multiples of 2<sup>L</sup>,
+ * by all the steps it has missed since its last move. A ball may only be in level L if
+ * 2<sup>L</sup> steps of its velocity end short of its clearance, the distance from its edge
+ * to the nearest wall or obstacle. Those steps then contain no reflection and skip every
+ * collision test; they are still added one by one rather than multiplied, so the ball lands
+ * exactly where stepping every tick would put it, not just close to it. What is saved is the
+ * collision tests of those steps, not the steps themselves: every missed step still costs an
+ * addition, and {@link #getSteps()} counts each of them.</p>
+ *
+ * <p>The level is chosen again after every move. Bounces only reflect velocities, so a ball's
+ * speed never changes; the clearance is measured again only when what is left of it no longer
+ * covers the ball's next move.</p>
+ *
+ * <p>Between its moves a ball is drawn where it was at its last move, so its picture lags by up
+ * to 2<sup>L</sup> - 1 steps. The lag limit keeps that under a number of pixels;
+ * {@link #synchronize()} brings every ball to the current tick exactly.</p>
+ */
+public class MultirateScheduler {
+    /**
+     * Default number of levels above the every-tick level.
+     */
+    public static final int DEFAULT_MAX_LEVEL = 5;
+    /**
+     * Default largest distance a ball is drawn behind where it is, in pixels.
+     */
+    public static final double DEFAULT_MAX_LAG = 4;
+
+    private final Rectangle frame;
+    private final List<Rectangle> obstacles;
+    private final int maxLevel;
+    private final double maxLag;
+    private final List<Ball> balls = new ArrayList<>();
+    private final IntList[] levels;
+    private int[] level = new int[0];
+    private int[] cap = new int[0];
+    private long[] time = new long[0];
+    private double[] speed = new double[0];
+    private double[] room = new double[0];
+    private long[] due = new long[0];
+    private long tick;
+    private long steps;
+    private long catchUps;
+    private long checks;
+
+    /**
+     * Constructs a scheduler without balls.
+     *
+     * @param frame     the frame the balls bounce inside
+     * @param obstacles the obstacles the balls bounce off, which must not move
+     * @param maxLevel  the highest level; balls are moved at least every 2^maxLevel ticks
+     * @param maxLag    the largest distance, in pixels, a ball may be drawn behind where it is
+     */
+    public MultirateScheduler(Rectangle frame, List<Rectangle> obstacles, int maxLevel, double maxLag) {
+        this.frame = frame;
+        this.obstacles = List.copyOf(obstacles);
+        this.maxLevel = maxLevel;
+        this.maxLag = maxLag;
+        this.levels = new IntList[maxLevel + 1];
+        for (int l = 0; l <= maxLevel; l++) {
+            levels[l] = new IntList();
+        }
+    }
+
+    /**
+     * Constructs a scheduler with the default levels and lag.
+     *
+     * @param frame     the frame the balls bounce inside
+     * @param obstacles the obstacles the balls bounce off, which must not move
+     */
+    public MultirateScheduler(Rectangle frame, List<Rectangle> obstacles) {
+        this(frame, obstacles, DEFAULT_MAX_LEVEL, DEFAULT_MAX_LAG);
+    }
+
+    // ---------------- Accessors ----------------
+
+    /**
+     * @return the balls, in the order they were added
+     */
+    public List<Ball> getBalls() {
+        return Collections.unmodifiableList(balls);
+    }
+
+    /**
+     * @return the number of ticks so far
+     */
+    public long getTicks() {
+        return tick;
+    }
+
+    /**
+     * @param l a level, from 0 to the highest level
+     * @return the number of balls in it
+     */
+    public int getLevelSize(int l) {
+        return levels[l].size();
+    }
+
+    /**
+     * @return the number of ball steps taken so far, each step of a combined move counted
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return the number of combined moves so far, each standing for the steps a ball above
+     *         level 0 missed
+     */
+    public long getCatchUps() {
+        return catchUps;
+    }
+
+    /**
+     * @return the number of ball-obstacle tests so far, collision tests and clearance
+     *         measurements together
+     */
+    public long getChecks() {
+        return checks;
+    }
+
+    /**
+     * Adds a ball at the current tick. Its velocity must only change through the scheduler.
+     *
+     * @param ball the ball to add
+     */
+    public void add(Ball ball) {
+        int i = balls.size();
+        balls.add(ball);
+        if (level.length <= i) {
+            int length = Math.max(16, 2 * i);
+            level = Arrays.copyOf(level, length);
+            cap = Arrays.copyOf(cap, length);
+            time = Arrays.copyOf(time, length);
+            speed = Arrays.copyOf(speed, length);
+            room = Arrays.copyOf(room, length);
+            due = Arrays.copyOf(due, length);
+        }
+        time[i] = tick;
+        speed[i] = ball.getVelocity().getSpeed();
+        cap[i] = lagLevel(speed[i]);
+        level[i] = cap[i] == 0 ? 0 : measure(i);
+        levels[level[i]].add(i);
+    }
+
+    // ---------------- Simulation ----------------
+
+    /**
+     * Advances one tick: moves the balls of every level due on this tick by the steps they
+     * have missed, then puts each of them in the level its new clearance allows.
+     */
+    public void step() {
+        tick++;
+        for (int l = maxLevel; l >= 0; l--) {
+            if ((tick & ((1L << l) - 1)) != 0) {
+                continue;
+            }
+            IntList bucket = levels[l];
+            // backwards, so balls leaving the bucket are replaced by ones already done
+            for (int k = bucket.size() - 1; k >= 0; k--) {
+                int i = bucket.get(k);
+                if (time[i] == tick) {
+                    continue;
+                }
+                catchUp(i);
+                int next = nextLevel(i, l);
+                if (next != l) {
+                    bucket.swapRemove(k);
+                    levels[next].add(i);
+                    level[i] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves every ball that is behind to the current tick, so all of them are where stepping
+     * every tick would have put them. Levels are kept.
+     */
+    public void synchronize() {
+        for (int i = 0; i < balls.size(); i++) {
+            if (time[i] < tick) {
+                catchUp(i);
+            }
+        }
+    }
+
+    /**
+     * Moves a ball from its last move to the current tick. A ball of level 0 is stepped with
+     * the full collision checks; a ball of a higher level is sure not to touch anything on the
+     * way, so its steps are added up without any collision test.
+     *
+     * @param i the ball
+     */
+    private void catchUp(int i) {
+        Ball ball = balls.get(i);
+        long missed = tick - time[i];
+        time[i] = tick;
+        steps += missed;
+        if (level[i] == 0) {
+            for (long s = 0; s < missed; s++) {
+                ball.moveStepInBox(frame);
+                for (int k = 0; k < obstacles.size(); k++) {
+                    ball.bounceOff(frame, obstacles.get(k));
+                }
+                checks += obstacles.size();
+            }
+            return;
+        }
+        catchUps++;
+        Velocity velocity = ball.getVelocity();
+        double x = ball.getCenterX();
+        double y = ball.getCenterY();
+        for (long s = 0; s < missed; s++) {
+            x += velocity.getDx();
+            y += velocity.getDy();
+        }
+        ball.setX(x);
+        ball.setY(y);
+        // nothing was hit on the way, so the clearance shrank by at most the distance moved
+        room[i] -= missed * speed[i];
+    }
+
+    /**
+     * @param ballSpeed the speed of a ball
+     * @return the highest level at which the ball is drawn at most the lag limit behind
+     */
+    private int lagLevel(double ballSpeed) {
+        if (ballSpeed == 0) {
+            return maxLevel;
+        }
+        int l = 0;
+        while (l < maxLevel && (2L << l) * ballSpeed <= maxLag + ballSpeed) {
+            l++;
+        }
+        return l;
+    }
+
+    /**
+     * Picks the level of a ball after a move. A ball whose speed keeps it at level 0 stays
+     * there without looking at the obstacles; a ball still at its highest level, with
+     * clearance left for another move there, stays without measuring it again. A ball held
+     * at level 0 by its clearance is measured again only once it may have moved far enough
+     * to leave; measuring too late only keeps it stepping every tick a little longer.
+     *
+     * @param i the ball
+     * @param l its level during the move
+     * @return its new level
+     */
+    private int nextLevel(int i, int l) {
+        if (cap[i] == 0 || (l == 0 && tick < due[i])) {
+            return 0;
+        }
+        if (l > 0 && l == cap[i] && (1L << l) * speed[i] < room[i]) {
+            return l;
+        }
+        int next = measure(i);
+        if (next == 0) {
+            // level 1 needs a clearance of two steps, and each step adds at most one
+            due[i] = tick + Math.max(1, (long) Math.ceil((2 * speed[i] - room[i]) / speed[i]));
+        }
+        return next;
+    }
+
+    /**
+     * Measures the clearance of a ball again.
+     *
+     * @param i the ball
+     * @return the highest level up to its lag level whose combined move stays short of the
+     *         clearance
+     */
+    private int measure(int i) {
+        room[i] = clearance(balls.get(i));
+        int l = cap[i];
+        while (l > 0 && (1L << l) * speed[i] >= room[i]) {
+            l--;
+        }
+        return l;
+    }
+
+    /**
+     * @param ball a ball
+     * @return the distance from the ball's edge to the nearest side of the frame or obstacle;
+     *         zero or less if it touches one
+     */
+    private double clearance(Ball ball) {
+        double x = ball.getCenterX();
+        double y = ball.getCenterY();
+        double minX = frame.getMin().getX();
+        double minY = frame.getMin().getY();
+        double nearest = Math.min(Math.min(x - minX, minX + frame.getWidth() - x),
+                Math.min(y - minY, minY + frame.getHeight() - y));
+        double nearestSquared = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < obstacles.size(); k++) {
+            Rectangle obstacle = obstacles.get(k);
+            double left = obstacle.getMin().getX();
+            double top = obstacle.getMin().getY();
+            double dx = Math.max(Math.max(left - x, x - (left + obstacle.getWidth())), 0);
+            double dy = Math.max(Math.max(top - y, y - (top + obstacle.getHeight())), 0);
+            nearestSquared = Math.min(nearestSquared, dx * dx + dy * dy);
+        }
+        checks += obstacles.size();
+        return Math.min(nearest, Math.sqrt(nearestSquared)) - ball.getSize();
+    }
+}
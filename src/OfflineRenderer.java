@@ -0,0 +1,283 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Renders a {@link World} to a numbered sequence of image files as fast as it can be
+ * simulated, with no window and no waiting between ticks. The calling thread steps the world
+ * and draws each frame into an image; a pool of encoder threads writes the images out.
+ *
+ * <p>Images come from a fixed set of buffers, one per encoder plus the queue depth. When all
+ * of them are waiting to be written the simulation blocks until an encoder frees one, so a
+ * slow disk or encoder holds back the simulation instead of filling the memory.</p>
+ *
+ * <p>Frames are drawn in order on one thread and every frame goes to its own file, so the
+ * files are the same whatever the number of encoders and however they are scheduled.</p>
+ *
+ * <p>Usage: {@code OfflineRenderer directory [frames=300] [format=png|raw] [encoders=N]
+ * [queue=4] [balls=2000] [seed=1]}</p>
+ */
+public class OfflineRenderer implements AutoCloseable {
+    private static final int DEFAULT_QUEUE = 4;
+
+    /**
+     * How frames are written.
+     */
+    public enum Format {
+        /**
+         * One PNG file per frame.
+         */
+        PNG("png"),
+        /**
+         * Packed 8-bit RGB with no header, e.g. for {@code ffmpeg -f rawvideo -pix_fmt rgb24}.
+         */
+        RAW("rgb");
+
+        private final String extension;
+
+        /**
+         * @param extension the file name extension
+         */
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private final World world;
+    private final Camera camera;
+    private final Path directory;
+    private final Format format;
+    private final ExecutorService encoders;
+    private final BlockingQueue<BufferedImage> free;
+    // encodings not yet checked, oldest first
+    private final Deque<Future<Void>> pending = new ArrayDeque<>();
+    private long frames;
+    private long stallNanos;
+
+    /**
+     * Constructs a renderer.
+     *
+     * @param world      the world to step and draw
+     * @param camera     the view to draw, or null to draw the whole world frame from (0, 0)
+     * @param directory  where the files are written; created if missing
+     * @param format     the file format
+     * @param encoders   the number of encoder threads
+     * @param queueDepth the number of drawn frames that may wait for an encoder
+     * @throws IOException if the directory cannot be created
+     */
+    public OfflineRenderer(World world, Camera camera, Path directory, Format format, int encoders,
+                           int queueDepth) throws IOException {
+        this.world = world;
+        this.camera = camera;
+        this.directory = Files.createDirectories(directory);
+        this.format = format;
+        this.encoders = Executors.newFixedThreadPool(encoders);
+        int width = camera == null ? (int) world.getFrame().getWidth() : camera.getWidth();
+        int height = camera == null ? (int) world.getFrame().getHeight() : camera.getHeight();
+        this.free = new ArrayBlockingQueue<>(encoders + queueDepth);
+        for (int i = 0; i < encoders + queueDepth; i++) {
+            free.add(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+        }
+    }
+
+    /**
+     * @return the number of frames rendered so far
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return the time the simulation spent waiting for a free image, in nanoseconds
+     */
+    public long getStallNanos() {
+        return stallNanos;
+    }
+
+    /**
+     * Steps the world and renders the new state, the given number of times. Numbering continues
+     * from earlier calls. Returns once every frame is drawn; the last few may still be being
+     * written, see {@link #close()}.
+     *
+     * @param count the number of frames
+     * @throws IOException          if a frame could not be written
+     * @throws InterruptedException if interrupted while waiting for an encoder
+     */
+    public void render(int count) throws IOException, InterruptedException {
+        for (int i = 0; i < count; i++) {
+            world.step();
+            long start = System.nanoTime();
+            BufferedImage image = free.take();
+            stallNanos += System.nanoTime() - start;
+            // the graphics context is released as soon as the frame is drawn
+            try (ImageDrawSurface surface = new ImageDrawSurface(image)) {
+                surface.clear(Color.white);
+                if (camera == null) {
+                    world.drawOn(surface);
+                } else {
+                    camera.drawOn(world, surface);
+                }
+            }
+            Path file = directory.resolve(String.format("frame-%06d.%s", frames, format.extension));
+            frames++;
+            pending.add(encoders.submit(() -> {
+                try {
+                    write(image, file);
+                } finally {
+                    free.add(image);
+                }
+                return null;
+            }));
+            checkFinished(false);
+        }
+    }
+
+    /**
+     * Collects finished encodings, oldest first, and reports the first failure.
+     *
+     * @param wait true to wait for every encoding, false to stop at the first unfinished one
+     * @throws IOException          if a frame could not be written
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void checkFinished(boolean wait) throws IOException, InterruptedException {
+        while (!pending.isEmpty() && (wait || pending.peek().isDone())) {
+            try {
+                pending.poll().get();
+            } catch (ExecutionException e) {
+                throw new IOException("could not write a frame", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Encodes one image. Runs on an encoder thread.
+     *
+     * @param image the image
+     * @param file  the file to write
+     * @throws IOException if writing fails
+     */
+    private void write(BufferedImage image, Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            if (format == Format.PNG) {
+                ImageIO.write(image, "png", out);
+                return;
+            }
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            byte[] rgb = new byte[pixels.length * 3];
+            for (int i = 0; i < pixels.length; i++) {
+                rgb[i * 3] = (byte) (pixels[i] >> 16);
+                rgb[i * 3 + 1] = (byte) (pixels[i] >> 8);
+                rgb[i * 3 + 2] = (byte) pixels[i];
+            }
+            out.write(rgb);
+        }
+    }
+
+    /**
+     * Waits for every frame to be written and stops the encoders.
+     *
+     * @throws IOException if a frame could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            checkFinished(true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            encoders.shutdown();
+        }
+    }
+
+    /**
+     * Finds a key=value argument.
+     *
+     * @param args         the command line
+     * @param key          the key to look for
+     * @param defaultValue the value to use if the key is absent
+     * @return the value
+     */
+    private static String option(String[] args, String key, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                return arg.substring(key.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Builds a default-sized world of random balls around two obstacles, the same for the same seed.
+     *
+     * @param balls the number of balls
+     * @param seed  the random seed
+     * @return the new world
+     */
+    private static World createWorld(int balls, long seed) {
+        Random random = new Random(seed);
+        World world = new World("offline", new Rectangle(0, 0, World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT), 1);
+        world.addObstacle(new Rectangle(150, 150, 150, 100, Color.gray));
+        world.addObstacle(new Rectangle(500, 300, 120, 180, Color.darkGray));
+        for (int i = 0; i < balls; i++) {
+            int size = 2 + random.nextInt(6);
+            Ball ball = new Ball(size + random.nextDouble(World.DEFAULT_WIDTH - 2 * size),
+                    size + random.nextDouble(World.DEFAULT_HEIGHT - 2 * size), size,
+                    new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)),
+                    random.nextDouble(360), 2 + random.nextDouble(4));
+            world.addBall(ball);
+        }
+        return world;
+    }
+
+    /**
+     * Main method: renders a random world and prints the frame rate.
+     *
+     * @param args the output directory followed by key=value options, see the class documentation
+     * @throws IOException          if a frame could not be written
+     * @throws InterruptedException if interrupted while waiting for an encoder
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.out.println("usage: OfflineRenderer <directory> [frames=300] [format=png|raw] [encoders=N]"
+                    + " [queue=4] [balls=2000] [seed=1]");
+            return;
+        }
+        int count = Integer.parseInt(option(args, "frames", "300"));
+        Format format = Format.valueOf(option(args, "format", "png").toUpperCase());
+        int encoderCount = Integer.parseInt(option(args, "encoders",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int queueDepth = Integer.parseInt(option(args, "queue", String.valueOf(DEFAULT_QUEUE)));
+        World world = createWorld(Integer.parseInt(option(args, "balls", "2000")),
+                Long.parseLong(option(args, "seed", "1")));
+
+        long start = System.nanoTime();
+        OfflineRenderer renderer = new OfflineRenderer(world, null, Path.of(args[0]), format, encoderCount,
+                queueDepth);
+        try {
+            renderer.render(count);
+        } finally {
+            renderer.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d frames in %.2f s (%.1f frames/s), simulation waited %.2f s for encoders%n",
+                renderer.getFrames(), seconds, renderer.getFrames() / seconds,
+                renderer.getStallNanos() / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.List;
+
+import biuoop.DrawSurface;
+
+/**
+ * A population of balls stored as parallel arrays (one array per field) instead of
+ * one object per ball. Stepping walks the arrays sequentially, so the physics loop is
+ * limited by how many bytes per ball it has to move, which is what {@link Precision} controls.
+ * The step methods follow the exact rules of {@link Ball#moveStepInBox(Rectangle)} and
+ * {@link Ball#moveStepInBoxAndCollide(Rectangle, Rectangle)}.
+ */
+public interface PackedBalls {
+
+    /**
+     * Packs the given balls using the requested precision.
+     *
+     * @param precision the storage precision
+     * @param balls     the balls to copy; the list itself is not modified
+     * @return a packed copy of the balls
+     */
+    static PackedBalls of(Precision precision, List<Ball> balls) {
+        if (precision == Precision.FLOAT) {
+            return new FloatPackedBalls(balls);
+        }
+        return new DoublePackedBalls(balls);
+    }
+
+    /**
+     * @return the storage precision of this population
+     */
+    Precision getPrecision();
+
+    /**
+     * @return the number of balls
+     */
+    int size();
+
+    /**
+     * @param i the ball index
+     * @return the x-coordinate of the ball's center
+     */
+    double getX(int i);
+
+    /**
+     * @param i the ball index
+     * @return the y-coordinate of the ball's center
+     */
+    double getY(int i);
+
+    /**
+     * @param i the ball index
+     * @return the horizontal velocity of the ball
+     */
+    double getDx(int i);
+
+    /**
+     * @param i the ball index
+     * @return the vertical velocity of the ball
+     */
+    double getDy(int i);
+
+    /**
+     * @param i the ball index
+     * @return the radius of the ball
+     */
+    int getSize(int i);
+
+    /**
+     * Moves every ball one step, reflecting off the walls of the frame.
+     *
+     * @param frame the rectangle the balls bounce inside
+     */
+    void stepInBox(Rectangle frame);
+
+    /**
+     * Moves every ball one step inside the outer frame while bouncing off an inner rectangle.
+     *
+     * @param outerFrame  the outer boundary rectangle
+     * @param insideFrame the inner rectangle to bounce off
+     */
+    void stepInBoxAndCollide(Rectangle outerFrame, Rectangle insideFrame);
+
+    /**
+     * Moves every ball one step inside the frame, then bounces it off the obstacles around it
+     * in list order, found the way {@link World#step()} finds them in an indexed world.
+     *
+     * @param frame         the rectangle the balls bounce inside
+     * @param obstacles     the obstacles
+     * @param obstacleIndex the obstacle boxes, ids being positions in the list
+     * @return the number of ball-obstacle hits
+     */
+    int stepAndBounce(Rectangle frame, List<Rectangle> obstacles, UniformGrid obstacleIndex);
+
+    /**
+     * @param i the ball index
+     * @return the id of the ball: its position in the list it was packed from
+     */
+    int getId(int i);
+
+    /**
+     * @param id the id of a ball
+     * @return the ball's current index
+     */
+    int indexOf(int id);
+
+    /**
+     * Moves the balls to new indexes, keeping their ids, for example into
+     * {@link MortonOrder#sort(PackedBalls, Rectangle)} order so that balls stepped one after
+     * the other are near each other.
+     *
+     * @param order for each new index, the current index of the ball that goes there
+     */
+    void reorder(int[] order);
+
+    /**
+     * Draws every ball on the given surface.
+     *
+     * @param surface the surface to draw on
+     */
+    void drawOn(DrawSurface surface);
+}
@@ -0,0 +1,141 @@
+import java.awt.Color;
+import java.util.SplittableRandom;
+
+/**
+ * Spawns particles into a {@link BallPool} from a point, in a cone of directions, with
+ * random speeds, sizes, lifetimes and colors within configured ranges. Colors are picked
+ * from a fixed palette rather than created per particle.
+ */
+public class ParticleEmitter {
+    private final BallPool pool;
+    private final SplittableRandom random;
+    private double x;
+    private double y;
+    private int rate = 1;
+    private double direction;
+    private double spread = 360;
+    private double minSpeed = 1;
+    private double maxSpeed = 1;
+    private int minSize = 1;
+    private int maxSize = 1;
+    private int minLifetime = 1;
+    private int maxLifetime = 1;
+    private Color[] palette = {Color.black};
+
+    /**
+     * Constructs an emitter.
+     *
+     * @param pool the pool particles are spawned into
+     * @param x    the x-coordinate particles start at
+     * @param y    the y-coordinate particles start at
+     * @param seed the seed of the emitter's random numbers
+     */
+    public ParticleEmitter(BallPool pool, double x, double y, long seed) {
+        this.pool = pool;
+        this.x = x;
+        this.y = y;
+        this.random = new SplittableRandom(seed);
+    }
+
+    // ---------------- Settings ----------------
+
+    /**
+     * Moves the point particles start at.
+     *
+     * @param newX the new x-coordinate
+     * @param newY the new y-coordinate
+     */
+    public void setPosition(double newX, double newY) {
+        this.x = newX;
+        this.y = newY;
+    }
+
+    /**
+     * Sets how many particles {@link #emit()} spawns.
+     *
+     * @param rate the number of particles per call
+     */
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * Sets the cone particles are sent in, in degrees as in {@link Velocity#fromAngleAndSpeed}.
+     *
+     * @param direction the middle of the cone; 0 is up
+     * @param spread    the width of the cone; 360 sends particles everywhere
+     */
+    public void setDirection(double direction, double spread) {
+        this.direction = direction;
+        this.spread = spread;
+    }
+
+    /**
+     * Sets the range of starting speeds.
+     *
+     * @param min the lowest speed
+     * @param max the highest speed
+     */
+    public void setSpeed(double min, double max) {
+        this.minSpeed = min;
+        this.maxSpeed = max;
+    }
+
+    /**
+     * Sets the range of radii.
+     *
+     * @param min the smallest radius
+     * @param max the largest radius
+     */
+    public void setSize(int min, int max) {
+        this.minSize = min;
+        this.maxSize = max;
+    }
+
+    /**
+     * Sets the range of lifetimes.
+     *
+     * @param min the shortest life, in steps
+     * @param max the longest life, in steps
+     */
+    public void setLifetime(int min, int max) {
+        this.minLifetime = min;
+        this.maxLifetime = max;
+    }
+
+    /**
+     * Sets the colors new particles are picked from.
+     *
+     * @param colors the palette
+     */
+    public void setPalette(Color... colors) {
+        this.palette = colors;
+    }
+
+    // ---------------- Emitting ----------------
+
+    /**
+     * Spawns the configured number of particles.
+     */
+    public void emit() {
+        emit(rate);
+    }
+
+    /**
+     * Spawns particles.
+     *
+     * @param count the number of particles
+     */
+    public void emit(int count) {
+        for (int i = 0; i < count; i++) {
+            double angle = Math.toRadians(direction + spread * (random.nextDouble() - 0.5));
+            double speed = minSpeed + (maxSpeed - minSpeed) * random.nextDouble();
+            // same convention as Velocity.fromAngleAndSpeed, without creating a Velocity
+            double dx = speed * Math.sin(angle);
+            double dy = -speed * Math.cos(angle);
+            int size = minSize + random.nextInt(maxSize - minSize + 1);
+            int lifetime = minLifetime + random.nextInt(maxLifetime - minLifetime + 1);
+            pool.spawn(x, y, dx, dy, size, palette[random.nextInt(palette.length)], lifetime);
+        }
+    }
+}
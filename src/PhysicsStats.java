@@ -0,0 +1,178 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide totals of what the physics did: frame wall reflections per side, obstacle
+ * hits and passes of the push-out loop. Used to spot degenerate scenes, such as balls pushed
+ * back and forth between an obstacle and the frame.
+ *
+ * <p>Each counter is a {@link LongAdder}, so balls stepped on many threads at once do not
+ * fight over one memory location; a counter is only touched when its branch is taken.
+ * Totals are read with {@link #snapshot()}, and the difference of two snapshots gives
+ * the rates over that interval.</p>
+ */
+public final class PhysicsStats {
+
+    /**
+     * What is counted.
+     */
+    public enum Counter {
+        /**
+         * World steps.
+         */
+        STEPS("steps"),
+        /**
+         * Reflections off the right side of a frame.
+         */
+        WALL_RIGHT("right"),
+        /**
+         * Reflections off the left side of a frame.
+         */
+        WALL_LEFT("left"),
+        /**
+         * Reflections off the top of a frame.
+         */
+        WALL_TOP("top"),
+        /**
+         * Reflections off the bottom of a frame.
+         */
+        WALL_BOTTOM("bottom"),
+        /**
+         * Balls pushed out of an obstacle.
+         */
+        OBSTACLE_HITS("hits"),
+        /**
+         * Passes of the push-out loop.
+         */
+        PUSH_OUT_ITERATIONS("push-outs"),
+        /**
+         * Push-outs that stopped with the ball still inside, because a correction no longer moved
+         * it or the loop reached its pass limit.
+         */
+        STUCK("stuck");
+
+        private final String label;
+
+        /**
+         * @param label the short name used in printed statistics
+         */
+        Counter(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return the short name used in printed statistics
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final LongAdder[] COUNTERS = new LongAdder[Counter.values().length];
+
+    static {
+        for (int i = 0; i < COUNTERS.length; i++) {
+            COUNTERS[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private PhysicsStats() {
+        // prevents creating instances
+    }
+
+    /**
+     * Adds one to a counter. Safe to call from any thread.
+     *
+     * @param counter the counter
+     */
+    public static void increment(Counter counter) {
+        COUNTERS[counter.ordinal()].increment();
+    }
+
+    /**
+     * Adds to a counter. Safe to call from any thread.
+     *
+     * @param counter the counter
+     * @param amount  the amount to add
+     */
+    public static void add(Counter counter, long amount) {
+        COUNTERS[counter.ordinal()].add(amount);
+    }
+
+    /**
+     * Reads all counters. Counts added while the snapshot is taken may or may not be in it,
+     * so the counters are not exactly consistent with each other until the simulation stops.
+     *
+     * @return the current totals
+     */
+    public static Snapshot snapshot() {
+        long[] values = new long[COUNTERS.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = COUNTERS[i].sum();
+        }
+        return new Snapshot(values);
+    }
+
+    /**
+     * Totals read at one moment, or the difference between two such readings.
+     */
+    public static final class Snapshot {
+        private final long[] values;
+
+        /**
+         * @param values the counter values, by ordinal
+         */
+        private Snapshot(long[] values) {
+            this.values = values;
+        }
+
+        /**
+         * @param counter a counter
+         * @return its value
+         */
+        public long get(Counter counter) {
+            return values[counter.ordinal()];
+        }
+
+        /**
+         * @param counter a counter
+         * @return its value per world step, or 0 if there was no step
+         */
+        public double perStep(Counter counter) {
+            long steps = get(Counter.STEPS);
+            return steps == 0 ? 0 : get(counter) / (double) steps;
+        }
+
+        /**
+         * @param earlier a snapshot taken before this one
+         * @return what was counted between the two snapshots
+         */
+        public Snapshot minus(Snapshot earlier) {
+            long[] difference = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                difference[i] = values[i] - earlier.values[i];
+            }
+            return new Snapshot(difference);
+        }
+
+        /**
+         * @return every counter with its total and its rate per step, on one line
+         */
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (Counter counter : Counter.values()) {
+                if (text.length() > 0) {
+                    text.append(", ");
+                }
+                text.append(counter.getLabel()).append(' ').append(get(counter));
+                if (counter != Counter.STEPS) {
+                    text.append(String.format(" (%.3f/step)", perStep(counter)));
+                }
+            }
+            return text.toString();
+        }
+    }
+}
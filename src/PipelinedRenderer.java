@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import biuoop.DrawSurface;
+import biuoop.GUI;
+
+/**
+ * Runs an animation as a two-stage pipeline. A simulation thread steps the balls at a fixed
+ * rate and captures each step into a {@link FrameSnapshot}; the calling thread draws the
+ * newest completed snapshot and shows it. While frame N is being drawn and shown, frame N+1
+ * is already being simulated, so a frame costs the slower of the two stages instead of
+ * their sum.
+ *
+ * <p>Drawing runs at its own, usually higher, rate: each drawn frame places the balls
+ * between the two ends of the newest step according to how much of the next tick has
+ * passed. Physics can then run at a low rate while motion stays smooth; the price is that
+ * what is shown lags the simulation by one tick.</p>
+ */
+public class PipelinedRenderer {
+    private static final long DEFAULT_RENDER_MILLIS = 16;
+
+    private final GUI gui;
+    private final List<Ball> balls;
+    private final Runnable step;
+    private final long tickMillis;
+    private long renderMillis = DEFAULT_RENDER_MILLIS;
+    private final List<Rectangle> background = new ArrayList<>();
+    private final List<Rectangle> foreground = new ArrayList<>();
+    private final SnapshotExchange exchange = new SnapshotExchange();
+
+    /**
+     * Constructs a pipeline. The balls must only be touched by the step from now on.
+     *
+     * @param gui        the window to show frames in
+     * @param balls      the balls moved by the step and captured after it
+     * @param step       moves the balls one step; runs on the simulation thread
+     * @param tickMillis the time between two steps, in milliseconds
+     */
+    public PipelinedRenderer(GUI gui, List<Ball> balls, Runnable step, long tickMillis) {
+        this.gui = gui;
+        this.balls = balls;
+        this.step = step;
+        this.tickMillis = tickMillis;
+    }
+
+    /**
+     * Sets the time between two drawn frames. Defaults to 16 milliseconds (about 60 Hz).
+     *
+     * @param renderMillis the render period, in milliseconds
+     */
+    public void setRenderMillis(long renderMillis) {
+        this.renderMillis = renderMillis;
+    }
+
+    /**
+     * Adds a rectangle drawn under the balls. It must not change once running.
+     *
+     * @param rectangle the rectangle to draw
+     */
+    public void addBackground(Rectangle rectangle) {
+        background.add(rectangle);
+    }
+
+    /**
+     * Adds a rectangle drawn over the balls. It must not change once running.
+     *
+     * @param rectangle the rectangle to draw
+     */
+    public void addForeground(Rectangle rectangle) {
+        foreground.add(rectangle);
+    }
+
+    /**
+     * Starts the simulation thread and runs the render loop on the calling thread.
+     * Never returns.
+     */
+    public void run() {
+        Thread simulation = new Thread(this::simulate, "simulation");
+        simulation.setDaemon(true);
+        simulation.start();
+
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        long period = TimeUnit.MILLISECONDS.toNanos(renderMillis);
+        long deadline = System.nanoTime();
+        while (true) {
+            FrameSnapshot snapshot = exchange.front();
+            double alpha = (System.nanoTime() - snapshot.getTickNanos()) / (double) tickNanos;
+            DrawSurface surface = gui.getDrawSurface();
+            for (Rectangle rectangle : background) {
+                rectangle.drawOn(surface);
+            }
+            snapshot.drawOn(surface, Math.max(0, Math.min(1, alpha)));
+            for (Rectangle rectangle : foreground) {
+                rectangle.drawOn(surface);
+            }
+            gui.show(surface);
+            deadline = waitUntil(deadline + period);
+        }
+    }
+
+    /**
+     * Simulation loop: step, capture, publish, then wait for the next tick.
+     */
+    private void simulate() {
+        long period = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        long deadline = System.nanoTime();
+        while (true) {
+            FrameSnapshot back = exchange.back();
+            back.captureFrom(balls);
+            step.run();
+            back.captureTo(balls, System.nanoTime());
+            exchange.publish();
+            deadline = waitUntil(deadline + period);
+        }
+    }
+
+    /**
+     * Sleeps until the given nano time. A deadline already missed is moved to now, so a
+     * slow stage does not try to catch up with a burst.
+     *
+     * @param deadline the nano time to wake up at
+     * @return the deadline actually waited for
+     */
+    private static long waitUntil(long deadline) {
+        long wait = deadline - System.nanoTime();
+        if (wait < 0) {
+            return System.nanoTime();
+        }
+        while (wait > 0) {
+            LockSupport.parkNanos(wait);
+            wait = deadline - System.nanoTime();
+        }
+        return deadline;
+    }
+}
@@ -22,9 +22,19 @@ public class Point {
      * @return the distance
      */
     public double distance(Point other) {
-        double disX = Math.abs(this.x - other.getX());
-        double disY = Math.abs(this.y - other.getY());
-        return (Math.sqrt(Math.pow(disX, 2) + Math.pow(disY, 2)));
+        return Math.sqrt(distanceSquared(other));
+    }
+
+    /**
+     * Calculates the squared distance between this point and another, which orders
+     * points by distance without taking a square root.
+     * @param other the other point
+     * @return the squared distance
+     */
+    public double distanceSquared(Point other) {
+        double disX = this.x - other.getX();
+        double disY = this.y - other.getY();
+        return disX * disX + disY * disY;
     }
 
     /**
@@ -0,0 +1,26 @@
+/**
+ * Storage precision for packed simulation state.
+ * DOUBLE keeps the 64-bit math used by {@link Ball}, FLOAT stores and steps every
+ * coordinate as a 32-bit float, halving the memory traffic of the physics loop.
+ */
+public enum Precision {
+    /**
+     * 64-bit coordinates, identical results to stepping {@link Ball} objects.
+     */
+    DOUBLE,
+
+    /**
+     * 32-bit coordinates, enough for screens a few thousand pixels wide.
+     */
+    FLOAT;
+
+    /**
+     * Parses a precision name, ignoring case.
+     *
+     * @param name "double" or "float"
+     * @return the matching precision
+     */
+    public static Precision parse(String name) {
+        return Precision.valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,299 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Verifies the float storage mode against the double one and measures how fast each steps.
+ *
+ * <p>Divergence bound: inside a frame no larger than 1024 pixels a float coordinate has a
+ * unit in the last place of at most 2^-14 px. One step rounds the move and, on a wall hit,
+ * the reflection, so each step adds at most {@link #MAX_DRIFT_PER_STEP} px of error.
+ * Reflection off a wall folds the position back continuously, so the error never jumps;
+ * after n steps the float and double centers are at most n * MAX_DRIFT_PER_STEP apart.</p>
+ *
+ * <p>Pushing a ball out of an inner obstacle is not continuous: a rounding difference can
+ * make float and double hit the obstacle on different steps or on different sides, and from
+ * then on the two balls go separate ways. Until that happens a ball's float and double
+ * velocities point the same way, and its centers obey the same bound as in the frame, which
+ * is checked step by step; the balls where the velocities part are counted, and not held to
+ * the bound afterwards.</p>
+ *
+ * <p>The double mode must be exactly the {@link Ball} physics, to the last bit, for the frame
+ * step, for {@link PackedBalls#stepInBoxAndCollide(Rectangle, Rectangle)} against
+ * {@link Ball#moveStepInBoxAndCollide(Rectangle, Rectangle)}, and for
+ * {@link PackedBalls#stepAndBounce(Rectangle, List, UniformGrid)} against balls bounced off the
+ * obstacles the same index finds, hits included.</p>
+ */
+public class PrecisionCheck {
+    /**
+     * Worst-case float error added by a single step, in pixels.
+     */
+    public static final double MAX_DRIFT_PER_STEP = 1e-4;
+
+    private static final int CHECK_BALLS = 2000;
+    private static final int CHECK_STEPS = 5000;
+    private static final int BENCH_BALLS = 2_000_000;
+    private static final int BENCH_STEPS = 50;
+    private static final int OBSTACLES = 30;
+    private static final double OBSTACLE_SIDE = 40;
+    private static final double CELL_SIZE = 64;
+
+    /**
+     * Creates a reproducible population similar to the one of MultipleBouncingBallsAnimation.
+     *
+     * @param count the number of balls
+     * @param seed  the random seed
+     * @return the balls
+     */
+    private static List<Ball> createBalls(int count, long seed) {
+        Random random = new Random(seed);
+        List<Ball> balls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int size = 5 + random.nextInt(45);
+            balls.add(new Ball(random.nextDouble(size, 800 - size), random.nextDouble(size, 600 - size), size,
+                    new Color(random.nextInt(255), random.nextInt(255), random.nextInt(255)),
+                    random.nextDouble(360), 25 - (size / 2.0)));
+        }
+        return balls;
+    }
+
+    /**
+     * Creates a reproducible population placed outside the gray box, with the same rejection
+     * rule as MultipleFramesBouncingBallsAnimation. Radii stay below 25 so every ball fits the
+     * 50 pixel corridors between the box and the frame, where wider balls get stuck forever.
+     *
+     * @param count the number of balls
+     * @param seed  the random seed
+     * @return the balls
+     */
+    private static List<Ball> createOutsideBalls(int count, long seed) {
+        Random random = new Random(seed);
+        List<Ball> balls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int size = 5 + random.nextInt(20);
+            Velocity velocity = Velocity.fromAngleAndSpeed(random.nextDouble(360), 25 - (size / 2.0));
+            double x;
+            double y;
+            do {
+                x = random.nextDouble(size, 800 - size);
+                y = random.nextDouble(size, 600 - size);
+            } while (x + size + Math.abs(velocity.getDx()) / 2 >= 50
+                    && x - size - Math.abs(velocity.getDx()) / 2 <= 500
+                    && y + size + Math.abs(velocity.getDy()) / 2 >= 50
+                    && y - size - Math.abs(velocity.getDy()) / 2 <= 500);
+            balls.add(new Ball(x, y, size, Color.black, velocity));
+        }
+        return balls;
+    }
+
+    /**
+     * Creates reproducible square obstacles anywhere in the frame.
+     *
+     * @param count the number of obstacles
+     * @param seed  the random seed
+     * @return the obstacles
+     */
+    private static List<Rectangle> createObstacles(int count, long seed) {
+        Random random = new Random(seed);
+        List<Rectangle> obstacles = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            obstacles.add(new Rectangle(random.nextDouble(800 - OBSTACLE_SIDE), random.nextDouble(600 - OBSTACLE_SIDE),
+                    OBSTACLE_SIDE, OBSTACLE_SIDE, Color.gray));
+        }
+        return obstacles;
+    }
+
+    /**
+     * @param ball   a ball
+     * @param packed a packed population
+     * @param i      the index of the ball in the population
+     * @return true if the ball and the packed one have the same center and velocity, to the last bit
+     */
+    private static boolean sameState(Ball ball, PackedBalls packed, int i) {
+        return ball.getCenterX() == packed.getX(i) && ball.getCenterY() == packed.getY(i)
+                && ball.getVelocity().getDx() == packed.getDx(i) && ball.getVelocity().getDy() == packed.getDy(i);
+    }
+
+    /**
+     * @param a the first population
+     * @param b the second population
+     * @param i the ball index
+     * @return true if the ball's velocity points the same way in both
+     */
+    private static boolean sameHeading(PackedBalls a, PackedBalls b, int i) {
+        return Math.signum(a.getDx(i)) == Math.signum(b.getDx(i)) && Math.signum(a.getDy(i)) == Math.signum(b.getDy(i));
+    }
+
+    /**
+     * Returns the largest center distance between two packed populations.
+     *
+     * @param a the first population
+     * @param b the second population
+     * @return the maximal divergence in pixels
+     */
+    private static double maxDivergence(PackedBalls a, PackedBalls b) {
+        double max = 0;
+        for (int i = 0; i < a.size(); i++) {
+            double dx = a.getX(i) - b.getX(i);
+            double dy = a.getY(i) - b.getY(i);
+            max = Math.max(max, Math.sqrt(dx * dx + dy * dy));
+        }
+        return max;
+    }
+
+    /**
+     * Times the frame-only step of a packed population.
+     *
+     * @param balls the population to step
+     * @param frame the frame to bounce in
+     * @return the average nanoseconds per step
+     */
+    private static double timeSteps(PackedBalls balls, Rectangle frame) {
+        for (int i = 0; i < BENCH_STEPS; i++) {
+            balls.stepInBox(frame);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < BENCH_STEPS; i++) {
+            balls.stepInBox(frame);
+        }
+        return (System.nanoTime() - start) / (double) BENCH_STEPS;
+    }
+
+    /**
+     * Runs the tolerance check followed by the speed comparison.
+     * Exits with status 1 if a check fails.
+     *
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        Rectangle frame = new Rectangle(0, 0, 800, 600);
+        Rectangle grayRec = new Rectangle(50, 50, 450, 450, Color.gray);
+        boolean ok = true;
+
+        // double packing must be exactly the Ball physics
+        List<Ball> objects = createBalls(CHECK_BALLS, 1);
+        PackedBalls doubles = PackedBalls.of(Precision.DOUBLE, objects);
+        PackedBalls floats = PackedBalls.of(Precision.FLOAT, objects);
+        for (int step = 0; step < CHECK_STEPS; step++) {
+            for (Ball ball : objects) {
+                ball.moveStepInBox(frame);
+            }
+            doubles.stepInBox(frame);
+            floats.stepInBox(frame);
+        }
+        for (int i = 0; i < objects.size(); i++) {
+            Point center = objects.get(i).getCenter();
+            if (center.getX() != doubles.getX(i) || center.getY() != doubles.getY(i)) {
+                System.out.println("double mode differs from Ball at index " + i);
+                ok = false;
+                break;
+            }
+        }
+        double bound = MAX_DRIFT_PER_STEP * CHECK_STEPS;
+        double divergence = maxDivergence(doubles, floats);
+        System.out.printf("frame: max float divergence after %d steps: %.6f px (bound %.6f px)%n",
+                CHECK_STEPS, divergence, bound);
+        if (divergence > bound) {
+            ok = false;
+        }
+
+        // around an inner obstacle: double exactly Ball, float within the bound until it parts
+        List<Ball> outside = createOutsideBalls(CHECK_BALLS, 2);
+        doubles = PackedBalls.of(Precision.DOUBLE, outside);
+        floats = PackedBalls.of(Precision.FLOAT, outside);
+        int[] partedAt = new int[outside.size()];
+        int parted = 0;
+        double worstRatio = 0;
+        boolean exact = true;
+        for (int step = 1; step <= CHECK_STEPS; step++) {
+            for (Ball ball : outside) {
+                ball.moveStepInBoxAndCollide(frame, grayRec);
+            }
+            doubles.stepInBoxAndCollide(frame, grayRec);
+            floats.stepInBoxAndCollide(frame, grayRec);
+            for (int i = 0; i < outside.size(); i++) {
+                if (exact && !sameState(outside.get(i), doubles, i)) {
+                    System.out.println("double mode differs from Ball around the obstacle at step " + step
+                            + ", index " + i);
+                    exact = false;
+                }
+                if (partedAt[i] > 0) {
+                    continue;
+                }
+                if (!sameHeading(doubles, floats, i)) {
+                    partedAt[i] = step;
+                    parted++;
+                    continue;
+                }
+                double dx = doubles.getX(i) - floats.getX(i);
+                double dy = doubles.getY(i) - floats.getY(i);
+                worstRatio = Math.max(worstRatio, Math.sqrt(dx * dx + dy * dy) / (MAX_DRIFT_PER_STEP * step));
+            }
+        }
+        int firstParted = CHECK_STEPS;
+        for (int step : partedAt) {
+            if (step > 0) {
+                firstParted = Math.min(firstParted, step);
+            }
+        }
+        System.out.printf("obstacle: float divergence up to %.0f%% of the bound until the velocities part;"
+                + " %d of %d balls parted within %d steps, the first at step %d%n", worstRatio * 100, parted,
+                outside.size(), CHECK_STEPS, parted > 0 ? firstParted : 0);
+        if (worstRatio > 1 || !exact) {
+            ok = false;
+        }
+
+        // indexed obstacles: double exactly Ball bounced off what the same index finds
+        List<Ball> indexed = createBalls(CHECK_BALLS, 4);
+        List<Rectangle> obstacles = createObstacles(OBSTACLES, 4);
+        UniformGrid obstacleIndex = new UniformGrid(frame, CELL_SIZE);
+        for (int k = 0; k < obstacles.size(); k++) {
+            Rectangle obstacle = obstacles.get(k);
+            obstacleIndex.insert(k, obstacle.getMin().getX(), obstacle.getMin().getY(),
+                    obstacle.getMin().getX() + obstacle.getWidth(), obstacle.getMin().getY() + obstacle.getHeight());
+        }
+        doubles = PackedBalls.of(Precision.DOUBLE, indexed);
+        IntList nearby = new IntList();
+        long ballHits = 0;
+        long packedHits = 0;
+        for (int step = 0; step < CHECK_STEPS; step++) {
+            for (Ball ball : indexed) {
+                ball.moveStepInBox(frame);
+                double reach = 2.0 * ball.getSize();
+                obstacleIndex.query(ball.getCenterX() - reach, ball.getCenterY() - reach,
+                        ball.getCenterX() + reach, ball.getCenterY() + reach, nearby);
+                nearby.sort();
+                for (int k = 0; k < nearby.size(); k++) {
+                    if (ball.bounceOff(frame, obstacles.get(nearby.get(k)))) {
+                        ballHits++;
+                    }
+                }
+            }
+            packedHits += doubles.stepAndBounce(frame, obstacles, obstacleIndex);
+        }
+        exact = ballHits == packedHits;
+        for (int i = 0; i < indexed.size() && exact; i++) {
+            if (!sameState(indexed.get(i), doubles, i)) {
+                System.out.println("double mode differs from Ball among indexed obstacles at index " + i);
+                exact = false;
+            }
+        }
+        System.out.printf("indexed: %d obstacle hits by Ball, %d in double mode after %d steps%n", ballHits,
+                packedHits, CHECK_STEPS);
+        if (!exact) {
+            ok = false;
+        }
+
+        List<Ball> large = createBalls(BENCH_BALLS, 3);
+        double doubleNanos = timeSteps(PackedBalls.of(Precision.DOUBLE, large), frame);
+        double floatNanos = timeSteps(PackedBalls.of(Precision.FLOAT, large), frame);
+        System.out.printf("%d balls: double %.2f ms/step, float %.2f ms/step, speedup x%.2f%n",
+                BENCH_BALLS, doubleNanos / 1e6, floatNanos / 1e6, doubleNanos / floatNanos);
+
+        if (!ok) {
+            System.out.println("precision check failed");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.awt.Color;
+import java.util.Random;
+
+import biuoop.DrawSurface;
+import biuoop.GUI;
+
+/**
+ * Hundreds of thousands of small balls drawn by a {@link TileRasterizer} instead of one
+ * {@code fillCircle} call per ball, or with a density threshold by a {@link DensityRenderer}
+ * that fills crowded areas instead. Prints how long stepping and drawing take.
+ */
+public class RasterAnimation {
+    private static final int DEFAULT_BALLS = 500_000;
+    private static final int REPORT_FRAMES = 100;
+
+    /**
+     * Fills the default world with small random balls around one obstacle.
+     *
+     * @param count the number of balls
+     * @return the new world
+     */
+    private static World createWorld(int count) {
+        Random random = new Random();
+        World world = new World("raster", new Rectangle(0, 0, World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT), 1);
+        world.addObstacle(new Rectangle(300, 200, 200, 200, Color.gray));
+        for (int i = 0; i < count; i++) {
+            int size = 1 + random.nextInt(4);
+            Ball ball = new Ball(size + random.nextDouble(World.DEFAULT_WIDTH - 2 * size),
+                    size + random.nextDouble(World.DEFAULT_HEIGHT - 2 * size), size,
+                    new Color(random.nextInt(255), random.nextInt(255), random.nextInt(255)),
+                    random.nextDouble(360), 1 + random.nextDouble(3));
+            if (!ball.isIntersecting(world.getObstacles().get(0))) {
+                world.addBall(ball);
+            }
+        }
+        return world;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args optional: number of balls, tile size, number of drawing threads, density threshold
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BALLS;
+        int tileSize = args.length > 1 ? Integer.parseInt(args[1]) : TileRasterizer.DEFAULT_TILE_SIZE;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        World world = createWorld(count);
+        GUI gui = new GUI("Tile rasterizer", World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
+        TileRasterizer rasterizer = new TileRasterizer(World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT, tileSize, threads);
+        DensityRenderer density = null;
+        if (args.length > 3) {
+            density = new DensityRenderer(rasterizer, DensityRenderer.DEFAULT_BLOCK_SIZE);
+            density.setThreshold(Double.parseDouble(args[3]));
+        }
+        // the window paints a shown frame later, so draw into the other framebuffer meanwhile
+        Framebuffer[] framebuffers = {new Framebuffer(World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT),
+                new Framebuffer(World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT)};
+        long stepNanos = 0;
+        long drawNanos = 0;
+        for (long frame = 1; true; frame++) {
+            long start = System.nanoTime();
+            world.step();
+            long stepped = System.nanoTime();
+            Framebuffer framebuffer = framebuffers[(int) (frame % 2)];
+            framebuffer.clear(Color.white);
+            if (density == null) {
+                rasterizer.draw(framebuffer, world.getObstacles(), world.getBalls(), 0, 0);
+            } else {
+                density.draw(framebuffer, world.getObstacles(), world.getBalls(), 0, 0);
+            }
+            stepNanos += stepped - start;
+            drawNanos += System.nanoTime() - stepped;
+            DrawSurface surface = gui.getDrawSurface();
+            framebuffer.drawOn(surface);
+            gui.show(surface);
+            if (frame % REPORT_FRAMES == 0) {
+                System.out.printf("%d balls: step %.1f ms, draw %.1f ms%n", world.getBalls().size(),
+                        stepNanos / 1e6 / REPORT_FRAMES, drawNanos / 1e6 / REPORT_FRAMES);
+                stepNanos = 0;
+                drawNanos = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * Line-of-sight and picking queries against a {@link World}: the first obstacle or wall
+ * along a segment. The ray walks the cells of the world's spatial indexes in order (a DDA
+ * traversal) and stops at the first cell that ends beyond the nearest hit found so far,
+ * so a short or blocked ray only looks at the few objects near it.
+ *
+ * <p>Casting does not allocate. Like the indexes it reads, a caster is not thread-safe and
+ * must be used by the thread that steps the world.</p>
+ */
+public class RayCaster {
+    private final World world;
+
+    /**
+     * Constructs a caster for a world. Obstacles are only traversed by cell if the world has
+     * a spatial index ({@link World#setSpatialIndex(double)}); otherwise they are all tested.
+     *
+     * @param world the world to cast rays in
+     */
+    public RayCaster(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Casts a ray along a line, from its start to its end.
+     *
+     * @param line the ray
+     * @param hit  receives the result
+     * @return true if something was hit
+     */
+    public boolean cast(Line line, RayHit hit) {
+        Point start = line.start();
+        Point end = line.end();
+        return cast(start.getX(), start.getY(), end.getX(), end.getY(), hit);
+    }
+
+    /**
+     * Casts a ray from one point to another and finds the first obstacle or wall it hits.
+     * A ray starting inside an obstacle hits it at distance 0.
+     *
+     * @param x0  the x-coordinate of the start of the ray
+     * @param y0  the y-coordinate of the start of the ray
+     * @param x1  the x-coordinate of the end of the ray
+     * @param y1  the y-coordinate of the end of the ray
+     * @param hit receives the result
+     * @return true if something was hit
+     */
+    public boolean cast(double x0, double y0, double x1, double y1, RayHit hit) {
+        hit.clear();
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        UniformGrid obstacleIndex = world.getObstacleIndex();
+        if (obstacleIndex == null) {
+            for (int i = 0; i < world.getObstacles().size(); i++) {
+                testObstacle(i, x0, y0, dx, dy, hit);
+            }
+        } else {
+            traverse(obstacleIndex, RayHit.Kind.OBSTACLE, x0, y0, dx, dy, hit);
+        }
+        if (world.getWalls() != null) {
+            traverse(world.getWalls().getIndex(), RayHit.Kind.WALL, x0, y0, dx, dy, hit);
+        }
+        hit.finish(x0, y0, dx, dy);
+        return hit.isHit();
+    }
+
+    // ---------------- Traversal ----------------
+
+    /**
+     * Visits the cells of a grid along the ray, nearest first, testing each object once.
+     *
+     * @param grid the grid to walk
+     * @param kind the kind of object the grid holds
+     * @param x0   the x-coordinate of the start of the ray
+     * @param y0   the y-coordinate of the start of the ray
+     * @param dx   the horizontal extent of the ray
+     * @param dy   the vertical extent of the ray
+     * @param hit  the nearest hit so far, updated in place
+     */
+    private void traverse(UniformGrid grid, RayHit.Kind kind, double x0, double y0, double dx, double dy,
+                          RayHit hit) {
+        double cellSize = grid.getCellSize();
+        double originX = grid.getOriginX();
+        double originY = grid.getOriginY();
+        // clip the ray to the grid; outside it there are no cells to visit
+        double enter = slab(originX - x0, originX + grid.getColumns() * cellSize - x0, dx, 0);
+        enter = slab(originY - y0, originY + grid.getRows() * cellSize - y0, dy, enter);
+        double leave = slabExit(originX - x0, originX + grid.getColumns() * cellSize - x0, dx, 1);
+        leave = slabExit(originY - y0, originY + grid.getRows() * cellSize - y0, dy, leave);
+        if (enter > leave) {
+            return;
+        }
+
+        int column = grid.cellX(x0 + enter * dx);
+        int row = grid.cellY(y0 + enter * dy);
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dx);
+        double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dy);
+        double nextX = dx == 0 ? Double.POSITIVE_INFINITY
+                : (originX + (column + (dx > 0 ? 1 : 0)) * cellSize - x0) / dx;
+        double nextY = dy == 0 ? Double.POSITIVE_INFINITY
+                : (originY + (row + (dy > 0 ? 1 : 0)) * cellSize - y0) / dy;
+
+        int stamp = grid.nextQuery();
+        while (true) {
+            IntList cell = grid.cell(column, row);
+            if (cell != null) {
+                for (int k = 0; k < cell.size(); k++) {
+                    int id = cell.get(k);
+                    if (!grid.markSeen(id, stamp)) {
+                        continue;
+                    }
+                    if (kind == RayHit.Kind.OBSTACLE) {
+                        testObstacle(id, x0, y0, dx, dy, hit);
+                    } else {
+                        testWall(id, x0, y0, dx, dy, hit);
+                    }
+                }
+            }
+            // every point of the ray before the cell's exit lies in a visited cell
+            double exit = Math.min(leave, Math.min(nextX, nextY));
+            if (hit.getTime() <= exit || exit >= leave) {
+                return;
+            }
+            if (nextX < nextY) {
+                column += stepX;
+                nextX += deltaX;
+            } else {
+                row += stepY;
+                nextY += deltaY;
+            }
+            if (column < 0 || column >= grid.getColumns() || row < 0 || row >= grid.getRows()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Narrows the entry time of a ray into a slab between two parallel lines.
+     *
+     * @param low   the near side of the slab, relative to the start of the ray
+     * @param high  the far side of the slab, relative to the start of the ray
+     * @param d     the extent of the ray across the slab
+     * @param enter the entry time so far
+     * @return the later of the entry so far and the entry into this slab, or infinity if the
+     *         ray runs parallel to the slab outside it
+     */
+    private static double slab(double low, double high, double d, double enter) {
+        if (d == 0) {
+            return low <= 0 && high >= 0 ? enter : Double.POSITIVE_INFINITY;
+        }
+        return Math.max(enter, Math.min(low / d, high / d));
+    }
+
+    /**
+     * Narrows the exit time of a ray from a slab between two parallel lines.
+     *
+     * @param low   the near side of the slab, relative to the start of the ray
+     * @param high  the far side of the slab, relative to the start of the ray
+     * @param d     the extent of the ray across the slab
+     * @param leave the exit time so far
+     * @return the earlier of the exit so far and the exit from this slab
+     */
+    private static double slabExit(double low, double high, double d, double leave) {
+        if (d == 0) {
+            return leave;
+        }
+        return Math.min(leave, Math.max(low / d, high / d));
+    }
+
+    // ---------------- Object tests ----------------
+
+    /**
+     * Tests the ray against an obstacle's box.
+     *
+     * @param i   the obstacle index
+     * @param x0  the x-coordinate of the start of the ray
+     * @param y0  the y-coordinate of the start of the ray
+     * @param dx  the horizontal extent of the ray
+     * @param dy  the vertical extent of the ray
+     * @param hit the nearest hit so far, updated in place
+     */
+    private void testObstacle(int i, double x0, double y0, double dx, double dy, RayHit hit) {
+        Rectangle obstacle = world.getObstacles().get(i);
+        double minX = obstacle.getMin().getX() - x0;
+        double minY = obstacle.getMin().getY() - y0;
+        double enter = slab(minX, minX + obstacle.getWidth(), dx, 0);
+        enter = slab(minY, minY + obstacle.getHeight(), dy, enter);
+        double leave = slabExit(minX, minX + obstacle.getWidth(), dx, 1);
+        leave = slabExit(minY, minY + obstacle.getHeight(), dy, leave);
+        if (enter <= leave) {
+            hit.offer(enter, RayHit.Kind.OBSTACLE, i);
+        }
+    }
+
+    /**
+     * Tests the ray against a wall segment. A ray running along a wall does not hit it.
+     *
+     * @param i   the wall index
+     * @param x0  the x-coordinate of the start of the ray
+     * @param y0  the y-coordinate of the start of the ray
+     * @param dx  the horizontal extent of the ray
+     * @param dy  the vertical extent of the ray
+     * @param hit the nearest hit so far, updated in place
+     */
+    private void testWall(int i, double x0, double y0, double dx, double dy, RayHit hit) {
+        WallMap walls = world.getWalls();
+        double ax = walls.getX1(i) - x0;
+        double ay = walls.getY1(i) - y0;
+        double ex = walls.getX2(i) - walls.getX1(i);
+        double ey = walls.getY2(i) - walls.getY1(i);
+        double denominator = dx * ey - dy * ex;
+        if (denominator == 0) {
+            return;
+        }
+        double t = (ax * ey - ay * ex) / denominator;
+        double u = (ax * dy - ay * dx) / denominator;
+        if (t >= 0 && t <= 1 && u >= 0 && u <= 1) {
+            hit.offer(t, RayHit.Kind.WALL, i);
+        }
+    }
+}
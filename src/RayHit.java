@@ -0,0 +1,128 @@
+/**
+ * The result of a ray cast: what the ray hit first, where, and how far from its start.
+ * A hit is mutable and meant to be reused between casts, so casting does not allocate.
+ */
+public class RayHit {
+    /**
+     * What a ray can hit.
+     */
+    public enum Kind {
+        /**
+         * Nothing was hit.
+         */
+        NONE,
+
+        /**
+         * A rectangular obstacle; the index is its position in {@link World#getObstacles()}.
+         */
+        OBSTACLE,
+
+        /**
+         * A wall segment; the index is its position in the world's {@link WallMap}.
+         */
+        WALL
+    }
+
+    private Kind kind = Kind.NONE;
+    private int index = -1;
+    private double x;
+    private double y;
+    private double distance = Double.POSITIVE_INFINITY;
+    private double time = Double.POSITIVE_INFINITY;
+
+    /**
+     * @return true if the ray hit something
+     */
+    public boolean isHit() {
+        return kind != Kind.NONE;
+    }
+
+    /**
+     * @return the kind of object hit
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the index of the object hit, or -1 if nothing was hit
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the x-coordinate of the hit point
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * @return the y-coordinate of the hit point
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * @return the distance from the start of the ray to the hit point, or infinity
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return the fraction of the ray before the hit point, in [0, 1], or infinity
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Forgets the previous result.
+     */
+    void clear() {
+        kind = Kind.NONE;
+        index = -1;
+        distance = Double.POSITIVE_INFINITY;
+        time = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Records a hit if it is nearer than the current one. Equal hits are broken by kind,
+     * then by index, so the result does not depend on the order objects are tested in.
+     *
+     * @param hitTime  the fraction of the ray before the hit
+     * @param hitKind  the kind of object hit
+     * @param hitIndex the index of the object hit
+     * @return true if the hit was recorded
+     */
+    boolean offer(double hitTime, Kind hitKind, int hitIndex) {
+        if (hitTime > time || (hitTime == time && (hitKind.compareTo(kind) > 0
+                || (hitKind == kind && hitIndex >= index)))) {
+            return false;
+        }
+        time = hitTime;
+        kind = hitKind;
+        index = hitIndex;
+        return true;
+    }
+
+    /**
+     * Fills in the hit point and distance once the nearest hit is known.
+     *
+     * @param x0 the x-coordinate of the start of the ray
+     * @param y0 the y-coordinate of the start of the ray
+     * @param dx the horizontal extent of the ray
+     * @param dy the vertical extent of the ray
+     */
+    void finish(double x0, double y0, double dx, double dy) {
+        if (kind == Kind.NONE) {
+            return;
+        }
+        x = x0 + time * dx;
+        y = y0 + time * dy;
+        distance = time * Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -156,7 +156,19 @@ public class Rectangle {
      * @param drawSurface the surface on which to draw the rectangle
      */
     public void drawOn(DrawSurface drawSurface) {
+        drawOn(drawSurface, 0, 0);
+    }
+
+    /**
+     * Draws the rectangle on the given DrawSurface, shifted by an offset.
+     *
+     * @param drawSurface the surface on which to draw the rectangle
+     * @param offsetX     the world x-coordinate drawn at the left edge of the surface
+     * @param offsetY     the world y-coordinate drawn at the top edge of the surface
+     */
+    public void drawOn(DrawSurface drawSurface, double offsetX, double offsetY) {
         drawSurface.setColor(color);
-        drawSurface.fillRectangle((int) min.getX(), (int) min.getY(), (int) width, (int) height);
+        drawSurface.fillRectangle((int) (min.getX() - offsetX), (int) (min.getY() - offsetY),
+                (int) width, (int) height);
     }
 }
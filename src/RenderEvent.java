@@ -0,0 +1,41 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event spanning one drawing pass of a world, by whichever renderer drew it.
+ * On by default; see {@code physics.jfc}.
+ */
+@Name("balls.Render")
+@Label("Render Pass")
+@Category({"Bouncing Balls"})
+@Description("One frame drawn by a renderer")
+@StackTrace(false)
+public class RenderEvent extends Event {
+    @Label("Renderer")
+    private String renderer;
+
+    @Label("Balls")
+    @Description("Balls given to the renderer")
+    private int balls;
+
+    @Label("Drawn")
+    @Description("Balls drawn one by one")
+    private int drawn;
+
+    /**
+     * Fills in what was drawn.
+     *
+     * @param name       the renderer
+     * @param ballCount  the number of balls given to the renderer
+     * @param drawnCount the number of balls drawn one by one
+     */
+    public void set(String name, int ballCount, int drawnCount) {
+        this.renderer = name;
+        this.balls = ballCount;
+        this.drawn = drawnCount;
+    }
+}
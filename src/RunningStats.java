@@ -0,0 +1,81 @@
+/**
+ * Accumulates the mean and variance of a stream of samples (Welford's method).
+ * Adding the same samples in the same order always gives bit-identical results.
+ */
+public class RunningStats {
+    private static final double Z_95 = 1.959964;
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Adds a sample.
+     *
+     * @param value the sample
+     */
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * @return the number of samples
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the sample mean, or 0 without samples
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the unbiased sample variance, or 0 with fewer than two samples
+     */
+    public double getVariance() {
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+
+    /**
+     * @return the sample standard deviation
+     */
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return the half-width of the normal-approximation 95% confidence interval of the mean
+     */
+    public double getConfidence95() {
+        return count > 1 ? Z_95 * getStdDev() / Math.sqrt(count) : 0;
+    }
+
+    /**
+     * @return the smallest sample, or 0 without samples
+     */
+    public double getMin() {
+        return count > 0 ? min : 0;
+    }
+
+    /**
+     * @return the largest sample, or 0 without samples
+     */
+    public double getMax() {
+        return count > 0 ? max : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.4f +- %.4f", getMean(), getConfidence95());
+    }
+}
@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads frames published by a {@link WorldExporter}, possibly in another process. Each
+ * {@link #read()} copies the newest complete frame into arrays owned by the reader, retrying
+ * while the writer is in the middle of a frame. Frames are copied into a spare set of arrays
+ * first, so the accessors always show the last complete frame.
+ */
+public class SharedWorldReader implements AutoCloseable {
+    private static final long MAX_WAIT_MILLIS = 100;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int ballCapacity;
+    private final int obstacleCapacity;
+    private final Rectangle frame;
+
+    private long sequence = -1;
+    private long retries;
+    // the last complete frame, and the one being copied into
+    private Frame current;
+    private Frame spare;
+
+    /**
+     * Maps an export file for reading.
+     *
+     * @param path the file written by a {@link WorldExporter}
+     * @throws IOException if the file cannot be mapped or is not an export file
+     */
+    public SharedWorldReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        buffer.order(ByteOrder.nativeOrder());
+        if (channel.size() < WorldExporter.HEADER_BYTES
+                || buffer.getInt(WorldExporter.MAGIC_OFFSET) != WorldExporter.MAGIC) {
+            channel.close();
+            throw new IOException("not a world export file: " + path);
+        }
+        VarHandle.loadLoadFence();
+        if (buffer.getInt(WorldExporter.VERSION_OFFSET) != WorldExporter.VERSION) {
+            channel.close();
+            throw new IOException("unsupported export version in " + path);
+        }
+        this.ballCapacity = buffer.getInt(WorldExporter.BALL_CAPACITY_OFFSET);
+        this.obstacleCapacity = buffer.getInt(WorldExporter.OBSTACLE_CAPACITY_OFFSET);
+        this.frame = new Rectangle(buffer.getDouble(WorldExporter.FRAME_OFFSET),
+                buffer.getDouble(WorldExporter.FRAME_OFFSET + 8), buffer.getDouble(WorldExporter.FRAME_OFFSET + 16),
+                buffer.getDouble(WorldExporter.FRAME_OFFSET + 24));
+        this.current = new Frame(ballCapacity, obstacleCapacity);
+        this.spare = new Frame(ballCapacity, obstacleCapacity);
+    }
+
+    /**
+     * Copies the newest complete frame, if it is newer than the one already read. While the
+     * writer is in the middle of a frame the reader waits for it, for up to about
+     * {@value #MAX_WAIT_MILLIS} milliseconds. The previous frame stays available if no new one
+     * could be read.
+     *
+     * @return true if a new frame was read
+     */
+    public boolean read() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_WAIT_MILLIS);
+        while (System.nanoTime() < deadline) {
+            long before = (long) WorldExporter.LONGS.getAcquire(buffer, WorldExporter.SEQUENCE_OFFSET);
+            if (before == sequence) {
+                return false;
+            }
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            spare.copyFrom(buffer, ballCapacity);
+            // the copy must be complete before the sequence is checked again
+            VarHandle.loadLoadFence();
+            long after = (long) WorldExporter.LONGS.getVolatile(buffer, WorldExporter.SEQUENCE_OFFSET);
+            if (after == before) {
+                Frame read = spare;
+                spare = current;
+                current = read;
+                sequence = before;
+                return true;
+            }
+            retries++;
+        }
+        return false;
+    }
+
+    /**
+     * One copied frame.
+     */
+    private static final class Frame {
+        private long tick;
+        private int ballCount;
+        private int obstacleCount;
+        private final double[] ballX;
+        private final double[] ballY;
+        private final int[] ballSize;
+        private final int[] ballColor;
+        private final double[] obstacleX;
+        private final double[] obstacleY;
+        private final double[] obstacleWidth;
+        private final double[] obstacleHeight;
+        private final int[] obstacleColor;
+
+        /**
+         * @param ballCapacity     the largest number of balls
+         * @param obstacleCapacity the largest number of obstacles
+         */
+        Frame(int ballCapacity, int obstacleCapacity) {
+            ballX = new double[ballCapacity];
+            ballY = new double[ballCapacity];
+            ballSize = new int[ballCapacity];
+            ballColor = new int[ballCapacity];
+            obstacleX = new double[obstacleCapacity];
+            obstacleY = new double[obstacleCapacity];
+            obstacleWidth = new double[obstacleCapacity];
+            obstacleHeight = new double[obstacleCapacity];
+            obstacleColor = new int[obstacleCapacity];
+        }
+
+        /**
+         * Copies the frame fields. The result is only meaningful if no write overlapped the copy.
+         *
+         * @param buffer       the mapped file
+         * @param ballCapacity the ball capacity of the file
+         */
+        void copyFrom(MappedByteBuffer buffer, int ballCapacity) {
+            tick = buffer.getLong(WorldExporter.TICK_OFFSET);
+            // counts may be torn by a concurrent write; clamp them so the copy stays in bounds
+            ballCount = Math.max(0, Math.min(buffer.getInt(WorldExporter.BALL_COUNT_OFFSET), ballX.length));
+            obstacleCount = Math.max(0, Math.min(buffer.getInt(WorldExporter.OBSTACLE_COUNT_OFFSET),
+                    obstacleX.length));
+            int offset = WorldExporter.HEADER_BYTES;
+            for (int i = 0; i < ballCount; i++) {
+                ballX[i] = buffer.getDouble(offset);
+                ballY[i] = buffer.getDouble(offset + 8);
+                ballSize[i] = buffer.getInt(offset + 16);
+                ballColor[i] = buffer.getInt(offset + 20);
+                offset += WorldExporter.BALL_BYTES;
+            }
+            offset = WorldExporter.obstaclesOffset(ballCapacity);
+            for (int i = 0; i < obstacleCount; i++) {
+                obstacleX[i] = buffer.getDouble(offset);
+                obstacleY[i] = buffer.getDouble(offset + 8);
+                obstacleWidth[i] = buffer.getDouble(offset + 16);
+                obstacleHeight[i] = buffer.getDouble(offset + 24);
+                obstacleColor[i] = buffer.getInt(offset + 32);
+                offset += WorldExporter.OBSTACLE_BYTES;
+            }
+        }
+    }
+
+    // ---------------- Accessors ----------------
+
+    /**
+     * @return the frame of the exported world
+     */
+    public Rectangle getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return the world tick of the last frame read
+     */
+    public long getTick() {
+        return current.tick;
+    }
+
+    /**
+     * @return the number of frames the writer has published, as of the last frame read
+     */
+    public long getFrameNumber() {
+        return sequence / 2;
+    }
+
+    /**
+     * @return the number of copies thrown away because the writer changed the frame meanwhile
+     */
+    public long getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return the number of balls in the last frame read
+     */
+    public int getBallCount() {
+        return current.ballCount;
+    }
+
+    /**
+     * @param i a ball index
+     * @return the x-coordinate of the ball's center
+     */
+    public double getBallX(int i) {
+        return current.ballX[i];
+    }
+
+    /**
+     * @param i a ball index
+     * @return the y-coordinate of the ball's center
+     */
+    public double getBallY(int i) {
+        return current.ballY[i];
+    }
+
+    /**
+     * @param i a ball index
+     * @return the radius of the ball
+     */
+    public int getBallSize(int i) {
+        return current.ballSize[i];
+    }
+
+    /**
+     * @param i a ball index
+     * @return the RGB color of the ball
+     */
+    public int getBallColor(int i) {
+        return current.ballColor[i];
+    }
+
+    /**
+     * @return the number of obstacles in the last frame read
+     */
+    public int getObstacleCount() {
+        return current.obstacleCount;
+    }
+
+    /**
+     * @param i an obstacle index
+     * @return the left edge of the obstacle
+     */
+    public double getObstacleX(int i) {
+        return current.obstacleX[i];
+    }
+
+    /**
+     * @param i an obstacle index
+     * @return the top edge of the obstacle
+     */
+    public double getObstacleY(int i) {
+        return current.obstacleY[i];
+    }
+
+    /**
+     * @param i an obstacle index
+     * @return the width of the obstacle
+     */
+    public double getObstacleWidth(int i) {
+        return current.obstacleWidth[i];
+    }
+
+    /**
+     * @param i an obstacle index
+     * @return the height of the obstacle
+     */
+    public double getObstacleHeight(int i) {
+        return current.obstacleHeight[i];
+    }
+
+    /**
+     * @param i an obstacle index
+     * @return the RGB color of the obstacle
+     */
+    public int getObstacleColor(int i) {
+        return current.obstacleColor[i];
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,454 @@
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a world split into vertical slabs of equal width, each stepped by a {@link SlabWorker}
+ * in its own process, so the balls are spread over several heaps. The workers are started
+ * here on this machine and talk to this coordinator and to each other over loopback sockets;
+ * the coordinator only tells them to step and collects the balls when asked.
+ *
+ * <p>A ball belongs to the slab its center is in and moves to the neighboring slab, with its
+ * id, after a step that takes its center across the slab's edge. Each worker also keeps ghost
+ * copies of the balls within a halo of its edges, refreshed every step. The balls do not
+ * push each other, so nothing reads the ghosts yet; they are what a ball-ball force near an
+ * edge would be computed against.</p>
+ *
+ * <p>Usage: {@code SlabCoordinator [workers=3] [balls=30000] [steps=500] [batch=50] [width=2400]
+ * [obstacles=30] [halo=50] [check=true] [seed=1]}</p>
+ */
+public class SlabCoordinator implements AutoCloseable {
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+    private static final int SETUP_TIMEOUT_MILLIS = 30000;
+    private static final double FRAME_HEIGHT = 600;
+    private static final int MAX_SIZE = 10;
+    private static final double MAX_SPEED = 8;
+    private static final double OBSTACLE_SIDE = 20;
+
+    private final int ballCount;
+    private final List<Process> processes = new ArrayList<>();
+    private final Socket[] sockets;
+    private final DataInputStream[] in;
+    private final DataOutputStream[] out;
+    private final int[] owned;
+    private final int[] ghosts;
+    private long migrations;
+    private long slowestNanos;
+
+    /**
+     * Starts the workers and hands each one its slab, the obstacles near it and its balls.
+     * Returns once every worker is linked to its neighbors. If anything fails on the way, the
+     * workers started so far are killed.
+     *
+     * @param frame     the frame the balls bounce inside; it is split along x
+     * @param obstacles the obstacles the balls bounce off, which must not move
+     * @param balls     the balls; a ball's id is its position in this list
+     * @param workers   the number of slabs and worker processes
+     * @param halo      the width of the strip along each edge copied to the neighbor as ghosts
+     * @throws IOException if a worker cannot be started or reached, or does not answer within
+     *                     the setup timeout
+     */
+    public SlabCoordinator(Rectangle frame, List<Rectangle> obstacles, List<Ball> balls, int workers, double halo)
+            throws IOException {
+        this.ballCount = balls.size();
+        this.sockets = new Socket[workers];
+        this.in = new DataInputStream[workers];
+        this.out = new DataOutputStream[workers];
+        this.owned = new int[workers];
+        this.ghosts = new int[workers];
+        try {
+            int[] ports = connect(workers);
+            initialize(frame, obstacles, balls, halo, ports);
+            for (int i = 0; i < workers; i++) {
+                if (in[i].readInt() != SlabProtocol.READY) {
+                    throw new IOException("worker " + i + " did not link up");
+                }
+                // steps may take long; only the setup is timed
+                sockets[i].setSoTimeout(0);
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                release();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Starts the worker processes and accepts their connections.
+     *
+     * @param workers the number of workers
+     * @return for each worker, the port its right neighbor connects to
+     * @throws IOException if a worker cannot be started or does not connect in time
+     */
+    private int[] connect(int workers) throws IOException {
+        int[] ports = new int[workers];
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(SETUP_TIMEOUT_MILLIS);
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            for (int i = 0; i < workers; i++) {
+                processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        SlabWorker.class.getName(), String.valueOf(server.getLocalPort()), String.valueOf(i))
+                        .inheritIO().start());
+            }
+            for (int k = 0; k < workers; k++) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(SETUP_TIMEOUT_MILLIS);
+                DataInputStream hello = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                int i = hello.readInt();
+                ports[i] = hello.readInt();
+                sockets[i] = socket;
+                in[i] = hello;
+                out[i] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            }
+        }
+        return ports;
+    }
+
+    /**
+     * Sends every worker its slab, the obstacles near it, its neighbors and its balls.
+     *
+     * @param frame     the frame
+     * @param obstacles the obstacles
+     * @param balls     the balls
+     * @param halo      the width of the ghost strip
+     * @param ports     for each worker, the port its right neighbor connects to
+     * @throws IOException if a worker cannot be reached
+     */
+    private void initialize(Rectangle frame, List<Rectangle> obstacles, List<Ball> balls, double halo, int[] ports)
+            throws IOException {
+        int workers = ports.length;
+        double minX = frame.getMin().getX();
+        double width = frame.getWidth() / workers;
+        double maxSize = 0;
+        double maxSpeed = 0;
+        for (Ball ball : balls) {
+            maxSize = Math.max(maxSize, ball.getSize());
+            maxSpeed = Math.max(maxSpeed, ball.getVelocity().getSpeed());
+        }
+        // a ball is stepped by the slab it started in, so it can reach a step and a push out
+        // beyond the edge; obstacles that far out must be there too
+        double margin = 4 * maxSize + 2 * maxSpeed;
+        for (int i = 0; i < workers; i++) {
+            double left = i == 0 ? Double.NEGATIVE_INFINITY : minX + i * width;
+            double right = i == workers - 1 ? Double.POSITIVE_INFINITY : minX + (i + 1) * width;
+            List<Rectangle> near = new ArrayList<>();
+            for (Rectangle obstacle : obstacles) {
+                double obstacleX = obstacle.getMin().getX();
+                if (obstacleX + obstacle.getWidth() >= left - margin && obstacleX <= right + margin) {
+                    near.add(obstacle);
+                }
+            }
+            DataOutputStream init = out[i];
+            init.writeDouble(left);
+            init.writeDouble(right);
+            SlabProtocol.writeRectangle(init, frame);
+            init.writeDouble(halo);
+            init.writeInt(near.size());
+            for (Rectangle obstacle : near) {
+                SlabProtocol.writeRectangle(init, obstacle);
+            }
+            init.writeInt(i == 0 ? -1 : ports[i - 1]);
+            init.writeBoolean(i < workers - 1);
+            int mine = 0;
+            for (Ball ball : balls) {
+                if (slabOf(ball, minX, width, workers) == i) {
+                    mine++;
+                }
+            }
+            init.writeInt(mine);
+            for (int id = 0; id < balls.size(); id++) {
+                if (slabOf(balls.get(id), minX, width, workers) == i) {
+                    SlabProtocol.writeBall(init, id, balls.get(id));
+                }
+            }
+            init.flush();
+            owned[i] = mine;
+        }
+    }
+
+    /**
+     * @param ball    a ball
+     * @param minX    the left edge of the frame
+     * @param width   the width of a slab
+     * @param workers the number of slabs
+     * @return the slab the ball's center is in
+     */
+    private static int slabOf(Ball ball, double minX, double width, int workers) {
+        int i = (int) Math.floor((ball.getCenterX() - minX) / width);
+        return Math.max(0, Math.min(workers - 1, i));
+    }
+
+    // ---------------- Accessors ----------------
+
+    /**
+     * @param i a worker
+     * @return the number of balls it owns after the last {@link #step(int)}
+     */
+    public int getOwned(int i) {
+        return owned[i];
+    }
+
+    /**
+     * @param i a worker
+     * @return the number of ghosts it holds after the last {@link #step(int)}
+     */
+    public int getGhosts(int i) {
+        return ghosts[i];
+    }
+
+    /**
+     * @return the number of balls handed from one worker to another during the last {@link #step(int)}
+     */
+    public long getMigrations() {
+        return migrations;
+    }
+
+    /**
+     * @return how long the slowest worker took for the last {@link #step(int)}, in nanoseconds
+     */
+    public long getSlowestNanos() {
+        return slowestNanos;
+    }
+
+    // ---------------- Commands ----------------
+
+    /**
+     * Has every worker run a number of steps. The workers keep each other in step, so this
+     * waits only once, at the end.
+     *
+     * @param steps the number of steps
+     * @throws IOException if a worker cannot be reached
+     */
+    public void step(int steps) throws IOException {
+        for (DataOutputStream command : out) {
+            command.writeInt(SlabProtocol.STEP);
+            command.writeInt(steps);
+            command.flush();
+        }
+        migrations = 0;
+        slowestNanos = 0;
+        for (int i = 0; i < in.length; i++) {
+            owned[i] = in[i].readInt();
+            ghosts[i] = in[i].readInt();
+            migrations += in[i].readLong();
+            slowestNanos = Math.max(slowestNanos, in[i].readLong());
+        }
+    }
+
+    /**
+     * Collects copies of all the balls from the workers.
+     *
+     * @return the balls, in id order
+     * @throws IOException if a worker cannot be reached or a ball went missing
+     */
+    public List<Ball> gather() throws IOException {
+        for (DataOutputStream command : out) {
+            command.writeInt(SlabProtocol.GATHER);
+            command.flush();
+        }
+        Ball[] balls = new Ball[ballCount];
+        IntList ids = new IntList();
+        for (DataInputStream reply : in) {
+            int count = reply.readInt();
+            for (int k = 0; k < count; k++) {
+                Ball ball = SlabProtocol.readBall(reply, ids);
+                balls[ids.get(ids.size() - 1)] = ball;
+            }
+        }
+        if (ids.size() != ballCount) {
+            throw new IOException("gathered " + ids.size() + " balls out of " + ballCount);
+        }
+        return Arrays.asList(balls);
+    }
+
+    /**
+     * Tells the workers to stop and waits for them; workers that do not stop in time are
+     * killed.
+     *
+     * @throws IOException if a connection cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (int i = 0; i < sockets.length; i++) {
+                if (out[i] != null) {
+                    out[i].writeInt(SlabProtocol.STOP);
+                    out[i].flush();
+                }
+            }
+            for (Process process : processes) {
+                if (!process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Kills the workers that are still running and closes their connections.
+     *
+     * @throws IOException if a connection cannot be closed
+     */
+    private void release() throws IOException {
+        for (Process process : processes) {
+            process.destroyForcibly();
+        }
+        for (Socket socket : sockets) {
+            if (socket != null) {
+                socket.close();
+            }
+        }
+    }
+
+    // ---------------- Demo ----------------
+
+    /**
+     * Finds a key=value argument.
+     *
+     * @param args         the command line
+     * @param key          the key to look for
+     * @param defaultValue the value to use if the key is absent
+     * @return the value
+     */
+    private static String option(String[] args, String key, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                return arg.substring(key.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Builds square obstacles spread over the frame.
+     *
+     * @param frame the frame
+     * @param count the number of obstacles
+     * @param seed  the random seed
+     * @return the obstacles
+     */
+    private static List<Rectangle> createObstacles(Rectangle frame, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Rectangle> obstacles = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            double x = random.nextDouble(frame.getWidth() - OBSTACLE_SIDE);
+            double y = random.nextDouble(frame.getHeight() - OBSTACLE_SIDE);
+            obstacles.add(new Rectangle(x, y, OBSTACLE_SIDE, OBSTACLE_SIDE, Color.black));
+        }
+        return obstacles;
+    }
+
+    /**
+     * Builds small balls anywhere in the frame, outside the obstacles.
+     *
+     * @param frame     the frame
+     * @param obstacles the obstacles
+     * @param count     the number of balls
+     * @param seed      the random seed
+     * @return the balls
+     */
+    private static List<Ball> createBalls(Rectangle frame, List<Rectangle> obstacles, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Ball> balls = new ArrayList<>(count);
+        while (balls.size() < count) {
+            int size = 1 + random.nextInt(MAX_SIZE);
+            double x = random.nextDouble(size, frame.getWidth() - size);
+            double y = random.nextDouble(size, frame.getHeight() - size);
+            Ball ball = new Ball(x, y, size, Color.red, random.nextDouble(360), 1 + random.nextDouble(MAX_SPEED - 1));
+            boolean free = true;
+            for (Rectangle obstacle : obstacles) {
+                free &= !ball.isIntersecting(obstacle);
+            }
+            if (free) {
+                balls.add(ball);
+            }
+        }
+        return balls;
+    }
+
+    /**
+     * Runs a wide world on worker processes and, with check=true, the same world in this one,
+     * stepped ball by ball as {@link World#step()} does; prints the time per step of both and
+     * how far apart the balls ended.
+     *
+     * @param args key=value options, see the class documentation
+     * @throws IOException if a worker cannot be started or reached
+     */
+    public static void main(String[] args) throws IOException {
+        int workers = Integer.parseInt(option(args, "workers", "3"));
+        int count = Integer.parseInt(option(args, "balls", "30000"));
+        int steps = Integer.parseInt(option(args, "steps", "500"));
+        int batch = Integer.parseInt(option(args, "batch", "50"));
+        double width = Double.parseDouble(option(args, "width", "2400"));
+        int obstacleCount = Integer.parseInt(option(args, "obstacles", "30"));
+        double halo = Double.parseDouble(option(args, "halo", "50"));
+        boolean check = Boolean.parseBoolean(option(args, "check", "true"));
+        long seed = Long.parseLong(option(args, "seed", "1"));
+
+        Rectangle frame = new Rectangle(0, 0, width, FRAME_HEIGHT, Color.white);
+        List<Rectangle> obstacles = createObstacles(frame, obstacleCount, seed);
+        List<Ball> balls = createBalls(frame, obstacles, count, seed);
+        List<Ball> gathered;
+        long slabNanos = 0;
+        try (SlabCoordinator coordinator = new SlabCoordinator(frame, obstacles, balls, workers, halo)) {
+            long migrations = 0;
+            for (int done = 0; done < steps; done += batch) {
+                long start = System.nanoTime();
+                coordinator.step(Math.min(batch, steps - done));
+                slabNanos += System.nanoTime() - start;
+                migrations += coordinator.getMigrations();
+            }
+            StringBuilder split = new StringBuilder();
+            for (int i = 0; i < workers; i++) {
+                split.append(i == 0 ? "" : " ").append(coordinator.getOwned(i))
+                        .append('+').append(coordinator.getGhosts(i));
+            }
+            System.out.printf("%d balls, %d workers, %d steps: %.3f ms per step; owned+ghosts per worker %s;"
+                    + " %d migrations%n", count, workers, steps, slabNanos / 1e6 / steps, split, migrations);
+            gathered = coordinator.gather();
+        }
+        if (!check) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        for (int s = 0; s < steps; s++) {
+            for (int i = 0; i < balls.size(); i++) {
+                Ball ball = balls.get(i);
+                ball.moveStepInBox(frame);
+                for (int k = 0; k < obstacles.size(); k++) {
+                    ball.bounceOff(frame, obstacles.get(k));
+                }
+            }
+        }
+        long singleNanos = System.nanoTime() - start;
+        double worst = 0;
+        for (int i = 0; i < count; i++) {
+            Ball a = balls.get(i);
+            Ball b = gathered.get(i);
+            worst = Math.max(worst, Math.hypot(a.getCenterX() - b.getCenterX(), a.getCenterY() - b.getCenterY()));
+        }
+        System.out.printf("one process: %.3f ms per step; largest distance between the two %.3g px%n",
+                singleNanos / 1e6 / steps, worst);
+    }
+}
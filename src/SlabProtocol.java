@@ -0,0 +1,91 @@
+import java.awt.Color;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The messages between a {@link SlabCoordinator} and its {@link SlabWorker}s, and between
+ * neighboring workers. Everything is sent with {@link DataOutputStream} over loopback sockets:
+ * commands as one int, balls as their id, center, velocity, radius and color.
+ */
+public final class SlabProtocol {
+    /**
+     * Coordinator to worker: run a number of steps, answered with the worker's counts.
+     */
+    static final int STEP = 1;
+    /**
+     * Coordinator to worker: send every owned ball.
+     */
+    static final int GATHER = 2;
+    /**
+     * Coordinator to worker: close the links and exit.
+     */
+    static final int STOP = 3;
+    /**
+     * Worker to coordinator: the links to both neighbors are up.
+     */
+    static final int READY = 4;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private SlabProtocol() {
+        // prevents creating instances
+    }
+
+    /**
+     * @param out  the stream
+     * @param id   the ball's id, its position in the list the world was built from
+     * @param ball the ball
+     * @throws IOException if the stream fails
+     */
+    static void writeBall(DataOutputStream out, int id, Ball ball) throws IOException {
+        out.writeInt(id);
+        out.writeDouble(ball.getCenterX());
+        out.writeDouble(ball.getCenterY());
+        out.writeDouble(ball.getVelocity().getDx());
+        out.writeDouble(ball.getVelocity().getDy());
+        out.writeInt(ball.getSize());
+        out.writeInt(ball.getColor().getRGB());
+    }
+
+    /**
+     * Reads a ball written by {@link #writeBall(DataOutputStream, int, Ball)}.
+     *
+     * @param in  the stream
+     * @param ids where the ball's id is added
+     * @return the ball
+     * @throws IOException if the stream fails
+     */
+    static Ball readBall(DataInputStream in, IntList ids) throws IOException {
+        ids.add(in.readInt());
+        double x = in.readDouble();
+        double y = in.readDouble();
+        double dx = in.readDouble();
+        double dy = in.readDouble();
+        int size = in.readInt();
+        Color color = new Color(in.readInt());
+        return new Ball(x, y, size, color, new Velocity(dx, dy));
+    }
+
+    /**
+     * @param out       the stream
+     * @param rectangle the rectangle; its color is not sent
+     * @throws IOException if the stream fails
+     */
+    static void writeRectangle(DataOutputStream out, Rectangle rectangle) throws IOException {
+        out.writeDouble(rectangle.getMin().getX());
+        out.writeDouble(rectangle.getMin().getY());
+        out.writeDouble(rectangle.getWidth());
+        out.writeDouble(rectangle.getHeight());
+    }
+
+    /**
+     * @param in the stream
+     * @return a rectangle written by {@link #writeRectangle(DataOutputStream, Rectangle)}
+     * @throws IOException if the stream fails
+     */
+    static Rectangle readRectangle(DataInputStream in) throws IOException {
+        return new Rectangle(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+    }
+}
@@ -0,0 +1,296 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * One process of a {@link SlabCoordinator}: owns the balls whose centers lie in a vertical slab
+ * of the world and steps them. After every step it hands balls that crossed the slab's left or
+ * right edge to the neighbor on that side, and sends the neighbor copies of the balls within a
+ * halo of the shared edge, so each worker also sees a strip of the slab next to it.
+ *
+ * <p>Balls are stepped exactly as {@link World#step()} steps them, against the whole frame and
+ * every obstacle near the slab, in the world's obstacle order. A ball is stepped once per step
+ * by whichever worker owned it at the start, so the balls end where one world would put them.</p>
+ *
+ * <p>Both neighbors are written to on a separate thread while this one reads from them, so two
+ * workers sending large messages to each other at once cannot block each other.</p>
+ */
+public class SlabWorker {
+    private final DataInputStream control;
+    private final DataOutputStream reply;
+    private final double left;
+    private final double right;
+    private final Rectangle frame;
+    private final List<Rectangle> obstacles = new ArrayList<>();
+    private final double halo;
+    private final List<Ball> owned = new ArrayList<>();
+    private final IntList ids = new IntList();
+    private final List<Ball> ghosts = new ArrayList<>();
+    private final IntList ghostIds = new IntList();
+    private final Link leftLink;
+    private final Link rightLink;
+    private final ExecutorService sender = Executors.newSingleThreadExecutor();
+    private final ByteArrayOutputStream toLeft = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream toRight = new ByteArrayOutputStream();
+    private long migrated;
+
+    /**
+     * A socket to a neighboring worker, with buffered streams.
+     */
+    private static final class Link {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        /**
+         * @param socket a connected socket
+         * @throws IOException if its streams cannot be opened
+         */
+        private Link(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+    }
+
+    /**
+     * Reads the slab, the obstacles and the first balls from the coordinator, then links up with
+     * the neighbors: connects to the left one and accepts the right one.
+     *
+     * @param coordinator the connection to the coordinator, after the hello
+     * @param listener    the socket the right neighbor connects to
+     * @throws IOException if a connection fails
+     */
+    private SlabWorker(Socket coordinator, ServerSocket listener) throws IOException {
+        this.control = new DataInputStream(new BufferedInputStream(coordinator.getInputStream()));
+        this.reply = new DataOutputStream(new BufferedOutputStream(coordinator.getOutputStream()));
+        this.left = control.readDouble();
+        this.right = control.readDouble();
+        this.frame = SlabProtocol.readRectangle(control);
+        this.halo = control.readDouble();
+        int obstacleCount = control.readInt();
+        for (int k = 0; k < obstacleCount; k++) {
+            obstacles.add(SlabProtocol.readRectangle(control));
+        }
+        int leftPort = control.readInt();
+        boolean hasRight = control.readBoolean();
+        int ballCount = control.readInt();
+        for (int k = 0; k < ballCount; k++) {
+            owned.add(SlabProtocol.readBall(control, ids));
+        }
+        this.leftLink = leftPort < 0 ? null : new Link(new Socket(InetAddress.getLoopbackAddress(), leftPort));
+        this.rightLink = hasRight ? new Link(listener.accept()) : null;
+        listener.close();
+        reply.writeInt(SlabProtocol.READY);
+        reply.flush();
+    }
+
+    // ---------------- Simulation ----------------
+
+    /**
+     * Steps the owned balls, then trades migrants and ghosts with both neighbors.
+     *
+     * @throws IOException          if a neighbor link fails
+     * @throws InterruptedException if interrupted while sending
+     */
+    private void step() throws IOException, InterruptedException {
+        for (int i = 0; i < owned.size(); i++) {
+            Ball ball = owned.get(i);
+            ball.moveStepInBox(frame);
+            for (int k = 0; k < obstacles.size(); k++) {
+                ball.bounceOff(frame, obstacles.get(k));
+            }
+        }
+        toLeft.reset();
+        toRight.reset();
+        if (leftLink != null) {
+            encode(toLeft, true);
+        }
+        if (rightLink != null) {
+            encode(toRight, false);
+        }
+        Future<?> sent = sender.submit(() -> {
+            send(leftLink, toLeft);
+            send(rightLink, toRight);
+            return null;
+        });
+        ghosts.clear();
+        ghostIds.clear();
+        receive(leftLink);
+        receive(rightLink);
+        try {
+            sent.get();
+        } catch (ExecutionException e) {
+            throw new IOException("could not send to a neighbor", e.getCause());
+        }
+    }
+
+    /**
+     * Writes the message for one neighbor: the balls that crossed into its side, which are
+     * removed from this slab, then copies of the balls within the halo of the shared edge.
+     *
+     * @param buffer  where the message is written
+     * @param leftSide true for the left neighbor
+     * @throws IOException never, the buffer is in memory
+     */
+    private void encode(ByteArrayOutputStream buffer, boolean leftSide) throws IOException {
+        DataOutputStream out = new DataOutputStream(buffer);
+        int leaving = 0;
+        for (int i = 0; i < owned.size(); i++) {
+            if (leftSide ? owned.get(i).getCenterX() < left : owned.get(i).getCenterX() >= right) {
+                leaving++;
+            }
+        }
+        out.writeInt(leaving);
+        for (int i = owned.size() - 1; i >= 0; i--) {
+            Ball ball = owned.get(i);
+            if (leftSide ? ball.getCenterX() < left : ball.getCenterX() >= right) {
+                SlabProtocol.writeBall(out, ids.get(i), ball);
+                int last = owned.size() - 1;
+                owned.set(i, owned.get(last));
+                owned.remove(last);
+                ids.set(i, ids.get(last));
+                ids.swapRemove(last);
+            }
+        }
+        migrated += leaving;
+
+        int near = 0;
+        for (Ball ball : owned) {
+            if (leftSide ? ball.getCenterX() < left + halo : ball.getCenterX() >= right - halo) {
+                near++;
+            }
+        }
+        out.writeInt(near);
+        for (int i = 0; i < owned.size(); i++) {
+            Ball ball = owned.get(i);
+            if (leftSide ? ball.getCenterX() < left + halo : ball.getCenterX() >= right - halo) {
+                SlabProtocol.writeBall(out, ids.get(i), ball);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * @param link    a neighbor, or null if there is none on that side
+     * @param message the encoded message
+     * @throws IOException if the link fails
+     */
+    private static void send(Link link, ByteArrayOutputStream message) throws IOException {
+        if (link == null) {
+            return;
+        }
+        message.writeTo(link.out);
+        link.out.flush();
+    }
+
+    /**
+     * Reads a neighbor's message: its migrants become owned, its halo becomes ghosts.
+     *
+     * @param link a neighbor, or null if there is none on that side
+     * @throws IOException if the link fails
+     */
+    private void receive(Link link) throws IOException {
+        if (link == null) {
+            return;
+        }
+        int arriving = link.in.readInt();
+        for (int k = 0; k < arriving; k++) {
+            owned.add(SlabProtocol.readBall(link.in, ids));
+        }
+        int near = link.in.readInt();
+        for (int k = 0; k < near; k++) {
+            ghosts.add(SlabProtocol.readBall(link.in, ghostIds));
+        }
+    }
+
+    // ---------------- Commands ----------------
+
+    /**
+     * Answers the coordinator's commands until told to stop.
+     *
+     * @throws IOException          if a connection fails
+     * @throws InterruptedException if interrupted while sending
+     */
+    private void serve() throws IOException, InterruptedException {
+        while (true) {
+            int command = control.readInt();
+            if (command == SlabProtocol.STEP) {
+                int steps = control.readInt();
+                long start = System.nanoTime();
+                migrated = 0;
+                for (int s = 0; s < steps; s++) {
+                    step();
+                }
+                reply.writeInt(owned.size());
+                reply.writeInt(ghosts.size());
+                reply.writeLong(migrated);
+                reply.writeLong(System.nanoTime() - start);
+            } else if (command == SlabProtocol.GATHER) {
+                reply.writeInt(owned.size());
+                for (int i = 0; i < owned.size(); i++) {
+                    SlabProtocol.writeBall(reply, ids.get(i), owned.get(i));
+                }
+            } else {
+                return;
+            }
+            reply.flush();
+        }
+    }
+
+    /**
+     * Closes the neighbor links and stops the sending thread, which is not a daemon, so the
+     * process would not end while it runs.
+     *
+     * @throws IOException if closing fails
+     */
+    private void close() throws IOException {
+        sender.shutdown();
+        if (leftLink != null) {
+            leftLink.socket.close();
+        }
+        if (rightLink != null) {
+            rightLink.socket.close();
+        }
+    }
+
+    /**
+     * Entry point of a worker process, started by {@link SlabCoordinator}. Connects to the
+     * coordinator and says which slab it is and where its right neighbor can reach it.
+     *
+     * @param args the coordinator's port and the index of the slab
+     * @throws IOException          if a connection fails
+     * @throws InterruptedException if interrupted while sending
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = Integer.parseInt(args[0]);
+        int index = Integer.parseInt(args[1]);
+        try (Socket coordinator = new Socket(InetAddress.getLoopbackAddress(), port);
+             ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            coordinator.setTcpNoDelay(true);
+            DataOutputStream hello = new DataOutputStream(coordinator.getOutputStream());
+            hello.writeInt(index);
+            hello.writeInt(listener.getLocalPort());
+            hello.flush();
+            SlabWorker worker = new SlabWorker(coordinator, listener);
+            try {
+                worker.serve();
+            } finally {
+                worker.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free hand-off of {@link FrameSnapshot}s from one producer thread to one consumer
+ * thread (triple buffering). The producer always owns a back buffer it can fill, the consumer
+ * always owns a front buffer it can draw, and the third buffer sits in a shared middle slot,
+ * marked dirty when it holds a frame the consumer has not taken yet. Each side changes the
+ * middle slot only by swapping its own buffer into it in one atomic step, so every buffer is
+ * always owned by exactly one of the three places. Neither side ever waits for the other; a
+ * frame the consumer did not pick up in time is simply overwritten by the next one.
+ */
+public class SnapshotExchange {
+    private static final int BUFFERS = 3;
+    private static final int INDEX_MASK = 0b11;
+    private static final int DIRTY = 0b100;
+
+    private final FrameSnapshot[] buffers = new FrameSnapshot[BUFFERS];
+    // the index of the middle buffer, with DIRTY set if it holds an unread frame
+    private final AtomicInteger middle = new AtomicInteger(2);
+    private int back;
+    private int front = 1;
+
+    /**
+     * Constructs an exchange with three empty buffers.
+     */
+    public SnapshotExchange() {
+        for (int i = 0; i < BUFFERS; i++) {
+            buffers[i] = new FrameSnapshot();
+        }
+    }
+
+    /**
+     * Producer side: the buffer to fill before calling {@link #publish()}.
+     *
+     * @return the back buffer
+     */
+    public FrameSnapshot back() {
+        return buffers[back];
+    }
+
+    /**
+     * Producer side: makes the back buffer the latest frame and takes the middle buffer as the
+     * new back buffer, either the unread previous frame or the one the consumer released.
+     */
+    public void publish() {
+        back = middle.getAndSet(back | DIRTY) & INDEX_MASK;
+    }
+
+    /**
+     * Consumer side: the newest published frame, or the frame returned last time if
+     * nothing was published since.
+     *
+     * @return the front buffer
+     */
+    public FrameSnapshot front() {
+        // only the consumer clears the dirty bit, so a frame seen here is still there to take
+        if ((middle.get() & DIRTY) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return buffers[front];
+    }
+}
@@ -0,0 +1,155 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress test of {@link SnapshotExchange}: a producer thread fills and publishes frames as fast
+ * as it can while a consumer thread takes them, for millions of frames. Each side claims the
+ * buffer it holds, so a buffer handed to both sides at once, or a missing one, is caught the
+ * moment it happens. The consumer also checks that frames never go back in time, and at the
+ * end that it gets the last frame published and that exactly three buffers were ever used.
+ * Exits with status 1 on any failure.
+ *
+ * <p>Usage: {@code SnapshotExchangeCheck [frames=5000000]}</p>
+ */
+public class SnapshotExchangeCheck {
+    private static final int FREE = 0;
+    private static final int PRODUCER = 1;
+    private static final int CONSUMER = 2;
+    private static final int BUFFERS = 3;
+
+    private final SnapshotExchange exchange = new SnapshotExchange();
+    private final Map<FrameSnapshot, AtomicInteger> owners = new ConcurrentHashMap<>();
+    private final AtomicLong failures = new AtomicLong();
+    private final List<Ball> noBalls = Collections.emptyList();
+    private volatile boolean producing = true;
+
+    /**
+     * Finds a key=value argument.
+     *
+     * @param args         the command line
+     * @param key          the key to look for
+     * @param defaultValue the value to use if the key is absent
+     * @return the value
+     */
+    private static String option(String[] args, String key, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                return arg.substring(key.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Reports a failure; only the first few are printed.
+     *
+     * @param message what went wrong
+     */
+    private void fail(String message) {
+        if (failures.getAndIncrement() < BUFFERS) {
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * @param buffer a buffer just handed to a side
+     * @param side   the side taking it
+     */
+    private void claim(FrameSnapshot buffer, int side) {
+        if (buffer == null) {
+            fail((side == PRODUCER ? "producer" : "consumer") + " got no buffer");
+            return;
+        }
+        AtomicInteger owner = owners.computeIfAbsent(buffer, b -> new AtomicInteger());
+        int was = owner.get();
+        if (!owner.compareAndSet(FREE, side)) {
+            fail((side == PRODUCER ? "producer" : "consumer") + " got a buffer held by side " + was);
+        }
+    }
+
+    /**
+     * @param buffer a buffer a side is about to hand back, or null
+     * @param side   the side giving it up
+     */
+    private void release(FrameSnapshot buffer, int side) {
+        if (buffer != null) {
+            owners.get(buffer).compareAndSet(side, FREE);
+        }
+    }
+
+    /**
+     * Fills and publishes frames numbered 1 to the given number.
+     *
+     * @param frames the number of frames
+     */
+    private void produce(int frames) {
+        for (int frame = 1; frame <= frames; frame++) {
+            FrameSnapshot back = exchange.back();
+            claim(back, PRODUCER);
+            if (back == null) {
+                break;
+            }
+            back.captureTo(noBalls, frame);
+            release(back, PRODUCER);
+            exchange.publish();
+        }
+        producing = false;
+    }
+
+    /**
+     * Takes frames until the producer is done, then once more.
+     *
+     * @return the number of the last frame taken
+     */
+    private long consume() {
+        FrameSnapshot front = null;
+        long last = 0;
+        boolean more = true;
+        while (more) {
+            more = producing;
+            release(front, CONSUMER);
+            front = exchange.front();
+            claim(front, CONSUMER);
+            if (front == null) {
+                break;
+            }
+            if (front.getTickNanos() < last) {
+                fail("frame " + front.getTickNanos() + " came after frame " + last);
+            }
+            last = front.getTickNanos();
+        }
+        return last;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args key=value options, see the class documentation
+     * @throws InterruptedException if interrupted while waiting for the producer
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int frames = Integer.parseInt(option(args, "frames", "5000000"));
+        SnapshotExchangeCheck check = new SnapshotExchangeCheck();
+        Thread producer = new Thread(() -> check.produce(frames), "producer");
+        long start = System.nanoTime();
+        producer.start();
+        long last = check.consume();
+        producer.join();
+        if (last != frames) {
+            check.fail("the consumer ended with frame " + last + " instead of " + frames);
+        }
+        if (check.owners.size() != BUFFERS) {
+            check.fail(check.owners.size() + " buffers were used instead of " + BUFFERS);
+        }
+        System.out.printf("%d frames in %.0f ms, %d buffers, %d failures%n", frames,
+                (System.nanoTime() - start) / 1e6, check.owners.size(), check.failures.get());
+        if (check.failures.get() > 0) {
+            System.out.println("snapshot exchange check failed");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event spanning one {@link World#step()}, from the first queued command to
+ * the last ball moved. On by default; see {@code physics.jfc}.
+ */
+@Name("balls.Step")
+@Label("World Step")
+@Category({"Bouncing Balls"})
+@Description("One simulation step of a world")
+@StackTrace(false)
+public class StepEvent extends Event {
+    @Label("World")
+    private String world;
+
+    @Label("Tick")
+    @Description("The tick the step produced")
+    private long tick;
+
+    @Label("Balls")
+    private int balls;
+
+    @Label("Active Balls")
+    @Description("Balls stepped, the others being asleep")
+    private int activeBalls;
+
+    @Label("Obstacles")
+    private int obstacles;
+
+    @Label("Obstacle Hits")
+    private int hits;
+
+    @Label("Commands")
+    @Description("Queued commands applied at the start of the step")
+    private int commands;
+
+    /**
+     * Fills in what the step worked on and did.
+     *
+     * @param stepped  the world that was stepped
+     * @param hitCount the number of ball-obstacle hits
+     * @param applied  the number of commands applied
+     */
+    public void set(World stepped, int hitCount, int applied) {
+        this.world = stepped.getName();
+        this.tick = stepped.getTicks();
+        this.balls = stepped.getBalls().size();
+        this.activeBalls = stepped.getActiveBalls();
+        this.obstacles = stepped.getObstacles().size();
+        this.hits = hitCount;
+        this.commands = applied;
+    }
+
+    /**
+     * Fills in what a step of a zoned world worked on and did. Zones take no commands, and
+     * only the zones with balls are stepped.
+     *
+     * @param stepped  the world that was stepped
+     * @param hitCount the number of ball-obstacle hits, over all zones
+     */
+    public void set(ZonedWorld stepped, int hitCount) {
+        this.world = "ZonedWorld";
+        this.tick = stepped.getTicks();
+        this.balls = stepped.size();
+        this.activeBalls = this.balls;
+        int obstacleCount = 0;
+        for (Zone zone : stepped.getZones()) {
+            if (!zone.isAsleep()) {
+                obstacleCount += zone.getObstacles().size();
+            }
+        }
+        this.obstacles = obstacleCount;
+        this.hits = hitCount;
+        this.commands = 0;
+    }
+}
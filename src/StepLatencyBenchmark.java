@@ -0,0 +1,154 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times every single call of {@link Ball#moveStepInBoxAndCollide(Rectangle, Rectangle)} on the
+ * populations of {@link AdversarialWorkloads} and prints the latency distribution per scenario:
+ * mean, median, tail percentiles and worst case, with the push-out work behind them. Meant to
+ * judge changes to the collision code by their tail, not only by their average.
+ *
+ * <p>Each call is timed with two {@link System#nanoTime()} reads; their own cost is measured
+ * first and printed, since it is of the same order as a cheap step. The maximum also catches
+ * pauses of the JVM and the operating system, so it varies from run to run; the high
+ * percentiles are the steadier measure of the tail.</p>
+ *
+ * <p>Usage: {@code StepLatencyBenchmark [scenarios=TOUCHING,CORNERS,NARROW_GAP,FAST,MIXED]
+ * [balls=2000] [steps=500] [warmup=200] [seed=1]}</p>
+ */
+public class StepLatencyBenchmark {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final int TIMER_SAMPLES = 1_000_000;
+
+    /**
+     * Finds a key=value argument.
+     *
+     * @param args         the command line
+     * @param key          the key to look for
+     * @param defaultValue the value to use if the key is absent
+     * @return the value
+     */
+    private static String option(String[] args, String key, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                return arg.substring(key.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @param sorted     latencies in increasing order
+     * @param percentile the percentile, from 0 to 100
+     * @return the latency at that percentile (nearest rank)
+     */
+    private static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    /**
+     * @return the median time between two back-to-back {@link System#nanoTime()} reads
+     */
+    private static long timerOverhead() {
+        long[] samples = new long[TIMER_SAMPLES];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return percentile(samples, 50);
+    }
+
+    /**
+     * Steps every ball a number of times without timing.
+     *
+     * @param balls    the balls
+     * @param frame    the frame
+     * @param obstacle the gray box
+     * @param steps    the number of steps
+     */
+    private static void run(List<Ball> balls, Rectangle frame, Rectangle obstacle, int steps) {
+        for (int step = 0; step < steps; step++) {
+            for (Ball ball : balls) {
+                ball.moveStepInBoxAndCollide(frame, obstacle);
+            }
+        }
+    }
+
+    /**
+     * Times every ball step of one scenario and prints one line.
+     *
+     * @param scenario the population
+     * @param count    the number of balls
+     * @param steps    the number of timed steps
+     * @param warmup   the number of untimed steps first
+     * @param seed     the random seed
+     */
+    private static void measure(AdversarialWorkloads.Scenario scenario, int count, int steps, int warmup,
+                                long seed) {
+        Rectangle frame = AdversarialWorkloads.createFrame();
+        Rectangle obstacle = AdversarialWorkloads.createObstacle();
+        List<Ball> balls = AdversarialWorkloads.create(scenario, count, seed);
+        run(balls, frame, obstacle, warmup);
+        // the warm-up moved the balls away from where they were placed; start again from there
+        balls = AdversarialWorkloads.create(scenario, count, seed);
+
+        long[] samples = new long[count * steps];
+        int worstBall = -1;
+        long total = 0;
+        PhysicsStats.Snapshot before = PhysicsStats.snapshot();
+        int k = 0;
+        for (int step = 0; step < steps; step++) {
+            for (int i = 0; i < count; i++) {
+                Ball ball = balls.get(i);
+                long start = System.nanoTime();
+                ball.moveStepInBoxAndCollide(frame, obstacle);
+                long latency = System.nanoTime() - start;
+                if (worstBall < 0 || latency > samples[worstBall]) {
+                    worstBall = k;
+                }
+                samples[k++] = latency;
+                total += latency;
+            }
+        }
+        PhysicsStats.Snapshot work = PhysicsStats.snapshot().minus(before);
+        Ball worst = balls.get(worstBall % count);
+        Arrays.sort(samples);
+
+        StringBuilder line = new StringBuilder(String.format("%-10s %8.0f", scenario, total / (double) samples.length));
+        for (double p : PERCENTILES) {
+            line.append(String.format(" %8d", percentile(samples, p)));
+        }
+        line.append(String.format(" %8d %8.3f %8.4f %6d  ball %d (r=%d, speed %.1f)", samples[samples.length - 1],
+                work.get(PhysicsStats.Counter.PUSH_OUT_ITERATIONS) / (double) samples.length,
+                work.get(PhysicsStats.Counter.OBSTACLE_HITS) / (double) samples.length,
+                work.get(PhysicsStats.Counter.STUCK), worstBall % count, worst.getSize(),
+                worst.getVelocity().getSpeed()));
+        System.out.println(line);
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args key=value options, see the class documentation
+     */
+    public static void main(String[] args) {
+        String scenarios = option(args, "scenarios", "TOUCHING,CORNERS,NARROW_GAP,FAST,MIXED");
+        int count = Integer.parseInt(option(args, "balls", "2000"));
+        int steps = Integer.parseInt(option(args, "steps", "500"));
+        int warmup = Integer.parseInt(option(args, "warmup", "200"));
+        long seed = Long.parseLong(option(args, "seed", "1"));
+
+        System.out.printf("%d balls x %d steps per scenario, timer overhead %d ns (included below)%n",
+                count, steps, timerOverhead());
+        StringBuilder header = new StringBuilder(String.format("%-10s %8s", "scenario", "mean ns"));
+        for (double p : PERCENTILES) {
+            header.append(String.format(" %8s", "p" + (p == Math.rint(p) ? String.valueOf((int) p) : p)));
+        }
+        header.append(String.format(" %8s %8s %8s %6s  %s", "max", "passes", "hits", "stuck", "worst"));
+        System.out.println(header);
+        for (String name : scenarios.split(",")) {
+            measure(AdversarialWorkloads.Scenario.valueOf(name.trim().toUpperCase()), count, steps, warmup, seed);
+        }
+    }
+}
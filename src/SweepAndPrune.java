@@ -0,0 +1,253 @@
+import java.util.Arrays;
+
+/**
+ * Finds which balls may touch which boxes by sorting both along the x axis and sweeping
+ * once from left to right. The order is kept between calls and repaired with an insertion
+ * sort, which costs little more than one pass when things moved only a little since the last
+ * call, as they do from one step to the next. When that is not so, for example with many
+ * fast entries crowded along x, it gives up and sorts from scratch in O(n log n).
+ *
+ * <p>Boxes are reported against balls only, never against other boxes, and balls never
+ * against balls. Pairs are returned sorted by ball and then by box, whatever the sweep order
+ * was, so callers that resolve them in turn behave the same from run to run.</p>
+ */
+public class SweepAndPrune {
+    private int balls;
+    private int boxes;
+    private double[] minX = new double[0];
+    private double[] minY = new double[0];
+    private double[] maxX = new double[0];
+    private double[] maxY = new double[0];
+    private int[] order = new int[0];
+    private int[] scratch = new int[0];
+    private final IntList activeBalls = new IntList();
+    private final IntList activeBoxes = new IntList();
+    private long[] pairs = new long[16];
+    private int pairCount;
+    private long swaps;
+    private long fullSorts;
+
+    /**
+     * Sets how many balls and boxes there are. The order is rebuilt from scratch if either
+     * number changed, so the next {@link #sweep()} does a full sort.
+     *
+     * @param ballCount the number of balls
+     * @param boxCount  the number of boxes
+     */
+    public void resize(int ballCount, int boxCount) {
+        if (ballCount == balls && boxCount == boxes) {
+            return;
+        }
+        balls = ballCount;
+        boxes = boxCount;
+        int n = ballCount + boxCount;
+        minX = new double[n];
+        minY = new double[n];
+        maxX = new double[n];
+        maxY = new double[n];
+        order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+    }
+
+    /**
+     * Sets the bounds of a ball, usually covering where it was and where it is.
+     *
+     * @param i     the ball index
+     * @param left  the left edge
+     * @param top   the top edge
+     * @param right the right edge
+     * @param bot   the bottom edge
+     */
+    public void setBall(int i, double left, double top, double right, double bot) {
+        set(i, left, top, right, bot);
+    }
+
+    /**
+     * Sets the bounds of a box, usually covering where it was and where it is.
+     *
+     * @param j     the box index
+     * @param left  the left edge
+     * @param top   the top edge
+     * @param right the right edge
+     * @param bot   the bottom edge
+     */
+    public void setBox(int j, double left, double top, double right, double bot) {
+        set(balls + j, left, top, right, bot);
+    }
+
+    /**
+     * @param id    the entry
+     * @param left  the left edge
+     * @param top   the top edge
+     * @param right the right edge
+     * @param bot   the bottom edge
+     */
+    private void set(int id, double left, double top, double right, double bot) {
+        minX[id] = left;
+        minY[id] = top;
+        maxX[id] = right;
+        maxY[id] = bot;
+    }
+
+    /**
+     * Sorts the entries by their left edge again and collects every ball-box pair whose
+     * bounds overlap, touching included.
+     *
+     * @return the number of pairs
+     */
+    public int sweep() {
+        sortByLeftEdge();
+        pairCount = 0;
+        activeBalls.clear();
+        activeBoxes.clear();
+        for (int k = 0; k < order.length; k++) {
+            int id = order[k];
+            double left = minX[id];
+            if (id < balls) {
+                expire(activeBoxes, left);
+                for (int a = 0; a < activeBoxes.size(); a++) {
+                    report(id, activeBoxes.get(a));
+                }
+                activeBalls.add(id);
+            } else {
+                expire(activeBalls, left);
+                for (int a = 0; a < activeBalls.size(); a++) {
+                    report(activeBalls.get(a), id);
+                }
+                activeBoxes.add(id);
+            }
+        }
+        Arrays.sort(pairs, 0, pairCount);
+        return pairCount;
+    }
+
+    /**
+     * Insertion sort of the order by left edge, starting from the order of the last call.
+     * If entries have moved so far that it would cost more than sorting from scratch, the
+     * insertion sort is abandoned for a merge sort.
+     */
+    private void sortByLeftEdge() {
+        int n = order.length;
+        long budget = (long) n * (Integer.SIZE - Integer.numberOfLeadingZeros(n));
+        long moved = 0;
+        for (int i = 1; i < n; i++) {
+            int id = order[i];
+            double key = minX[id];
+            int j = i - 1;
+            while (j >= 0 && minX[order[j]] > key) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            moved += i - 1 - j;
+            order[j + 1] = id;
+            if (moved > budget) {
+                mergeSort();
+                fullSorts++;
+                break;
+            }
+        }
+        swaps += moved;
+    }
+
+    /**
+     * Stable bottom-up merge sort of the order by left edge.
+     */
+    private void mergeSort() {
+        int n = order.length;
+        if (scratch.length < n) {
+            scratch = new int[n];
+        }
+        int[] from = order;
+        int[] to = scratch;
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                int a = lo;
+                int b = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (a < mid && (b >= hi || minX[from[a]] <= minX[from[b]])) {
+                        to[k] = from[a++];
+                    } else {
+                        to[k] = from[b++];
+                    }
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != order) {
+            System.arraycopy(from, 0, order, 0, n);
+        }
+    }
+
+    /**
+     * Drops the entries that end left of an edge; the sweep has passed them for good.
+     *
+     * @param active the entries still open
+     * @param left   the left edge of the entry being added
+     */
+    private void expire(IntList active, double left) {
+        for (int a = active.size() - 1; a >= 0; a--) {
+            if (maxX[active.get(a)] < left) {
+                active.swapRemove(a);
+            }
+        }
+    }
+
+    /**
+     * Records a pair if the two entries also overlap vertically.
+     *
+     * @param ball the ball entry
+     * @param box  the box entry
+     */
+    private void report(int ball, int box) {
+        if (minY[ball] > maxY[box] || minY[box] > maxY[ball]) {
+            return;
+        }
+        if (pairCount == pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairCount * 2);
+        }
+        pairs[pairCount++] = ((long) ball << Integer.SIZE) | (box - balls);
+    }
+
+    /**
+     * @return the number of pairs found by the last sweep
+     */
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    /**
+     * @param k the pair, from 0 to {@link #getPairCount()}
+     * @return the ball of the pair
+     */
+    public int getPairBall(int k) {
+        return (int) (pairs[k] >>> Integer.SIZE);
+    }
+
+    /**
+     * @param k the pair, from 0 to {@link #getPairCount()}
+     * @return the box of the pair
+     */
+    public int getPairBox(int k) {
+        return (int) pairs[k];
+    }
+
+    /**
+     * @return the number of places entries were moved by the insertion sorts so far
+     */
+    public long getSwaps() {
+        return swaps;
+    }
+
+    /**
+     * @return the number of times the insertion sort was abandoned for a full sort
+     */
+    public long getFullSorts() {
+        return fullSorts;
+    }
+}
@@ -0,0 +1,228 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Checks {@link SweepAndPrune} against testing every ball against every box. Balls and boxes
+ * drift a little each step, as they do in a {@link KinematicScene}, so the insertion sort does
+ * most of the work; a few entries jump across the frame now and then, which makes it give up
+ * for a full sort, and every so often the numbers of balls and boxes change. Coordinates are
+ * rounded to half pixels so that many pairs only touch. Every step the pairs of the sweep must
+ * be exactly the overlapping pairs, in ball and then box order; exits with status 1 otherwise.
+ *
+ * <p>Usage: {@code SweepCheck [balls=2000] [boxes=200] [steps=2000] [jumps=0.001] [resize=250]
+ * [seed=1]}</p>
+ */
+public class SweepCheck {
+    private static final double FRAME_SIZE = 2000;
+    private static final double MAX_BALL = 12;
+    private static final double MAX_BOX = 80;
+    private static final double MAX_DRIFT = 4;
+    private static final double GRID = 0.5;
+    private static final int SHOWN_MISMATCHES = 5;
+    private static final int MAX_CHANGE_PARTS = 4;
+
+    private final SplittableRandom random;
+    private final double jumps;
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] width = new double[0];
+    private double[] height = new double[0];
+    private int balls;
+    private int boxes;
+
+    /**
+     * @param seed  the random seed
+     * @param jumps the chance that an entry jumps to a random place in a step
+     */
+    private SweepCheck(long seed, double jumps) {
+        this.random = new SplittableRandom(seed);
+        this.jumps = jumps;
+    }
+
+    /**
+     * Finds a key=value argument.
+     *
+     * @param args         the command line
+     * @param key          the key to look for
+     * @param defaultValue the value to use if the key is absent
+     * @return the value
+     */
+    private static String option(String[] args, String key, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                return arg.substring(key.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @param value a coordinate
+     * @return the coordinate rounded to the grid
+     */
+    private static double snap(double value) {
+        return Math.rint(value / GRID) * GRID;
+    }
+
+    /**
+     * Puts new balls and boxes in random places; balls first, then boxes.
+     *
+     * @param ballCount the number of balls
+     * @param boxCount  the number of boxes
+     */
+    private void populate(int ballCount, int boxCount) {
+        balls = ballCount;
+        boxes = boxCount;
+        int n = ballCount + boxCount;
+        x = new double[n];
+        y = new double[n];
+        width = new double[n];
+        height = new double[n];
+        for (int id = 0; id < n; id++) {
+            double extent = id < balls ? MAX_BALL : MAX_BOX;
+            width[id] = snap(1 + random.nextDouble(extent));
+            height[id] = id < balls ? width[id] : snap(1 + random.nextDouble(extent));
+            place(id);
+        }
+    }
+
+    /**
+     * @param count a number of entries
+     * @return the number changed by up to a quarter either way, and at least 1
+     */
+    private int vary(int count) {
+        int change = count / MAX_CHANGE_PARTS;
+        return Math.max(1, count + random.nextInt(-change, change + 1));
+    }
+
+    /**
+     * @param id the entry to move to a random place
+     */
+    private void place(int id) {
+        x[id] = snap(random.nextDouble(FRAME_SIZE));
+        y[id] = snap(random.nextDouble(FRAME_SIZE));
+    }
+
+    /**
+     * Moves every entry a little, or across the frame once in a while.
+     */
+    private void drift() {
+        for (int id = 0; id < x.length; id++) {
+            if (random.nextDouble() < jumps) {
+                place(id);
+            } else {
+                x[id] = snap(Math.max(0, Math.min(FRAME_SIZE, x[id] + random.nextDouble(-MAX_DRIFT, MAX_DRIFT))));
+                y[id] = snap(Math.max(0, Math.min(FRAME_SIZE, y[id] + random.nextDouble(-MAX_DRIFT, MAX_DRIFT))));
+            }
+        }
+    }
+
+    /**
+     * Hands the current bounds to the sweep.
+     *
+     * @param sweep the sweep
+     */
+    private void load(SweepAndPrune sweep) {
+        sweep.resize(balls, boxes);
+        for (int i = 0; i < balls; i++) {
+            sweep.setBall(i, x[i], y[i], x[i] + width[i], y[i] + height[i]);
+        }
+        for (int j = 0; j < boxes; j++) {
+            int id = balls + j;
+            sweep.setBox(j, x[id], y[id], x[id] + width[id], y[id] + height[id]);
+        }
+    }
+
+    /**
+     * @return every overlapping ball-box pair, touching included, as ball in the high half and
+     *         box in the low half, in ball and then box order
+     */
+    private long[] bruteForce() {
+        long[] pairs = new long[16];
+        int count = 0;
+        for (int i = 0; i < balls; i++) {
+            for (int j = 0; j < boxes; j++) {
+                int id = balls + j;
+                if (x[i] <= x[id] + width[id] && x[id] <= x[i] + width[i]
+                        && y[i] <= y[id] + height[id] && y[id] <= y[i] + height[i]) {
+                    if (count == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, count * 2);
+                    }
+                    pairs[count++] = ((long) i << Integer.SIZE) | j;
+                }
+            }
+        }
+        return Arrays.copyOf(pairs, count);
+    }
+
+    /**
+     * @param sweep    the sweep, just run
+     * @param expected the brute force pairs
+     * @param step     the step, for the report
+     * @return the number of places where the sweep's pairs differ from the expected ones
+     */
+    private static int compare(SweepAndPrune sweep, long[] expected, int step) {
+        int count = sweep.getPairCount();
+        int mismatches = Math.abs(count - expected.length);
+        for (int k = 0; k < Math.min(count, expected.length); k++) {
+            long actual = ((long) sweep.getPairBall(k) << Integer.SIZE) | sweep.getPairBox(k);
+            if (actual != expected[k]) {
+                if (mismatches < SHOWN_MISMATCHES) {
+                    System.out.printf("step %d, pair %d: sweep has ball %d box %d, brute force ball %d box %d%n",
+                            step, k, sweep.getPairBall(k), sweep.getPairBox(k),
+                            (int) (expected[k] >>> Integer.SIZE), (int) expected[k]);
+                }
+                mismatches++;
+            }
+        }
+        if (count != expected.length) {
+            System.out.printf("step %d: sweep found %d pairs, brute force %d%n", step, count, expected.length);
+        }
+        return mismatches;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args key=value options, see the class documentation
+     */
+    public static void main(String[] args) {
+        int ballCount = Integer.parseInt(option(args, "balls", "2000"));
+        int boxCount = Integer.parseInt(option(args, "boxes", "200"));
+        int steps = Integer.parseInt(option(args, "steps", "2000"));
+        double jumps = Double.parseDouble(option(args, "jumps", "0.001"));
+        int resize = Integer.parseInt(option(args, "resize", "250"));
+        long seed = Long.parseLong(option(args, "seed", "1"));
+
+        SweepCheck scene = new SweepCheck(seed, jumps);
+        SweepAndPrune sweep = new SweepAndPrune();
+        scene.populate(ballCount, boxCount);
+        long pairs = 0;
+        long mismatches = 0;
+        int badSteps = 0;
+        for (int step = 0; step < steps; step++) {
+            if (resize > 0 && step > 0 && step % resize == 0) {
+                // new counts make the sweep rebuild its order
+                scene.populate(scene.vary(ballCount), scene.vary(boxCount));
+            } else {
+                scene.drift();
+            }
+            scene.load(sweep);
+            sweep.sweep();
+            long[] expected = scene.bruteForce();
+            pairs += expected.length;
+            int wrong = compare(sweep, expected, step);
+            mismatches += wrong;
+            if (wrong > 0) {
+                badSteps++;
+            }
+        }
+        System.out.printf("%d steps, %d pairs: %d insertion sort moves, %d full sorts;"
+                        + " %d mismatched pairs in %d steps%n", steps, pairs, sweep.getSwaps(), sweep.getFullSorts(),
+                mismatches, badSteps);
+        if (mismatches > 0) {
+            System.out.println("sweep check failed");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless Monte Carlo runner: simulates every point of a parameter grid many times in
+ * parallel and prints, per grid point, how often balls hit the obstacle, the fraction of
+ * runs with a hit and how long the first hit takes, with 95% confidence intervals.
+ *
+ * <p>Every run draws its random numbers from its own generator, seeded from the base seed,
+ * the grid point and the replicate number only. Results are aggregated in grid and
+ * replicate order, so the output is the same whatever the number of threads. A last line
+ * gives the {@link PhysicsStats} totals of the whole sweep.</p>
+ *
+ * <p>Usage: {@code SweepRunner [sizes=5-10,10-20] [speeds=0.5,1] [layouts=gray,center,none]
+ * [seeds=50] [steps=2000] [balls=10] [threads=N] [seed=1]}</p>
+ */
+public class SweepRunner {
+    private static final int FRAME_WIDTH = 800;
+    private static final int FRAME_HEIGHT = 600;
+    private static final long SEED_STRIDE = 0x9E3779B97F4A7C15L;
+
+    /**
+     * One point of the parameter grid.
+     */
+    private static final class Cell {
+        private final int minSize;
+        private final int maxSize;
+        private final double speed;
+        private final String layout;
+
+        /**
+         * @param minSize the smallest ball radius
+         * @param maxSize the largest ball radius
+         * @param speed   the speed factor applied to the size-based speed
+         * @param layout  the obstacle layout name
+         */
+        private Cell(int minSize, int maxSize, double speed, String layout) {
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+            this.speed = speed;
+            this.layout = layout;
+        }
+    }
+
+    /**
+     * Outcome of a single simulation.
+     */
+    private static final class RunResult {
+        private final long hits;
+        private final long firstHit;
+
+        /**
+         * @param hits     the number of ball-obstacle hits
+         * @param firstHit the step of the first hit, or -1 if there was none
+         */
+        private RunResult(long hits, long firstHit) {
+            this.hits = hits;
+            this.firstHit = firstHit;
+        }
+    }
+
+    /**
+     * Creates the obstacles of a named layout.
+     *
+     * @param layout "gray" (the box of MultipleFramesBouncingBallsAnimation), "center" or "none"
+     * @return the obstacles
+     */
+    static List<Rectangle> createLayout(String layout) {
+        List<Rectangle> obstacles = new ArrayList<>();
+        switch (layout) {
+            case "gray":
+                obstacles.add(new Rectangle(50, 50, 450, 450, Color.gray));
+                break;
+            case "center":
+                obstacles.add(new Rectangle(300, 200, 200, 200, Color.gray));
+                break;
+            case "none":
+                break;
+            default:
+                throw new IllegalArgumentException("unknown layout: " + layout);
+        }
+        return obstacles;
+    }
+
+    /**
+     * Rejects grid points whose balls do not fit between an obstacle and the frame;
+     * such balls are pushed back and forth until the collision loop gives up, every step.
+     *
+     * @param cell the grid point to check
+     */
+    private static void validate(Cell cell) {
+        for (Rectangle obstacle : createLayout(cell.layout)) {
+            double[] gaps = {
+                    obstacle.getMin().getX(),
+                    obstacle.getMin().getY(),
+                    FRAME_WIDTH - obstacle.getMin().getX() - obstacle.getWidth(),
+                    FRAME_HEIGHT - obstacle.getMin().getY() - obstacle.getHeight()
+            };
+            for (double gap : gaps) {
+                if (gap > 0 && 2 * cell.maxSize >= gap) {
+                    throw new IllegalArgumentException("balls of radius " + cell.maxSize
+                            + " do not fit the " + (int) gap + " pixel corridor of layout " + cell.layout);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the world of one run. Balls are spawned outside every obstacle.
+     *
+     * @param cell   the grid point
+     * @param balls  the number of balls
+     * @param random the generator of this run
+     * @return the new world
+     */
+    static World createWorld(Cell cell, int balls, SplittableRandom random) {
+        World world = new World(cell.layout, new Rectangle(0, 0, FRAME_WIDTH, FRAME_HEIGHT), 0);
+        for (Rectangle obstacle : createLayout(cell.layout)) {
+            world.addObstacle(obstacle);
+        }
+        for (int i = 0; i < balls; i++) {
+            int size = cell.minSize + random.nextInt(cell.maxSize - cell.minSize + 1);
+            double speed = cell.speed * (size < 50 ? 25 - (size / 2.0) : 1);
+            Ball ball = new Ball(0, 0, size, Color.black, random.nextDouble(360), speed);
+            do {
+                ball.setX(random.nextDouble(size, FRAME_WIDTH - size));
+                ball.setY(random.nextDouble(size, FRAME_HEIGHT - size));
+            } while (touchesObstacle(ball, world));
+            world.addBall(ball);
+        }
+        return world;
+    }
+
+    /**
+     * @param ball  the ball to test
+     * @param world the world holding the obstacles
+     * @return true if the ball touches any obstacle of the world
+     */
+    private static boolean touchesObstacle(Ball ball, World world) {
+        for (Rectangle obstacle : world.getObstacles()) {
+            if (ball.isIntersecting(obstacle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs one simulation to completion.
+     *
+     * @param cell  the grid point
+     * @param balls the number of balls
+     * @param steps the number of steps
+     * @param seed  the seed of this run
+     * @return the hit statistics of the run
+     */
+    private static RunResult simulate(Cell cell, int balls, int steps, long seed) {
+        World world = createWorld(cell, balls, new SplittableRandom(seed));
+        long firstHit = -1;
+        for (int step = 1; step <= steps; step++) {
+            if (world.step() > 0 && firstHit < 0) {
+                firstHit = step;
+            }
+        }
+        return new RunResult(world.getObstacleHits(), firstHit);
+    }
+
+    /**
+     * Derives the seed of one run from the base seed and its position in the sweep only.
+     *
+     * @param baseSeed  the seed of the whole sweep
+     * @param cell      the index of the grid point
+     * @param replicate the replicate number inside the grid point
+     * @return the seed of the run
+     */
+    private static long taskSeed(long baseSeed, int cell, int replicate) {
+        return new SplittableRandom(baseSeed + cell * SEED_STRIDE).split().nextLong() + replicate * SEED_STRIDE;
+    }
+
+    /**
+     * Finds a key=value argument.
+     *
+     * @param args         the command line
+     * @param key          the key to look for
+     * @param defaultValue the value to use if the key is absent
+     * @return the value
+     */
+    private static String option(String[] args, String key, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                return arg.substring(key.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Expands the sizes, speeds and layouts options into the grid.
+     *
+     * @param args the command line
+     * @return the grid points in output order
+     */
+    private static List<Cell> createGrid(String[] args) {
+        List<Cell> grid = new ArrayList<>();
+        for (String sizes : option(args, "sizes", "5-10,10-20").split(",")) {
+            String[] range = sizes.split("-");
+            int minSize = Integer.parseInt(range[0].trim());
+            int maxSize = range.length > 1 ? Integer.parseInt(range[1].trim()) : minSize;
+            for (String speed : option(args, "speeds", "0.5,1").split(",")) {
+                for (String layout : option(args, "layouts", "gray,center").split(",")) {
+                    Cell cell = new Cell(minSize, maxSize, Double.parseDouble(speed), layout.trim());
+                    validate(cell);
+                    grid.add(cell);
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Main method: runs the sweep and prints one line per grid point as soon as it completes.
+     *
+     * @param args key=value options, see the class documentation
+     * @throws InterruptedException if interrupted while waiting for results
+     * @throws ExecutionException   if a simulation failed
+     */
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        List<Cell> grid = createGrid(args);
+        int seeds = Integer.parseInt(option(args, "seeds", "50"));
+        int steps = Integer.parseInt(option(args, "steps", "2000"));
+        int balls = Integer.parseInt(option(args, "balls", "10"));
+        long baseSeed = Long.parseLong(option(args, "seed", "1"));
+        int threads = Integer.parseInt(option(args, "threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        PhysicsStats.Snapshot before = PhysicsStats.snapshot();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<List<Future<RunResult>>> results = new ArrayList<>();
+            for (int c = 0; c < grid.size(); c++) {
+                Cell cell = grid.get(c);
+                List<Future<RunResult>> runs = new ArrayList<>();
+                for (int r = 0; r < seeds; r++) {
+                    long seed = taskSeed(baseSeed, c, r);
+                    runs.add(pool.submit(() -> simulate(cell, balls, steps, seed)));
+                }
+                results.add(runs);
+            }
+
+            System.out.println("sizes,speed,layout,runs,hits/run,ci95,hit fraction,ci95,first hit,ci95,never hit");
+            for (int c = 0; c < grid.size(); c++) {
+                Cell cell = grid.get(c);
+                RunningStats hits = new RunningStats();
+                // 1 for a run with a hit, 0 for one without: the mean is the hit fraction and
+                // its interval the normal approximation of a binomial proportion
+                RunningStats hitRuns = new RunningStats();
+                RunningStats firstHit = new RunningStats();
+                int neverHit = 0;
+                for (Future<RunResult> run : results.get(c)) {
+                    RunResult result = run.get();
+                    hits.add(result.hits);
+                    if (result.firstHit < 0) {
+                        neverHit++;
+                        hitRuns.add(0);
+                    } else {
+                        hitRuns.add(1);
+                        firstHit.add(result.firstHit);
+                    }
+                }
+                System.out.printf("%d-%d,%.2f,%s,%d,%.3f,%.3f,%.3f,%.3f,%.1f,%.1f,%d%n",
+                        cell.minSize, cell.maxSize, cell.speed, cell.layout, seeds,
+                        hits.getMean(), hits.getConfidence95(), hitRuns.getMean(), hitRuns.getConfidence95(),
+                        firstHit.getMean(), firstHit.getConfidence95(), neverHit);
+            }
+        } finally {
+            // a failed run must not leave the other runs going on the pool threads
+            pool.shutdownNow();
+        }
+        System.out.println("physics: " + PhysicsStats.snapshot().minus(before));
+    }
+}
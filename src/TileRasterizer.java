@@ -0,0 +1,339 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Draws obstacles and balls into a {@link Framebuffer} on several threads. The screen is cut
+ * into square tiles; every ball is listed in each tile its box touches, and the tiles are
+ * then filled in parallel, each by one thread, obstacles first and then balls in list order.
+ *
+ * <p>Whether a pixel is covered depends only on the pixel and the shape, never on the tile,
+ * and every tile draws its shapes in list order. The image is therefore the same for any tile
+ * size and number of threads, and the same as drawing everything in order on one thread.</p>
+ *
+ * <p>Balls are listed with a counting sort over fixed chunks of the ball list: each chunk
+ * counts the balls it puts in every tile, the counts are turned into offsets, and each chunk
+ * then writes its balls at its own offsets. Both passes run in parallel and the order within
+ * a tile still follows the ball list.</p>
+ */
+public class TileRasterizer {
+    /**
+     * Default side of a tile, in pixels.
+     */
+    public static final int DEFAULT_TILE_SIZE = 64;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int columns;
+    private final int rows;
+    private final int chunks;
+    private final ForkJoinPool pool;
+
+    // screen centers, radii (-1 when off screen) and colors of the balls being drawn
+    private int[] ballX = new int[0];
+    private int[] ballY = new int[0];
+    private int[] ballRadius = new int[0];
+    private int[] ballColor = new int[0];
+    // per chunk and tile: the number of balls, then the next free slot in entries
+    private final int[] chunkCursor;
+    // balls of tile t are entries[tileStart[t]] up to entries[tileStart[t + 1]]
+    private final int[] tileStart;
+    private int[] entries = new int[0];
+
+    // what the current draw works on
+    private List<Ball> balls;
+    private List<Rectangle> obstacles;
+    private int[] pixels;
+    private double offsetX;
+    private double offsetY;
+
+    /**
+     * Constructs a rasterizer for framebuffers of one size.
+     *
+     * @param width    the framebuffer width, in pixels
+     * @param height   the framebuffer height, in pixels
+     * @param tileSize the side of a tile, in pixels
+     * @param threads  the number of drawing threads
+     */
+    public TileRasterizer(int width, int height, int tileSize, int threads) {
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.columns = (width + tileSize - 1) / tileSize;
+        this.rows = (height + tileSize - 1) / tileSize;
+        this.chunks = Math.max(1, threads) * CHUNKS_PER_THREAD;
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+        this.chunkCursor = new int[chunks * columns * rows];
+        this.tileStart = new int[columns * rows + 1];
+    }
+
+    /**
+     * @return the width of the framebuffers drawn into
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the framebuffers drawn into
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of tiles
+     */
+    public int getTileCount() {
+        return columns * rows;
+    }
+
+    /**
+     * Draws obstacles and then balls into a framebuffer, over what it already holds. The
+     * balls and obstacles must not change while this runs.
+     *
+     * @param target       the framebuffer, of the size given at construction
+     * @param obstacleList the obstacles, drawn first
+     * @param ballList     the balls, drawn over the obstacles
+     * @param viewX        the world x-coordinate of the left edge of the framebuffer
+     * @param viewY        the world y-coordinate of the top edge of the framebuffer
+     */
+    public void draw(Framebuffer target, List<Rectangle> obstacleList, List<Ball> ballList, double viewX,
+                     double viewY) {
+        if (target.getWidth() != width || target.getHeight() != height) {
+            throw new IllegalArgumentException("framebuffer is " + target.getWidth() + "x" + target.getHeight()
+                    + ", expected " + width + "x" + height);
+        }
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        this.balls = ballList;
+        this.obstacles = obstacleList;
+        this.pixels = target.getPixels();
+        this.offsetX = viewX;
+        this.offsetY = viewY;
+        ensureCapacity(ballList.size());
+
+        Arrays.fill(chunkCursor, 0);
+        pool.invoke(new RangeTask(0, chunks, this::countChunk));
+        int tiles = columns * rows;
+        int total = 0;
+        for (int t = 0; t < tiles; t++) {
+            tileStart[t] = total;
+            for (int c = 0; c < chunks; c++) {
+                int count = chunkCursor[c * tiles + t];
+                chunkCursor[c * tiles + t] = total;
+                total += count;
+            }
+        }
+        tileStart[tiles] = total;
+        if (entries.length < total) {
+            entries = new int[Math.max(total, entries.length * 2)];
+        }
+        pool.invoke(new RangeTask(0, chunks, this::fillChunk));
+        pool.invoke(new RangeTask(0, tiles, this::drawTile));
+        if (event.shouldCommit()) {
+            event.set("TileRasterizer", ballList.size(), ballList.size());
+            event.commit();
+        }
+
+        this.balls = null;
+        this.obstacles = null;
+        this.pixels = null;
+    }
+
+    /**
+     * Stops the drawing threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // ---------------- Binning ----------------
+
+    /**
+     * Grows the per-ball arrays.
+     *
+     * @param n the number of balls to draw
+     */
+    private void ensureCapacity(int n) {
+        if (ballX.length < n) {
+            ballX = new int[n];
+            ballY = new int[n];
+            ballRadius = new int[n];
+            ballColor = new int[n];
+        }
+    }
+
+    /**
+     * @param chunk a chunk number
+     * @return the first ball of the chunk
+     */
+    private int chunkStart(int chunk) {
+        return (int) ((long) balls.size() * chunk / chunks);
+    }
+
+    /**
+     * Copies the screen position of the chunk's balls and counts them per tile.
+     *
+     * @param chunk the chunk number
+     */
+    private void countChunk(int chunk) {
+        int base = chunk * columns * rows;
+        for (int i = chunkStart(chunk); i < chunkStart(chunk + 1); i++) {
+            Ball ball = balls.get(i);
+            int x = (int) (ball.getCenterX() - offsetX);
+            int y = (int) (ball.getCenterY() - offsetY);
+            int r = ball.getSize();
+            ballX[i] = x;
+            ballY[i] = y;
+            ballColor[i] = ball.getColor().getRGB() & 0xFFFFFF;
+            if (r <= 0 || x + r < 0 || y + r < 0 || x - r >= width || y - r >= height) {
+                ballRadius[i] = -1;
+                continue;
+            }
+            ballRadius[i] = r;
+            int lastColumn = Math.min(columns - 1, (x + r) / tileSize);
+            int lastRow = Math.min(rows - 1, (y + r) / tileSize);
+            for (int row = Math.max(0, y - r) / tileSize; row <= lastRow; row++) {
+                for (int column = Math.max(0, x - r) / tileSize; column <= lastColumn; column++) {
+                    chunkCursor[base + row * columns + column]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the chunk's balls into the tile lists, at the offsets left by the counting pass.
+     *
+     * @param chunk the chunk number
+     */
+    private void fillChunk(int chunk) {
+        int base = chunk * columns * rows;
+        for (int i = chunkStart(chunk); i < chunkStart(chunk + 1); i++) {
+            int r = ballRadius[i];
+            if (r < 0) {
+                continue;
+            }
+            int lastColumn = Math.min(columns - 1, (ballX[i] + r) / tileSize);
+            int lastRow = Math.min(rows - 1, (ballY[i] + r) / tileSize);
+            for (int row = Math.max(0, ballY[i] - r) / tileSize; row <= lastRow; row++) {
+                for (int column = Math.max(0, ballX[i] - r) / tileSize; column <= lastColumn; column++) {
+                    entries[chunkCursor[base + row * columns + column]++] = i;
+                }
+            }
+        }
+    }
+
+    // ---------------- Drawing ----------------
+
+    /**
+     * Fills one tile: the obstacles, then the tile's balls in list order.
+     *
+     * @param tile the tile number
+     */
+    private void drawTile(int tile) {
+        int minX = (tile % columns) * tileSize;
+        int minY = (tile / columns) * tileSize;
+        int maxX = Math.min(width, minX + tileSize);
+        int maxY = Math.min(height, minY + tileSize);
+        for (Rectangle obstacle : obstacles) {
+            if (obstacle.getColor() != null) {
+                fillRectangle(obstacle, minX, minY, maxX, maxY);
+            }
+        }
+        for (int k = tileStart[tile]; k < tileStart[tile + 1]; k++) {
+            int i = entries[k];
+            fillCircle(ballX[i], ballY[i], ballRadius[i], ballColor[i], minX, minY, maxX, maxY);
+        }
+    }
+
+    /**
+     * Fills the part of an obstacle inside a tile, covering the same pixels as
+     * {@link Rectangle#drawOn(biuoop.DrawSurface, double, double)}.
+     *
+     * @param obstacle the obstacle
+     * @param minX     the left edge of the tile
+     * @param minY     the top edge of the tile
+     * @param maxX     the right edge of the tile, exclusive
+     * @param maxY     the bottom edge of the tile, exclusive
+     */
+    private void fillRectangle(Rectangle obstacle, int minX, int minY, int maxX, int maxY) {
+        int x = (int) (obstacle.getMin().getX() - offsetX);
+        int y = (int) (obstacle.getMin().getY() - offsetY);
+        int fromX = Math.max(minX, x);
+        int toX = Math.min(maxX, x + (int) obstacle.getWidth());
+        int fromY = Math.max(minY, y);
+        int toY = Math.min(maxY, y + (int) obstacle.getHeight());
+        int rgb = obstacle.getColor().getRGB() & 0xFFFFFF;
+        for (int py = fromY; py < toY; py++) {
+            if (fromX < toX) {
+                Arrays.fill(pixels, py * width + fromX, py * width + toX, rgb);
+            }
+        }
+    }
+
+    /**
+     * Fills the part of a circle inside a tile. A pixel is covered when its center is inside
+     * the circle.
+     *
+     * @param x    the center x-coordinate, in pixels
+     * @param y    the center y-coordinate, in pixels
+     * @param r    the radius, in pixels
+     * @param rgb  the color
+     * @param minX the left edge of the tile
+     * @param minY the top edge of the tile
+     * @param maxX the right edge of the tile, exclusive
+     * @param maxY the bottom edge of the tile, exclusive
+     */
+    private void fillCircle(int x, int y, int r, int rgb, int minX, int minY, int maxX, int maxY) {
+        int toY = Math.min(maxY, y + r);
+        for (int py = Math.max(minY, y - r); py < toY; py++) {
+            double dy = py + 0.5 - y;
+            double h2 = (double) r * r - dy * dy;
+            if (h2 <= 0) {
+                continue;
+            }
+            double half = Math.sqrt(h2);
+            int fromX = Math.max(minX, (int) Math.floor(x - half - 0.5) + 1);
+            int toX = Math.min(maxX, (int) Math.ceil(x + half - 0.5));
+            if (fromX < toX) {
+                Arrays.fill(pixels, py * width + fromX, py * width + toX, rgb);
+            }
+        }
+    }
+
+    /**
+     * Runs a body for every number of a range, splitting the range between the threads.
+     */
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int lo;
+        private final int hi;
+        private final transient IntConsumer body;
+
+        /**
+         * @param lo   the first number
+         * @param hi   one past the last number
+         * @param body what to run for each number
+         */
+        private RangeTask(int lo, int hi, IntConsumer body) {
+            this.lo = lo;
+            this.hi = hi;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new RangeTask(lo, mid, body), new RangeTask(mid, hi, body));
+            } else if (hi > lo) {
+                body.accept(lo);
+            }
+        }
+    }
+}
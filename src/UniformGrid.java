@@ -0,0 +1,283 @@
+import java.util.Arrays;
+
+/**
+ * A spatial index that divides a rectangular area into square cells and remembers which
+ * items (identified by non-negative int ids) overlap each cell. Finding the items near a
+ * region only visits the cells the region covers, so its cost depends on the size of the
+ * region, not on the number of items or the size of the area.
+ *
+ * <p>Items are axis-aligned boxes; a ball is usually inserted as its center point and found
+ * by padding the query with the largest radius. Coordinates outside the area are clamped
+ * to the border cells. Not thread-safe: queries use internal scratch state.</p>
+ */
+public class UniformGrid {
+    private final double originX;
+    private final double originY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final IntList[] cells;
+
+    // per id: first column, first row, last column, last row; first column is -1 if absent
+    private int[] ranges = new int[0];
+    // per id: the query that last reported it, so items spanning several cells are reported once
+    private int[] seen = new int[0];
+    private int query;
+
+    /**
+     * Constructs an empty grid covering the given area.
+     *
+     * @param bounds   the indexed area
+     * @param cellSize the side of a cell; roughly the size of a typical item or query
+     */
+    public UniformGrid(Rectangle bounds, double cellSize) {
+        this.originX = bounds.getMin().getX();
+        this.originY = bounds.getMin().getY();
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(bounds.getWidth() / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(bounds.getHeight() / cellSize));
+        this.cells = new IntList[columns * rows];
+    }
+
+    // ---------------- Geometry ----------------
+
+    /**
+     * @return the side of a cell
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * @return the number of cell columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of cell rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the x-coordinate of the left edge of the first column
+     */
+    public double getOriginX() {
+        return originX;
+    }
+
+    /**
+     * @return the y-coordinate of the top edge of the first row
+     */
+    public double getOriginY() {
+        return originY;
+    }
+
+    /**
+     * @param x an x-coordinate
+     * @return the column containing it, clamped to the grid
+     */
+    public int cellX(double x) {
+        int column = (int) Math.floor((x - originX) / cellSize);
+        return Math.max(0, Math.min(columns - 1, column));
+    }
+
+    /**
+     * @param y a y-coordinate
+     * @return the row containing it, clamped to the grid
+     */
+    public int cellY(double y) {
+        int row = (int) Math.floor((y - originY) / cellSize);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    /**
+     * Returns the ids overlapping a cell. The list must not be modified.
+     *
+     * @param column the cell column
+     * @param row    the cell row
+     * @return the ids in the cell, or null if the cell is empty and was never used
+     */
+    public IntList cell(int column, int row) {
+        return cells[row * columns + column];
+    }
+
+    // ---------------- Updates ----------------
+
+    /**
+     * @param id an item id
+     * @return true if the item is in the grid
+     */
+    public boolean contains(int id) {
+        return 4 * id < ranges.length && ranges[4 * id] >= 0;
+    }
+
+    /**
+     * Adds an item. An item already in the grid is moved instead.
+     *
+     * @param id   the item id
+     * @param minX the left edge of the item
+     * @param minY the top edge of the item
+     * @param maxX the right edge of the item
+     * @param maxY the bottom edge of the item
+     */
+    public void insert(int id, double minX, double minY, double maxX, double maxY) {
+        if (contains(id)) {
+            move(id, minX, minY, maxX, maxY);
+            return;
+        }
+        ensureCapacity(id);
+        int fromColumn = cellX(minX);
+        int fromRow = cellY(minY);
+        int toColumn = cellX(maxX);
+        int toRow = cellY(maxY);
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                int index = row * columns + column;
+                if (cells[index] == null) {
+                    cells[index] = new IntList(4);
+                }
+                cells[index].add(id);
+            }
+        }
+        ranges[4 * id] = fromColumn;
+        ranges[4 * id + 1] = fromRow;
+        ranges[4 * id + 2] = toColumn;
+        ranges[4 * id + 3] = toRow;
+    }
+
+    /**
+     * Updates the box of an item. Costs nothing unless the item changes cells.
+     *
+     * @param id   the item id
+     * @param minX the new left edge
+     * @param minY the new top edge
+     * @param maxX the new right edge
+     * @param maxY the new bottom edge
+     */
+    public void move(int id, double minX, double minY, double maxX, double maxY) {
+        if (!contains(id)) {
+            insert(id, minX, minY, maxX, maxY);
+            return;
+        }
+        int base = 4 * id;
+        if (ranges[base] == cellX(minX) && ranges[base + 1] == cellY(minY)
+                && ranges[base + 2] == cellX(maxX) && ranges[base + 3] == cellY(maxY)) {
+            return;
+        }
+        remove(id);
+        insert(id, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Removes an item if it is in the grid.
+     *
+     * @param id the item id
+     */
+    public void remove(int id) {
+        if (!contains(id)) {
+            return;
+        }
+        int base = 4 * id;
+        for (int row = ranges[base + 1]; row <= ranges[base + 3]; row++) {
+            for (int column = ranges[base]; column <= ranges[base + 2]; column++) {
+                IntList cell = cells[row * columns + column];
+                cell.swapRemove(cell.indexOf(id));
+            }
+        }
+        ranges[base] = -1;
+    }
+
+    /**
+     * Removes every item, keeping the allocated cells.
+     */
+    public void clear() {
+        for (IntList cell : cells) {
+            if (cell != null) {
+                cell.clear();
+            }
+        }
+        Arrays.fill(ranges, -1);
+    }
+
+    // ---------------- Queries ----------------
+
+    /**
+     * Finds the items whose cells overlap a box. Items are reported once each, in no
+     * particular order; callers test the exact geometry themselves.
+     *
+     * @param minX the left edge of the box
+     * @param minY the top edge of the box
+     * @param maxX the right edge of the box
+     * @param maxY the bottom edge of the box
+     * @param out  cleared, then filled with the ids found
+     */
+    public void query(double minX, double minY, double maxX, double maxY, IntList out) {
+        out.clear();
+        int stamp = nextQuery();
+        int toColumn = cellX(maxX);
+        int toRow = cellY(maxY);
+        for (int row = cellY(minY); row <= toRow; row++) {
+            for (int column = cellX(minX); column <= toColumn; column++) {
+                IntList cell = cells[row * columns + column];
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size(); i++) {
+                    int id = cell.get(i);
+                    if (markSeen(id, stamp)) {
+                        out.add(id);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts a new query for duplicate suppression; see {@link #markSeen(int, int)}.
+     *
+     * @return the stamp of the new query
+     */
+    public int nextQuery() {
+        query++;
+        if (query == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            query = 1;
+        }
+        return query;
+    }
+
+    /**
+     * Marks an item as reported by a query started with {@link #nextQuery()}.
+     *
+     * @param id    the item id
+     * @param stamp the stamp of the query
+     * @return true the first time the item is marked during this query
+     */
+    public boolean markSeen(int id, int stamp) {
+        if (seen[id] == stamp) {
+            return false;
+        }
+        seen[id] = stamp;
+        return true;
+    }
+
+    /**
+     * Grows the per-id arrays so they can hold the given id.
+     *
+     * @param id the largest id to hold
+     */
+    private void ensureCapacity(int id) {
+        if (id < seen.length) {
+            return;
+        }
+        int capacity = Math.max(id + 1, seen.length * 2);
+        int oldRanges = ranges.length;
+        ranges = Arrays.copyOf(ranges, 4 * capacity);
+        Arrays.fill(ranges, oldRanges, ranges.length, -1);
+        seen = Arrays.copyOf(seen, capacity);
+    }
+}
@@ -0,0 +1,366 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import biuoop.DrawSurface;
+
+/**
+ * Thin walls made of {@link Line} segments, in any direction, for mazes and polygonal
+ * obstacles. Balls are moved with a swept test: the whole step of the ball is checked
+ * against the walls and the frame, so even a ball faster than its own radius cannot pass
+ * through a wall.
+ * A ball reflects about the normal of the wall at the point of contact, which also makes
+ * wall ends and polygon corners round.
+ *
+ * <p>Segments are kept in parallel arrays and indexed by a {@link UniformGrid}, so a ball
+ * is only tested against the walls near its path.</p>
+ */
+public class WallMap {
+    private static final int MAX_BOUNCES_PER_STEP = 4;
+    // distance a ball is kept from a wall it touched, so the next test does not report it again
+    private static final double SEPARATION = 1e-7;
+
+    private final UniformGrid index;
+    private final List<Line> lines = new ArrayList<>();
+    private double[] x1 = new double[16];
+    private double[] y1 = new double[16];
+    private double[] x2 = new double[16];
+    private double[] y2 = new double[16];
+    private int count;
+    private Color color = Color.black;
+    private final IntList nearby = new IntList();
+
+    // result of the last call to firstContact
+    private double contactTime;
+    private int contactSegment;
+
+    /**
+     * Constructs an empty wall map.
+     *
+     * @param bounds   the area the walls are in
+     * @param cellSize the side of an index cell, about the length of a typical wall
+     */
+    public WallMap(Rectangle bounds, double cellSize) {
+        this.index = new UniformGrid(bounds, cellSize);
+    }
+
+    // ---------------- Building ----------------
+
+    /**
+     * Adds a wall.
+     *
+     * @param line the wall segment
+     */
+    public void addWall(Line line) {
+        if (count == x1.length) {
+            x1 = Arrays.copyOf(x1, count * 2);
+            y1 = Arrays.copyOf(y1, count * 2);
+            x2 = Arrays.copyOf(x2, count * 2);
+            y2 = Arrays.copyOf(y2, count * 2);
+        }
+        Point start = line.start();
+        Point end = line.end();
+        x1[count] = start.getX();
+        y1[count] = start.getY();
+        x2[count] = end.getX();
+        y2[count] = end.getY();
+        index.insert(count, Math.min(x1[count], x2[count]), Math.min(y1[count], y2[count]),
+                Math.max(x1[count], x2[count]), Math.max(y1[count], y2[count]));
+        lines.add(line);
+        count++;
+    }
+
+    /**
+     * Adds the walls of a closed polygon.
+     *
+     * @param vertices the corners of the polygon, in order
+     */
+    public void addPolygon(Point... vertices) {
+        for (int i = 0; i < vertices.length; i++) {
+            addWall(new Line(vertices[i], vertices[(i + 1) % vertices.length]));
+        }
+    }
+
+    /**
+     * Sets the color walls are drawn in.
+     *
+     * @param color the wall color
+     */
+    public void setColor(Color color) {
+        this.color = color;
+    }
+
+    // ---------------- Accessors ----------------
+
+    /**
+     * @return the number of walls
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param i the wall index
+     * @return the wall segment
+     */
+    public Line getWall(int i) {
+        return lines.get(i);
+    }
+
+    /**
+     * @param i the wall index
+     * @return the x-coordinate of the first end
+     */
+    public double getX1(int i) {
+        return x1[i];
+    }
+
+    /**
+     * @param i the wall index
+     * @return the y-coordinate of the first end
+     */
+    public double getY1(int i) {
+        return y1[i];
+    }
+
+    /**
+     * @param i the wall index
+     * @return the x-coordinate of the second end
+     */
+    public double getX2(int i) {
+        return x2[i];
+    }
+
+    /**
+     * @param i the wall index
+     * @return the y-coordinate of the second end
+     */
+    public double getY2(int i) {
+        return y2[i];
+    }
+
+    /**
+     * @return the index of wall boxes, ids being wall indices
+     */
+    public UniformGrid getIndex() {
+        return index;
+    }
+
+    // ---------------- Physics ----------------
+
+    /**
+     * Moves a ball one step, bouncing off the walls and the sides of the frame in its way.
+     * The frame takes part in the swept test so that a ball is never reflected off the frame
+     * into a wall that meets it.
+     *
+     * @param ball  the ball to move
+     * @param frame the rectangle the ball bounces inside
+     * @return the number of walls hit during the step
+     */
+    public int moveBall(Ball ball, Rectangle frame) {
+        Velocity velocity = ball.getVelocity();
+        double px = ball.getCenterX();
+        double py = ball.getCenterY();
+        double r = ball.getSize();
+        double minX = frame.getMin().getX() + r;
+        double minY = frame.getMin().getY() + r;
+        double maxX = frame.getMin().getX() + frame.getWidth() - r;
+        double maxY = frame.getMin().getY() + frame.getHeight() - r;
+        double remaining = 1;
+        int bounces = 0;
+        int hits = 0;
+
+        while (remaining > 0 && bounces < MAX_BOUNCES_PER_STEP) {
+            double dx = velocity.getDx() * remaining;
+            double dy = velocity.getDy() * remaining;
+            boolean wall = firstContact(px, py, dx, dy, r);
+            double sideX = dx > 0 ? (maxX - px) / dx : dx < 0 ? (minX - px) / dx : Double.POSITIVE_INFINITY;
+            double sideY = dy > 0 ? (maxY - py) / dy : dy < 0 ? (minY - py) / dy : Double.POSITIVE_INFINITY;
+            double side = Math.max(0, Math.min(sideX, sideY));
+            if ((!wall || side < contactTime) && side < 1) {
+                bounces++;
+                px += dx * side;
+                py += dy * side;
+                remaining *= 1 - side;
+                if (sideX <= sideY) {
+                    velocity.setDx(-velocity.getDx());
+                }
+                if (sideY <= sideX) {
+                    velocity.setDy(-velocity.getDy());
+                }
+                continue;
+            }
+            if (!wall) {
+                px += dx;
+                py += dy;
+                break;
+            }
+            bounces++;
+            hits++;
+            px += dx * contactTime;
+            py += dy * contactTime;
+            remaining *= 1 - contactTime;
+
+            // the normal points from the closest point of the wall to the center
+            int i = contactSegment;
+            double t = projection(i, px, py);
+            double nx = px - (x1[i] + t * (x2[i] - x1[i]));
+            double ny = py - (y1[i] + t * (y2[i] - y1[i]));
+            double length = Math.sqrt(nx * nx + ny * ny);
+            if (length == 0) {
+                break;
+            }
+            nx /= length;
+            ny /= length;
+            double along = velocity.getDx() * nx + velocity.getDy() * ny;
+            if (along < 0) {
+                velocity.setDx(velocity.getDx() - 2 * along * nx);
+                velocity.setDy(velocity.getDy() - 2 * along * ny);
+            }
+            px += nx * SEPARATION;
+            py += ny * SEPARATION;
+        }
+
+        // a ball that started outside the frame, or ran out of bounces, is put back inside
+        ball.setX(px);
+        ball.setY(py);
+        ball.fixStepInBox(frame);
+        return hits;
+    }
+
+    /**
+     * Finds the first wall a moving circle touches during a move, if any.
+     * On success the fraction of the move before contact and the wall are stored in
+     * {@link #contactTime} and {@link #contactSegment}.
+     *
+     * @param px the x-coordinate of the center at the start of the move
+     * @param py the y-coordinate of the center at the start of the move
+     * @param dx the horizontal move
+     * @param dy the vertical move
+     * @param r  the radius of the circle
+     * @return true if a wall is touched
+     */
+    private boolean firstContact(double px, double py, double dx, double dy, double r) {
+        index.query(Math.min(px, px + dx) - r, Math.min(py, py + dy) - r,
+                Math.max(px, px + dx) + r, Math.max(py, py + dy) + r, nearby);
+        contactTime = Double.POSITIVE_INFINITY;
+        contactSegment = -1;
+        for (int k = 0; k < nearby.size(); k++) {
+            int i = nearby.get(k);
+            double t = sweep(i, px, py, dx, dy, r);
+            if (t < contactTime || (t == contactTime && i < contactSegment)) {
+                contactTime = t;
+                contactSegment = i;
+            }
+        }
+        return contactSegment >= 0;
+    }
+
+    /**
+     * Time of impact of a moving circle with one wall: the wall's body (the segment pushed
+     * out by r on either side) and its two round ends.
+     *
+     * @param i  the wall index
+     * @param px the x-coordinate of the center at the start of the move
+     * @param py the y-coordinate of the center at the start of the move
+     * @param dx the horizontal move
+     * @param dy the vertical move
+     * @param r  the radius of the circle
+     * @return the fraction of the move in [0, 1] at first contact, or infinity
+     */
+    private double sweep(int i, double px, double py, double dx, double dy, double r) {
+        double ex = x2[i] - x1[i];
+        double ey = y2[i] - y1[i];
+        double length = Math.sqrt(ex * ex + ey * ey);
+        double best = Double.POSITIVE_INFINITY;
+
+        if (length > 0) {
+            double nx = -ey / length;
+            double ny = ex / length;
+            double distance = (px - x1[i]) * nx + (py - y1[i]) * ny;
+            double approach = dx * nx + dy * ny;
+            double side = distance < 0 ? -1 : 1;
+            // only a circle moving toward the wall can touch its body
+            if (approach * side < 0) {
+                double t = Math.abs(distance) <= r ? 0 : (side * r - distance) / approach;
+                if (t >= 0 && t <= 1) {
+                    double u = projection(i, px + t * dx, py + t * dy);
+                    if (u > 0 && u < 1) {
+                        best = t;
+                    }
+                }
+            }
+        }
+        best = Math.min(best, sweepPoint(x1[i], y1[i], px, py, dx, dy, r));
+        return Math.min(best, sweepPoint(x2[i], y2[i], px, py, dx, dy, r));
+    }
+
+    /**
+     * Time of impact of a moving circle with a point (a wall end).
+     *
+     * @param qx the x-coordinate of the point
+     * @param qy the y-coordinate of the point
+     * @param px the x-coordinate of the center at the start of the move
+     * @param py the y-coordinate of the center at the start of the move
+     * @param dx the horizontal move
+     * @param dy the vertical move
+     * @param r  the radius of the circle
+     * @return the fraction of the move in [0, 1] at first contact, or infinity
+     */
+    private static double sweepPoint(double qx, double qy, double px, double py, double dx, double dy, double r) {
+        double fx = px - qx;
+        double fy = py - qy;
+        double a = dx * dx + dy * dy;
+        double b = fx * dx + fy * dy;
+        double c = fx * fx + fy * fy - r * r;
+        if (b >= 0 || a == 0) {
+            return Double.POSITIVE_INFINITY; // moving away
+        }
+        if (c <= 0) {
+            return 0; // already touching
+        }
+        double discriminant = b * b - a * c;
+        if (discriminant < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double t = (-b - Math.sqrt(discriminant)) / a;
+        return t <= 1 ? t : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param i  the wall index
+     * @param px the x-coordinate of a point
+     * @param py the y-coordinate of a point
+     * @return the position of the closest point of the wall, 0 at the first end and 1 at the second
+     */
+    private double projection(int i, double px, double py) {
+        double ex = x2[i] - x1[i];
+        double ey = y2[i] - y1[i];
+        double lengthSquared = ex * ex + ey * ey;
+        if (lengthSquared == 0) {
+            return 0;
+        }
+        double t = ((px - x1[i]) * ex + (py - y1[i]) * ey) / lengthSquared;
+        return Math.max(0, Math.min(1, t));
+    }
+
+    // ---------------- Drawing ----------------
+
+    /**
+     * Draws the walls that cross a view.
+     *
+     * @param surface the surface to draw on
+     * @param offsetX the world x-coordinate drawn at the left edge of the surface
+     * @param offsetY the world y-coordinate drawn at the top edge of the surface
+     */
+    public void drawOn(DrawSurface surface, double offsetX, double offsetY) {
+        index.query(offsetX, offsetY, offsetX + surface.getWidth(), offsetY + surface.getHeight(), nearby);
+        surface.setColor(color);
+        for (int k = 0; k < nearby.size(); k++) {
+            int i = nearby.get(k);
+            surface.drawLine((int) (x1[i] - offsetX), (int) (y1[i] - offsetY),
+                    (int) (x2[i] - offsetX), (int) (y2[i] - offsetY));
+        }
+    }
+}
@@ -0,0 +1,550 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import biuoop.DrawSurface;
+import biuoop.GUI;
+
+/**
+ * An independent simulation: a frame, the obstacles inside it and the balls bouncing
+ * between them, stepped at its own tick rate.
+ * A world is not thread-safe; it must be stepped by one thread at a time, which is what
+ * {@link WorldHost} guarantees.
+ *
+ * <p>A world can be much larger than a window. For large worlds, {@link #setSpatialIndex(double)}
+ * keeps balls and obstacles in {@link UniformGrid}s, so each ball is only tested against nearby
+ * obstacles and a {@link Camera} only visits what it can see.</p>
+ *
+ * <p>Only active balls are stepped. A ball that ends a step with no velocity, in the place it
+ * started the step and without touching an obstacle, goes to sleep and costs nothing until it
+ * is woken: by a velocity set through {@link WorldCommand#setVelocity(Ball, double, double)} or
+ * {@link #wake(Ball)}, by an obstacle added or moved onto it, or by gravity. Code that changes
+ * the velocity of a ball in the world directly must call {@link #wake(Ball)}.</p>
+ */
+public class World {
+    /**
+     * Width of the default world, which is also the default window width.
+     */
+    public static final int DEFAULT_WIDTH = 800;
+
+    /**
+     * Height of the default world, which is also the default window height.
+     */
+    public static final int DEFAULT_HEIGHT = 600;
+
+    private final String name;
+    private final Rectangle frame;
+    private final List<Rectangle> obstacles = new ArrayList<>();
+    private final List<Ball> balls = new ArrayList<>();
+    // position of each ball in balls, so a ball is found without a scan
+    private final Map<Ball, Integer> ballSlots = new IdentityHashMap<>();
+    private long tickMillis;
+    private long ticks;
+    private long obstacleHits;
+    private GUI gui;
+    private int maxBallSize;
+    private UniformGrid ballIndex;
+    private UniformGrid obstacleIndex;
+    private WallMap walls;
+    private BarnesHut gravity;
+    private final CommandQueue commands = new CommandQueue();
+    private final IntList nearby = new IntList();
+    private final IntList active = new IntList();
+    private final IntList settled = new IntList();
+    private int[] activeSlot = new int[0];
+
+    // ---------------- Constructors ----------------
+
+    /**
+     * Constructs an empty world.
+     *
+     * @param name       a name used in logs
+     * @param frame      the rectangle the balls bounce inside
+     * @param tickMillis the time between two steps, in milliseconds
+     */
+    public World(String name, Rectangle frame, long tickMillis) {
+        this.name = name;
+        this.frame = frame;
+        this.tickMillis = tickMillis;
+    }
+
+    // ---------------- Accessors ----------------
+
+    /**
+     * @return the name of the world
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the frame the balls bounce inside
+     */
+    public Rectangle getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return the live list of obstacles
+     */
+    public List<Rectangle> getObstacles() {
+        return obstacles;
+    }
+
+    /**
+     * @return the live list of balls
+     */
+    public List<Ball> getBalls() {
+        return balls;
+    }
+
+    /**
+     * @return the time between two steps, in milliseconds
+     */
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Sets the time between two steps. Takes effect from the next scheduled step.
+     *
+     * @param tickMillis the new tick period, in milliseconds
+     */
+    public void setTickMillis(long tickMillis) {
+        this.tickMillis = tickMillis;
+    }
+
+    /**
+     * @return the number of steps done so far
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return the number of ball-obstacle hits so far
+     */
+    public long getObstacleHits() {
+        return obstacleHits;
+    }
+
+    /**
+     * Attaches a window the world draws itself into after every step.
+     *
+     * @param gui the window, or null to run headless
+     */
+    public void setGui(GUI gui) {
+        this.gui = gui;
+    }
+
+    /**
+     * @return the number of balls that are stepped, the others being asleep
+     */
+    public int getActiveBalls() {
+        return active.size();
+    }
+
+    /**
+     * @return the radius of the largest ball ever added
+     */
+    public int getMaxBallSize() {
+        return maxBallSize;
+    }
+
+    /**
+     * Returns the index of ball centers, ids being positions in {@link #getBalls()}.
+     *
+     * @return the index, or null if the world is not indexed
+     */
+    public UniformGrid getBallIndex() {
+        return ballIndex;
+    }
+
+    /**
+     * Returns the index of obstacle boxes, ids being positions in {@link #getObstacles()}.
+     *
+     * @return the index, or null if the world is not indexed
+     */
+    public UniformGrid getObstacleIndex() {
+        return obstacleIndex;
+    }
+
+    /**
+     * @return the walls of the world, or null if it has none
+     */
+    public WallMap getWalls() {
+        return walls;
+    }
+
+    /**
+     * Sets thin walls the balls bounce off, in addition to the rectangular obstacles.
+     *
+     * @param walls the walls, or null for none
+     */
+    public void setWalls(WallMap walls) {
+        this.walls = walls;
+    }
+
+    /**
+     * Returns the queue other threads use to change the world while it runs. Commands are
+     * applied at the start of the next step.
+     *
+     * @return the command queue
+     */
+    public CommandQueue getCommands() {
+        return commands;
+    }
+
+    /**
+     * @return the gravity stage of the world, or null if balls do not attract each other
+     */
+    public BarnesHut getGravity() {
+        return gravity;
+    }
+
+    /**
+     * Makes the balls attract each other. The force stage runs at the start of every step,
+     * before the balls move. The world owns the stage from here on: the one it replaces, or
+     * removes when gravity is turned off, is shut down, so it must not be used again.
+     *
+     * @param gravity the force stage, or null to turn gravity off
+     */
+    public void setGravity(BarnesHut gravity) {
+        if (this.gravity != null && this.gravity != gravity) {
+            this.gravity.shutdown();
+        }
+        this.gravity = gravity;
+    }
+
+    /**
+     * Starts keeping balls and obstacles in spatial indexes. Afterwards obstacles must only be
+     * moved through {@link #moveObstacle(int, double, double)} and never removed, and balls must
+     * only be added and removed through {@link #addBall(Ball)} and {@link #removeBall(Ball)}.
+     *
+     * @param cellSize the side of an index cell, a few times the typical ball size
+     */
+    public void setSpatialIndex(double cellSize) {
+        ballIndex = new UniformGrid(frame, cellSize);
+        obstacleIndex = new UniformGrid(frame, cellSize);
+        for (int i = 0; i < balls.size(); i++) {
+            indexBall(i);
+        }
+        for (int i = 0; i < obstacles.size(); i++) {
+            indexObstacle(i);
+        }
+    }
+
+    /**
+     * Adds a ball to the world. A ball already in the world is not added again.
+     *
+     * @param ball the ball to add
+     */
+    public void addBall(Ball ball) {
+        if (ballSlots.putIfAbsent(ball, balls.size()) != null) {
+            return;
+        }
+        balls.add(ball);
+        maxBallSize = Math.max(maxBallSize, ball.getSize());
+        int i = balls.size() - 1;
+        if (activeSlot.length <= i) {
+            int length = activeSlot.length;
+            activeSlot = Arrays.copyOf(activeSlot, Math.max(16, 2 * length));
+            Arrays.fill(activeSlot, length, activeSlot.length, -1);
+        }
+        // even a ball without velocity takes one step, to be pushed out of what it overlaps
+        activate(i);
+        if (ballIndex != null) {
+            indexBall(i);
+        }
+    }
+
+    /**
+     * Removes a ball. The last ball takes its place in {@link #getBalls()}, so positions of
+     * other balls may change.
+     *
+     * @param ball the ball to remove
+     * @return true if the ball was in the world
+     */
+    public boolean removeBall(Ball ball) {
+        Integer slot = ballSlots.remove(ball);
+        if (slot == null) {
+            return false;
+        }
+        int i = slot;
+        int last = balls.size() - 1;
+        boolean lastActive = activeSlot[last] >= 0;
+        deactivate(i);
+        deactivate(last);
+        balls.set(i, balls.get(last));
+        balls.remove(last);
+        if (i < last) {
+            ballSlots.put(balls.get(i), i);
+        }
+        if (i < last && lastActive) {
+            activate(i);
+        }
+        if (ballIndex != null) {
+            ballIndex.remove(last);
+            if (i < last) {
+                ballIndex.remove(i);
+                indexBall(i);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves an obstacle, keeping its size.
+     *
+     * @param i the position of the obstacle in {@link #getObstacles()}
+     * @param x the new left edge
+     * @param y the new top edge
+     */
+    public void moveObstacle(int i, double x, double y) {
+        Rectangle obstacle = obstacles.get(i);
+        obstacle.setMin(new Point(x, y));
+        if (obstacleIndex != null) {
+            obstacleIndex.move(i, x, y, x + obstacle.getWidth(), y + obstacle.getHeight());
+        }
+        wakeTouching(obstacle);
+    }
+
+    /**
+     * Adds an obstacle the balls bounce off.
+     *
+     * @param obstacle the obstacle to add
+     */
+    public void addObstacle(Rectangle obstacle) {
+        obstacles.add(obstacle);
+        if (obstacleIndex != null) {
+            indexObstacle(obstacles.size() - 1);
+        }
+        wakeTouching(obstacle);
+    }
+
+    // ---------------- Active set ----------------
+
+    /**
+     * Makes a sleeping ball take part in the steps again. Needed after changing the velocity
+     * of a ball in the world other than through a {@link WorldCommand}.
+     *
+     * @param ball a ball in the world
+     * @return true if the ball was in the world
+     */
+    public boolean wake(Ball ball) {
+        Integer slot = ballSlots.get(ball);
+        if (slot == null) {
+            return false;
+        }
+        activate(slot);
+        return true;
+    }
+
+    /**
+     * Wakes the sleeping balls an obstacle overlaps, using the ball index if there is one.
+     *
+     * @param obstacle an obstacle just added or moved
+     */
+    private void wakeTouching(Rectangle obstacle) {
+        if (active.size() == balls.size()) {
+            return;
+        }
+        double minX = obstacle.getMin().getX();
+        double minY = obstacle.getMin().getY();
+        if (ballIndex != null) {
+            // the index holds centers, so look as far as the largest radius around the box
+            ballIndex.query(minX - maxBallSize, minY - maxBallSize, minX + obstacle.getWidth() + maxBallSize,
+                    minY + obstacle.getHeight() + maxBallSize, nearby);
+            for (int k = 0; k < nearby.size(); k++) {
+                int i = nearby.get(k);
+                if (activeSlot[i] < 0 && balls.get(i).isIntersecting(obstacle)) {
+                    activate(i);
+                }
+            }
+        } else {
+            for (int i = 0; i < balls.size(); i++) {
+                if (activeSlot[i] < 0 && balls.get(i).isIntersecting(obstacle)) {
+                    activate(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param i the position of a ball; does nothing if it is already active
+     */
+    private void activate(int i) {
+        if (activeSlot[i] >= 0) {
+            return;
+        }
+        activeSlot[i] = active.size();
+        active.add(i);
+    }
+
+    /**
+     * @param i the position of a ball; does nothing if it is already asleep
+     */
+    private void deactivate(int i) {
+        int slot = activeSlot[i];
+        if (slot < 0) {
+            return;
+        }
+        int moved = active.get(active.size() - 1);
+        active.swapRemove(slot);
+        activeSlot[moved] = slot;
+        activeSlot[i] = -1;
+    }
+
+    /**
+     * @param ball a ball
+     * @return true if the ball does not move by itself
+     */
+    private static boolean isResting(Ball ball) {
+        return ball.getVelocity().getDx() == 0 && ball.getVelocity().getDy() == 0;
+    }
+
+    // ---------------- Simulation ----------------
+
+    /**
+     * Applies the queued commands, accelerates the balls toward each other if gravity is on,
+     * then moves every active ball one step inside the frame, bouncing it off the walls on its
+     * way, and then bounces it off the obstacles. Active balls that end the step without
+     * velocity, where they started it, and hit no obstacle go to sleep; with gravity on, every ball is woken first.
+     *
+     * @return the number of ball-obstacle hits during this step
+     */
+    public int step() {
+        StepEvent event = new StepEvent();
+        event.begin();
+        int applied = commands.drain(this);
+        if (gravity != null) {
+            gravity.accelerate(balls);
+            for (int i = 0; i < balls.size(); i++) {
+                activate(i);
+            }
+        }
+        int hits = 0;
+        settled.clear();
+        for (int k = 0; k < active.size(); k++) {
+            int i = active.get(k);
+            Ball ball = balls.get(i);
+            double x = ball.getCenterX();
+            double y = ball.getCenterY();
+            if (walls == null) {
+                ball.moveStepInBox(frame);
+            } else {
+                walls.moveBall(ball, frame);
+            }
+            int ballHits = 0;
+            if (obstacleIndex == null) {
+                for (Rectangle obstacle : obstacles) {
+                    if (ball.bounceOff(frame, obstacle)) {
+                        ballHits++;
+                    }
+                }
+            } else {
+                ballHits = bounceOffNearby(ball);
+                indexBall(i);
+            }
+            // a ball at rest that this step did not move, and that touched no obstacle, will not
+            // move in the next ones either; one that obstacles pushed back to where it started
+            // is held there by them and must be stepped while they are in place
+            if (ballHits == 0 && isResting(ball) && ball.getCenterX() == x && ball.getCenterY() == y) {
+                settled.add(i);
+            }
+            hits += ballHits;
+        }
+        for (int k = 0; k < settled.size(); k++) {
+            deactivate(settled.get(k));
+        }
+        ticks++;
+        obstacleHits += hits;
+        PhysicsStats.increment(PhysicsStats.Counter.STEPS);
+        if (event.shouldCommit()) {
+            event.set(this, hits, applied);
+            event.commit();
+        }
+        return hits;
+    }
+
+    /**
+     * Bounces a ball off the indexed obstacles around it, in list order like the full scan.
+     * The search box is twice the radius wide on each side, since pushing the ball out of
+     * one obstacle moves it by at most about its radius.
+     *
+     * @param ball the ball to bounce
+     * @return the number of obstacles hit
+     */
+    private int bounceOffNearby(Ball ball) {
+        double reach = 2.0 * ball.getSize();
+        obstacleIndex.query(ball.getCenterX() - reach, ball.getCenterY() - reach,
+                ball.getCenterX() + reach, ball.getCenterY() + reach, nearby);
+        nearby.sort();
+        int hits = 0;
+        for (int k = 0; k < nearby.size(); k++) {
+            if (ball.bounceOff(frame, obstacles.get(nearby.get(k)))) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Puts a ball's center into the ball index.
+     *
+     * @param i the position of the ball
+     */
+    private void indexBall(int i) {
+        Ball ball = balls.get(i);
+        ballIndex.move(i, ball.getCenterX(), ball.getCenterY(), ball.getCenterX(), ball.getCenterY());
+    }
+
+    /**
+     * Puts an obstacle's box into the obstacle index.
+     *
+     * @param i the position of the obstacle
+     */
+    private void indexObstacle(int i) {
+        Rectangle obstacle = obstacles.get(i);
+        double minX = obstacle.getMin().getX();
+        double minY = obstacle.getMin().getY();
+        obstacleIndex.insert(i, minX, minY, minX + obstacle.getWidth(), minY + obstacle.getHeight());
+    }
+
+    /**
+     * Steps the world and, if a window is attached, draws and shows the new frame.
+     */
+    public void tick() {
+        step();
+        if (gui != null) {
+            DrawSurface surface = gui.getDrawSurface();
+            drawOn(surface);
+            gui.show(surface);
+        }
+    }
+
+    /**
+     * Draws the obstacles, the walls and then the balls.
+     *
+     * @param surface the surface to draw on
+     */
+    public void drawOn(DrawSurface surface) {
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        for (Rectangle obstacle : obstacles) {
+            obstacle.drawOn(surface);
+        }
+        if (walls != null) {
+            walls.drawOn(surface, 0, 0);
+        }
+        for (Ball ball : balls) {
+            ball.drawOn(surface);
+        }
+        if (event.shouldCommit()) {
+            event.set("World", balls.size(), balls.size());
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * A change to a {@link World} requested from outside the thread that steps it. Commands are
+ * put in a {@link CommandQueue} by any thread and applied by the stepping thread at the
+ * start of a step, so the world itself never needs a lock.
+ */
+public interface WorldCommand {
+    /**
+     * Applies the change. Runs on the thread that steps the world.
+     *
+     * @param world the world to change
+     */
+    void apply(World world);
+
+    /**
+     * @param ball a new ball, which the submitting thread must not touch afterwards
+     * @return a command adding the ball to the world
+     */
+    static WorldCommand spawn(Ball ball) {
+        return world -> world.addBall(ball);
+    }
+
+    /**
+     * @param ball a ball added earlier; the ball itself is the handle
+     * @return a command removing the ball, doing nothing if it is not in the world
+     */
+    static WorldCommand remove(Ball ball) {
+        return world -> world.removeBall(ball);
+    }
+
+    /**
+     * @param ball a ball added earlier
+     * @param dx   the new horizontal velocity
+     * @param dy   the new vertical velocity
+     * @return a command changing the velocity of the ball and waking it if it was asleep
+     */
+    static WorldCommand setVelocity(Ball ball, double dx, double dy) {
+        return world -> {
+            ball.getVelocity().setDx(dx);
+            ball.getVelocity().setDy(dy);
+            world.wake(ball);
+        };
+    }
+
+    /**
+     * @param index the position of the obstacle in {@link World#getObstacles()}
+     * @param x     the new left edge
+     * @param y     the new top edge
+     * @return a command moving the obstacle
+     */
+    static WorldCommand moveObstacle(int index, double x, double y) {
+        return world -> world.moveObstacle(index, x, y);
+    }
+}
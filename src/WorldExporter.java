@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Publishes the state of a {@link World} into a memory-mapped file, so another process can
+ * watch a running simulation (see {@link WorldViewer}). Ball and obstacle fields are written
+ * straight into the mapping; nothing is serialized or copied on the way.
+ *
+ * <p>Frames are guarded by a sequence number (a seqlock): it is made odd before a frame is
+ * written and even after, and a reader keeps a frame only if it saw the same even number
+ * before and after reading it. The writer never waits for readers.</p>
+ *
+ * <p>Layout, in native byte order: a header of {@value #HEADER_BYTES} bytes, then
+ * {@value #BALL_BYTES}-byte ball records (x, y as doubles, size and RGB color as ints), then
+ * {@value #OBSTACLE_BYTES}-byte obstacle records (x, y, width, height as doubles, RGB color
+ * and padding as ints). Balls and obstacles past the capacities given at creation are not
+ * exported.</p>
+ */
+public class WorldExporter implements AutoCloseable {
+    /**
+     * Identifies an export file: "BIUW" in ASCII.
+     */
+    static final int MAGIC = 0x42495557;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 128;
+    static final int BALL_BYTES = 24;
+    static final int OBSTACLE_BYTES = 40;
+
+    // header offsets
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int SEQUENCE_OFFSET = 8;
+    static final int TICK_OFFSET = 16;
+    static final int BALL_COUNT_OFFSET = 24;
+    static final int OBSTACLE_COUNT_OFFSET = 28;
+    static final int BALL_CAPACITY_OFFSET = 32;
+    static final int OBSTACLE_CAPACITY_OFFSET = 36;
+    static final int FRAME_OFFSET = 40;
+
+    /**
+     * Atomic access to the sequence number inside the mapping.
+     */
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final World world;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int ballCapacity;
+    private final int obstacleCapacity;
+    private long sequence;
+
+    /**
+     * Creates or overwrites an export file sized for the given capacities.
+     *
+     * @param world            the world to export; {@link #publish()} must run on its stepping thread
+     * @param path             the file to map
+     * @param ballCapacity     the largest number of balls exported
+     * @param obstacleCapacity the largest number of obstacles exported
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public WorldExporter(World world, Path path, int ballCapacity, int obstacleCapacity) throws IOException {
+        this.world = world;
+        this.ballCapacity = ballCapacity;
+        this.obstacleCapacity = obstacleCapacity;
+        long size = fileSize(ballCapacity, obstacleCapacity);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(ByteOrder.nativeOrder());
+
+        Rectangle frame = world.getFrame();
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(BALL_CAPACITY_OFFSET, ballCapacity);
+        buffer.putInt(OBSTACLE_CAPACITY_OFFSET, obstacleCapacity);
+        buffer.putDouble(FRAME_OFFSET, frame.getMin().getX());
+        buffer.putDouble(FRAME_OFFSET + 8, frame.getMin().getY());
+        buffer.putDouble(FRAME_OFFSET + 16, frame.getWidth());
+        buffer.putDouble(FRAME_OFFSET + 24, frame.getHeight());
+        buffer.putLong(SEQUENCE_OFFSET, 0L);
+        // the magic goes last, so a reader never sees a valid file without its fixed fields
+        VarHandle.storeStoreFence();
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+    }
+
+    /**
+     * @param ballCapacity     the largest number of balls
+     * @param obstacleCapacity the largest number of obstacles
+     * @return the size of an export file, in bytes
+     */
+    static long fileSize(int ballCapacity, int obstacleCapacity) {
+        return HEADER_BYTES + (long) ballCapacity * BALL_BYTES + (long) obstacleCapacity * OBSTACLE_BYTES;
+    }
+
+    /**
+     * @param ballCapacity the ball capacity of the file
+     * @return the offset of the first obstacle record
+     */
+    static int obstaclesOffset(int ballCapacity) {
+        return HEADER_BYTES + ballCapacity * BALL_BYTES;
+    }
+
+    /**
+     * Writes the current state of the world as a new frame. Call it between steps, on the
+     * thread that steps the world.
+     */
+    public void publish() {
+        List<Ball> balls = world.getBalls();
+        List<Rectangle> obstacles = world.getObstacles();
+        int ballCount = Math.min(balls.size(), ballCapacity);
+        int obstacleCount = Math.min(obstacles.size(), obstacleCapacity);
+
+        sequence++;
+        LONGS.setVolatile(buffer, SEQUENCE_OFFSET, sequence);
+        // the odd sequence must be visible before any field of the frame changes
+        VarHandle.storeStoreFence();
+
+        buffer.putLong(TICK_OFFSET, world.getTicks());
+        buffer.putInt(BALL_COUNT_OFFSET, ballCount);
+        buffer.putInt(OBSTACLE_COUNT_OFFSET, obstacleCount);
+        int offset = HEADER_BYTES;
+        for (int i = 0; i < ballCount; i++) {
+            Ball ball = balls.get(i);
+            buffer.putDouble(offset, ball.getCenterX());
+            buffer.putDouble(offset + 8, ball.getCenterY());
+            buffer.putInt(offset + 16, ball.getSize());
+            buffer.putInt(offset + 20, ball.getColor().getRGB());
+            offset += BALL_BYTES;
+        }
+        offset = obstaclesOffset(ballCapacity);
+        for (int i = 0; i < obstacleCount; i++) {
+            Rectangle obstacle = obstacles.get(i);
+            buffer.putDouble(offset, obstacle.getMin().getX());
+            buffer.putDouble(offset + 8, obstacle.getMin().getY());
+            buffer.putDouble(offset + 16, obstacle.getWidth());
+            buffer.putDouble(offset + 24, obstacle.getHeight());
+            buffer.putInt(offset + 32, obstacle.getColor() == null ? 0 : obstacle.getColor().getRGB());
+            offset += OBSTACLE_BYTES;
+        }
+
+        sequence++;
+        LONGS.setRelease(buffer, SEQUENCE_OFFSET, sequence);
+    }
+
+    /**
+     * Flushes and closes the file. Readers that mapped it keep their mapping.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
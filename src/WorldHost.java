@@ -0,0 +1,230 @@
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs many independent {@link World}s on a small, fixed pool of worker threads.
+ * Instead of one blocking loop (and one thread) per world, every world sits in a shared
+ * deadline queue; a worker takes the world whose next tick is due first, steps it once and
+ * puts it back with its next deadline. Each world keeps its own tick rate, and since the
+ * queue always serves the earliest deadline, an overloaded host degrades to round-robin
+ * instead of starving anyone. A world is never stepped by two workers at once.
+ *
+ * <p>Each scheduled world has exactly one entry, which is either in the queue or held by the
+ * worker ticking it. Adding a world that is already scheduled does nothing, and removing one
+ * cancels its entry; a world removed and added again while it is being ticked keeps the same
+ * entry, so a second worker can never pick it up. A world whose tick throws is dropped and
+ * reported by {@link #getFailed()}.</p>
+ */
+public class WorldHost {
+    private final DelayQueue<ScheduledWorld> queue = new DelayQueue<>();
+    private final Map<World, ScheduledWorld> scheduled = new ConcurrentHashMap<>();
+    private final Map<World, Throwable> failed = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder totalTicks = new LongAdder();
+    private final Thread[] workers;
+    private volatile boolean running;
+
+    /**
+     * A world waiting in the queue for its next tick.
+     */
+    private final class ScheduledWorld implements Delayed {
+        private final World world;
+        private long deadline;
+        private long order;
+        // set under the map's lock, but read without it by isScheduled
+        private volatile boolean cancelled;
+
+        /**
+         * @param world    the world to schedule
+         * @param deadline the nano time of its first tick
+         */
+        private ScheduledWorld(World world, long deadline) {
+            this.world = world;
+            this.deadline = deadline;
+            this.order = sequence.getAndIncrement();
+        }
+
+        /**
+         * Moves the deadline one tick period ahead. A world that fell behind does not get a
+         * burst of catch-up ticks; it is simply due again now and waits its turn.
+         *
+         * @param now the current nano time
+         */
+        private void reschedule(long now) {
+            deadline = Math.max(deadline + TimeUnit.MILLISECONDS.toNanos(world.getTickMillis()), now);
+            order = sequence.getAndIncrement();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            ScheduledWorld that = (ScheduledWorld) other;
+            if (this.deadline != that.deadline) {
+                return this.deadline - that.deadline < 0 ? -1 : 1;
+            }
+            return Long.compare(this.order, that.order);
+        }
+    }
+
+    // ---------------- Constructors ----------------
+
+    /**
+     * Constructs a host with one worker per available processor.
+     */
+    public WorldHost() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a host with the given number of worker threads.
+     *
+     * @param threads the number of workers, at least 1
+     */
+    public WorldHost(int threads) {
+        this.workers = new Thread[Math.max(1, threads)];
+    }
+
+    // ---------------- Worlds ----------------
+
+    /**
+     * Schedules a world; its first tick is due immediately. Does nothing if the world is
+     * already scheduled, except undoing a {@link #remove(World)} that has not taken effect yet.
+     * A world that failed is scheduled again and its failure forgotten.
+     *
+     * @param world the world to run
+     */
+    public void add(World world) {
+        failed.remove(world);
+        scheduled.compute(world, (w, entry) -> {
+            if (entry != null) {
+                entry.cancelled = false;
+                return entry;
+            }
+            ScheduledWorld fresh = new ScheduledWorld(w, System.nanoTime());
+            queue.put(fresh);
+            return fresh;
+        });
+    }
+
+    /**
+     * Stops scheduling a world. A tick already in progress completes. Does nothing if the world
+     * is not scheduled.
+     *
+     * @param world the world to drop
+     */
+    public void remove(World world) {
+        scheduled.computeIfPresent(world, (w, entry) -> {
+            entry.cancelled = true;
+            // an entry no longer in the queue is held by a worker, which drops it when done
+            return queue.remove(entry) ? null : entry;
+        });
+    }
+
+    /**
+     * @param world a world
+     * @return true if the world is scheduled and not removed
+     */
+    public boolean isScheduled(World world) {
+        ScheduledWorld entry = scheduled.get(world);
+        return entry != null && !entry.cancelled;
+    }
+
+    /**
+     * Returns the worlds whose tick threw an exception or an error, which are no longer
+     * scheduled, with what each one threw.
+     *
+     * @return a live, unmodifiable view of the failed worlds
+     */
+    public Map<World, Throwable> getFailed() {
+        return Collections.unmodifiableMap(failed);
+    }
+
+    /**
+     * @return the number of ticks done by all worlds together
+     */
+    public long getTotalTicks() {
+        return totalTicks.sum();
+    }
+
+    // ---------------- Lifecycle ----------------
+
+    /**
+     * Starts the worker threads.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::work, "world-host-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Stops the worker threads and waits for them to finish their current tick.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+        for (Thread worker : workers) {
+            if (worker != null) {
+                worker.join();
+            }
+        }
+    }
+
+    /**
+     * Worker loop: take the most overdue world, tick it, put it back.
+     */
+    private void work() {
+        while (running) {
+            ScheduledWorld next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            World world = next.world;
+            // cancelled entries leave the map here, so add() cannot revive them afterwards
+            if (scheduled.computeIfPresent(world, (w, entry) -> entry.cancelled ? null : entry) == null) {
+                continue;
+            }
+            try {
+                world.tick();
+            } catch (Throwable e) {
+                // an error thrown by one world must not take its worker down with it
+                scheduled.remove(world, next);
+                failed.put(world, e);
+                continue;
+            }
+            totalTicks.increment();
+            scheduled.computeIfPresent(world, (w, entry) -> {
+                if (entry.cancelled) {
+                    return null;
+                }
+                entry.reschedule(System.nanoTime());
+                queue.put(entry);
+                return entry;
+            });
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import biuoop.DrawSurface;
+import biuoop.GUI;
+import biuoop.Sleeper;
+
+/**
+ * Watches a simulation running in another process through the file written by its
+ * {@link WorldExporter}. Draws the whole world scaled into a window, or with "stats" only
+ * prints how the exported frames advance.
+ */
+public class WorldViewer {
+    private static final long REFRESH_MILLIS = 16;
+    private static final long STATS_MILLIS = 1000;
+
+    /**
+     * Draws the last frame read, scaled so the whole world fits the surface.
+     *
+     * @param reader  the reader holding the frame
+     * @param surface the surface to draw on
+     */
+    private static void drawFrame(SharedWorldReader reader, DrawSurface surface) {
+        Rectangle frame = reader.getFrame();
+        double scale = Math.min(surface.getWidth() / frame.getWidth(), surface.getHeight() / frame.getHeight());
+        double originX = frame.getMin().getX();
+        double originY = frame.getMin().getY();
+        for (int i = 0; i < reader.getObstacleCount(); i++) {
+            surface.setColor(new Color(reader.getObstacleColor(i)));
+            surface.fillRectangle((int) ((reader.getObstacleX(i) - originX) * scale),
+                    (int) ((reader.getObstacleY(i) - originY) * scale),
+                    Math.max(1, (int) (reader.getObstacleWidth(i) * scale)),
+                    Math.max(1, (int) (reader.getObstacleHeight(i) * scale)));
+        }
+        // only create a color when it changes from the previous ball
+        int color = 0;
+        for (int i = 0; i < reader.getBallCount(); i++) {
+            if (i == 0 || reader.getBallColor(i) != color) {
+                color = reader.getBallColor(i);
+                surface.setColor(new Color(color));
+            }
+            surface.fillCircle((int) ((reader.getBallX(i) - originX) * scale),
+                    (int) ((reader.getBallY(i) - originY) * scale), Math.max(1, (int) (reader.getBallSize(i) * scale)));
+        }
+        surface.setColor(Color.black);
+        surface.drawText(10, 20, "tick " + reader.getTick() + ", " + reader.getBallCount() + " balls", 14);
+    }
+
+    /**
+     * Prints the progress of the exported frames once a second, forever.
+     *
+     * @param reader the reader to poll
+     */
+    private static void printStats(SharedWorldReader reader) {
+        Sleeper sleeper = new Sleeper();
+        long lastTick = 0;
+        long lastFrame = 0;
+        while (true) {
+            sleeper.sleepFor(STATS_MILLIS);
+            reader.read();
+            System.out.printf("tick %d (%d ticks/s), %d frames/s, %d balls, %d obstacles, %d retries%n",
+                    reader.getTick(), reader.getTick() - lastTick, reader.getFrameNumber() - lastFrame,
+                    reader.getBallCount(), reader.getObstacleCount(), reader.getRetries());
+            lastTick = reader.getTick();
+            lastFrame = reader.getFrameNumber();
+        }
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args the export file, optionally followed by "stats"
+     * @throws IOException if the file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("usage: WorldViewer <export file> [stats]");
+            return;
+        }
+        SharedWorldReader reader = new SharedWorldReader(Path.of(args[0]));
+        if (args.length > 1 && args[1].equals("stats")) {
+            printStats(reader);
+            return;
+        }
+        GUI gui = new GUI("World Viewer - " + args[0], World.DEFAULT_WIDTH, World.DEFAULT_HEIGHT);
+        Sleeper sleeper = new Sleeper();
+        while (true) {
+            reader.read();
+            DrawSurface surface = gui.getDrawSurface();
+            drawFrame(reader, surface);
+            gui.show(surface);
+            sleeper.sleepFor(REFRESH_MILLIS);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A region of a {@link ZonedWorld}: a frame its balls stay inside, the obstacles in it and the
+ * balls registered to it, kept together in one list. The loop that steps the balls is picked
+ * once, from the number of obstacles, instead of deciding the physics of every ball on every
+ * step. A zone without balls sleeps and costs nothing to step.
+ */
+public class Zone {
+
+    /**
+     * The loop used to step the balls of a zone.
+     */
+    public enum Kernel {
+        /**
+         * No obstacles: the balls only bounce off the frame.
+         */
+        BOX,
+        /**
+         * One obstacle, as in {@link Ball#moveStepInBoxAndCollide(Rectangle, Rectangle)}.
+         */
+        ONE_OBSTACLE,
+        /**
+         * Any number of obstacles, each tried in list order like {@link World#step()}.
+         */
+        OBSTACLES
+    }
+
+    private final String name;
+    private final Rectangle bounds;
+    private final List<Rectangle> obstacles;
+    private final Rectangle obstacle;
+    private final Kernel kernel;
+    private final List<Ball> balls = new ArrayList<>();
+
+    /**
+     * Constructs an empty zone.
+     *
+     * @param name      a name for printing
+     * @param bounds    the frame the balls of this zone move in
+     * @param obstacles the obstacles the balls bounce off; the list is copied
+     */
+    public Zone(String name, Rectangle bounds, List<Rectangle> obstacles) {
+        this.name = name;
+        this.bounds = bounds;
+        this.obstacles = List.copyOf(obstacles);
+        this.obstacle = this.obstacles.size() == 1 ? this.obstacles.get(0) : null;
+        if (this.obstacles.isEmpty()) {
+            this.kernel = Kernel.BOX;
+        } else if (obstacle != null) {
+            this.kernel = Kernel.ONE_OBSTACLE;
+        } else {
+            this.kernel = Kernel.OBSTACLES;
+        }
+    }
+
+    /**
+     * @return the name of the zone
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the frame the balls of this zone move in
+     */
+    public Rectangle getBounds() {
+        return bounds;
+    }
+
+    /**
+     * @return the obstacles of this zone
+     */
+    public List<Rectangle> getObstacles() {
+        return obstacles;
+    }
+
+    /**
+     * @return the loop that steps this zone
+     */
+    public Kernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * @return the balls of this zone, in the order they were added
+     */
+    public List<Ball> getBalls() {
+        return Collections.unmodifiableList(balls);
+    }
+
+    /**
+     * @return the number of balls in this zone
+     */
+    public int size() {
+        return balls.size();
+    }
+
+    /**
+     * @return true if the zone has no balls and is skipped by {@link #step()}
+     */
+    public boolean isAsleep() {
+        return balls.isEmpty();
+    }
+
+    /**
+     * Registers a ball. The ball should belong to no other zone, since every zone steps its
+     * balls once per step.
+     *
+     * @param ball the ball
+     */
+    public void add(Ball ball) {
+        balls.add(ball);
+    }
+
+    /**
+     * @param ball a ball added earlier
+     * @return true if the ball was in this zone and was removed
+     */
+    public boolean remove(Ball ball) {
+        return balls.remove(ball);
+    }
+
+    /**
+     * Moves every ball of the zone one step inside its frame and bounces it off the
+     * obstacles. Does nothing while the zone is asleep.
+     *
+     * @return the number of ball-obstacle hits during this step
+     */
+    public int step() {
+        if (balls.isEmpty()) {
+            return 0;
+        }
+        switch (kernel) {
+            case BOX:
+                stepInBox();
+                return 0;
+            case ONE_OBSTACLE:
+                return stepWithObstacle();
+            default:
+                return stepWithObstacles();
+        }
+    }
+
+    // ---------------- Kernels ----------------
+
+    /**
+     * Steps every ball inside the frame.
+     */
+    private void stepInBox() {
+        for (int i = 0; i < balls.size(); i++) {
+            balls.get(i).moveStepInBox(bounds);
+        }
+    }
+
+    /**
+     * Steps every ball inside the frame and bounces it off the single obstacle.
+     *
+     * @return the number of hits
+     */
+    private int stepWithObstacle() {
+        int hits = 0;
+        for (int i = 0; i < balls.size(); i++) {
+            Ball ball = balls.get(i);
+            ball.moveStepInBox(bounds);
+            if (ball.bounceOff(bounds, obstacle)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Steps every ball inside the frame and bounces it off each obstacle in turn.
+     *
+     * @return the number of hits
+     */
+    private int stepWithObstacles() {
+        int hits = 0;
+        for (int i = 0; i < balls.size(); i++) {
+            Ball ball = balls.get(i);
+            ball.moveStepInBox(bounds);
+            for (int k = 0; k < obstacles.size(); k++) {
+                if (ball.bounceOff(bounds, obstacles.get(k))) {
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * @return the name, kernel and number of balls of the zone
+     */
+    @Override
+    public String toString() {
+        return name + " (" + kernel + ", " + balls.size() + " balls)";
+    }
+}
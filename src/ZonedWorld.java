@@ -0,0 +1,170 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Balls split into {@link Zone}s, each with its own frame and obstacles. A step moves every
+ * awake zone with the loop it picked when it was made, so no ball is asked which rules apply
+ * to it; zones without balls are skipped.
+ *
+ * <p>Zones share no balls, so with more than one thread the awake zones are stepped in
+ * parallel, one zone per task. The balls of one zone are always stepped in order on one
+ * thread, so the result does not depend on the number of threads.</p>
+ */
+public class ZonedWorld {
+    private final List<Zone> zones = new ArrayList<>();
+    private final List<Zone> awake = new ArrayList<>();
+    private final ForkJoinPool pool;
+    private int[] zoneHits = new int[0];
+    private long ticks;
+
+    /**
+     * Constructs a world without zones, stepped on the calling thread.
+     */
+    public ZonedWorld() {
+        this(1);
+    }
+
+    /**
+     * Constructs a world without zones.
+     *
+     * @param threads the number of threads stepping zones; 1 steps them on the calling thread
+     */
+    public ZonedWorld(int threads) {
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    /**
+     * Adds an empty zone. Zones are stepped in the order they were added.
+     *
+     * @param name      a name for printing
+     * @param bounds    the frame the balls of the zone move in
+     * @param obstacles the obstacles the balls of the zone bounce off
+     * @return the new zone, to register balls with
+     */
+    public Zone addZone(String name, Rectangle bounds, List<Rectangle> obstacles) {
+        Zone zone = new Zone(name, bounds, obstacles);
+        zones.add(zone);
+        return zone;
+    }
+
+    /**
+     * @return the zones, in the order they were added
+     */
+    public List<Zone> getZones() {
+        return Collections.unmodifiableList(zones);
+    }
+
+    /**
+     * @return the number of zones that have balls
+     */
+    public int getAwakeZones() {
+        int count = 0;
+        for (Zone zone : zones) {
+            if (!zone.isAsleep()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the total number of balls in all zones
+     */
+    public int size() {
+        int count = 0;
+        for (Zone zone : zones) {
+            count += zone.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of steps taken so far
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Steps every awake zone once. Must not run while another thread adds or removes balls.
+     *
+     * @return the number of ball-obstacle hits during this step, over all zones
+     */
+    public int step() {
+        StepEvent event = new StepEvent();
+        event.begin();
+        awake.clear();
+        for (Zone zone : zones) {
+            if (!zone.isAsleep()) {
+                awake.add(zone);
+            }
+        }
+        int hits = 0;
+        if (pool == null || awake.size() < 2) {
+            for (int i = 0; i < awake.size(); i++) {
+                hits += awake.get(i).step();
+            }
+        } else {
+            if (zoneHits.length < awake.size()) {
+                zoneHits = new int[awake.size()];
+            }
+            pool.invoke(new ZoneTask(awake, zoneHits, 0, awake.size()));
+            for (int i = 0; i < awake.size(); i++) {
+                hits += zoneHits[i];
+            }
+        }
+        ticks++;
+        PhysicsStats.increment(PhysicsStats.Counter.STEPS);
+        if (event.shouldCommit()) {
+            event.set(this, hits);
+            event.commit();
+        }
+        return hits;
+    }
+
+    /**
+     * Stops the threads stepping zones, if there are any.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Steps a range of zones, splitting it until each task has one zone.
+     */
+    private static final class ZoneTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient List<Zone> zones;
+        private final int[] hits;
+        private final int lo;
+        private final int hi;
+
+        /**
+         * @param zones the zones to step
+         * @param hits  where the hits of zone i are stored, at index i
+         * @param lo    the first zone
+         * @param hi    one past the last zone
+         */
+        private ZoneTask(List<Zone> zones, int[] hits, int lo, int hi) {
+            this.zones = zones;
+            this.hits = hits;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ZoneTask(zones, hits, lo, mid), new ZoneTask(zones, hits, mid, hi));
+            } else if (hi > lo) {
+                hits[lo] = zones.get(lo).step();
+            }
+        }
+    }
+}